@@ -0,0 +1,49 @@
+package party.para.jackson.nbt;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream over the remaining content of a {@link ByteBuffer}, which it consumes; callers pass
+ * a {@link ByteBuffer#duplicate()} to leave the position of their buffer unchanged.
+ */
+final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer _buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        _buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return _buffer.hasRemaining() ? (_buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!_buffer.hasRemaining()) {
+            return -1;
+        }
+        len = Math.min(len, _buffer.remaining());
+        _buffer.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        final int count = (int) Math.min(n, _buffer.remaining());
+        _buffer.position(_buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return _buffer.remaining();
+    }
+}
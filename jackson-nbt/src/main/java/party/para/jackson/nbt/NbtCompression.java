@@ -0,0 +1,49 @@
+package party.para.jackson.nbt;
+
+/**
+ * Compression of a NBT document.
+ * <p>
+ * Most NBT found in the wild (level.dat, player data, structure files) is GZIP compressed,
+ * and region file chunks are usually zlib compressed.
+ */
+public enum NbtCompression {
+    /**
+     * Plain, uncompressed NBT.
+     */
+    NONE,
+
+    /**
+     * GZIP (RFC 1952) wrapped deflate stream.
+     */
+    GZIP,
+
+    /**
+     * zlib (RFC 1950) wrapped deflate stream.
+     */
+    ZLIB;
+
+    /**
+     * Detects the compression of a document from its first bytes.
+     * <p>
+     * The magic bytes of GZIP ({@code 1F 8B}) and zlib (a deflate method byte such as {@code 78},
+     * followed by a byte that makes the header a multiple of 31) can not start an uncompressed
+     * NBT document, whose first byte is a tag type id.
+     *
+     * @return detected compression; {@link #NONE} if there are less than 2 bytes
+     */
+    public static NbtCompression detect(byte[] buf, int offset, int len) {
+        if (len < 2) {
+            return NONE;
+        }
+        final int b0 = buf[offset] & 0xFF;
+        final int b1 = buf[offset + 1] & 0xFF;
+        if (b0 == 0x1F && b1 == 0x8B) {
+            return GZIP;
+        }
+        // deflate method, window size of 512 bytes to 32K: never a NBT tag type id
+        if ((b0 & 0x0F) == 8 && b0 >= 0x18 && b0 <= 0x78 && ((b0 << 8) | b1) % 31 == 0) {
+            return ZLIB;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,28 @@
+package party.para.jackson.nbt;
+
+import net.kyori.adventure.nbt.BinaryTagTypes;
+
+/**
+ * NBT tag type ids.
+ * <p>
+ * These are the same ids as {@link BinaryTagTypes}, but as compile-time constants
+ * so that the parser and the generator can dispatch on them with a {@code switch}.
+ */
+public final class NbtConstants {
+    private NbtConstants() {
+    }
+
+    public static final byte TAG_END = 0;
+    public static final byte TAG_BYTE = 1;
+    public static final byte TAG_SHORT = 2;
+    public static final byte TAG_INT = 3;
+    public static final byte TAG_LONG = 4;
+    public static final byte TAG_FLOAT = 5;
+    public static final byte TAG_DOUBLE = 6;
+    public static final byte TAG_BYTE_ARRAY = 7;
+    public static final byte TAG_STRING = 8;
+    public static final byte TAG_LIST = 9;
+    public static final byte TAG_COMPOUND = 10;
+    public static final byte TAG_INT_ARRAY = 11;
+    public static final byte TAG_LONG_ARRAY = 12;
+}
@@ -5,9 +5,16 @@ import com.fasterxml.jackson.core.format.InputAccessor;
 import com.fasterxml.jackson.core.format.MatchStrength;
 import com.fasterxml.jackson.core.io.IOContext;
 import com.fasterxml.jackson.core.json.PackageVersion;
+import party.para.jackson.nbt.async.NonBlockingNbtParser;
+import party.para.jackson.nbt.compress.InflatingInputStream;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * NBT Factory.
@@ -16,19 +23,65 @@ import java.net.URL;
  * The detailed information about this class is available in {@link com.fasterxml.jackson.core.JsonFactory}.
  */
 public class NbtFactory extends JsonFactory {
+    /**
+     * Bitfield (set of flags) of all parser features that are enabled
+     * by default.
+     */
+    protected final static int DEFAULT_NBT_PARSER_FEATURE_FLAGS = NbtParser.Feature.collectDefaults();
+
+    /**
+     * Bitfield (set of flags) of all generator features that are enabled
+     * by default.
+     */
+    protected final static int DEFAULT_NBT_GENERATOR_FEATURE_FLAGS = NbtGenerator.Feature.collectDefaults();
+
+    private final static byte[] NO_BYTES = new byte[0];
+
+    protected int _formatParserFeatures;
+
+    protected int _formatGeneratorFeatures;
+
+    /**
+     * Default output settings of generators, unless overridden with
+     * {@link JsonGenerator#setSchema(FormatSchema)}.
+     */
+    protected NbtSchema _outputSchema;
+
+    /**
+     * Encoded field names shared by the generators of this factory; not serialized, a
+     * deserialized factory starts with an empty cache.
+     */
+    protected final transient NbtNameCache _nameCache = new NbtNameCache();
+
+    /**
+     * Closed parsers and generators kept for reuse, see {@link NbtParser.Feature#REUSE_INSTANCES}
+     * and {@link NbtGenerator.Feature#REUSE_INSTANCES}.
+     */
+    protected final transient NbtInstancePool _instancePool = new NbtInstancePool();
+
     public NbtFactory() {
+        this((ObjectCodec) null);
     }
 
     public NbtFactory(ObjectCodec codec) {
         super(codec);
+        _formatParserFeatures = DEFAULT_NBT_PARSER_FEATURE_FLAGS;
+        _formatGeneratorFeatures = DEFAULT_NBT_GENERATOR_FEATURE_FLAGS;
+        _outputSchema = NbtSchema.DEFAULT;
     }
 
     protected NbtFactory(NbtFactory src, ObjectCodec oc) {
         super(src, oc);
+        _formatParserFeatures = src._formatParserFeatures;
+        _formatGeneratorFeatures = src._formatGeneratorFeatures;
+        _outputSchema = src._outputSchema;
     }
 
     protected NbtFactory(NbtFactoryBuilder b) {
         super(b, false);
+        _formatParserFeatures = b.formatParserFeaturesMask();
+        _formatGeneratorFeatures = b.formatGeneratorFeaturesMask();
+        _outputSchema = b.outputSchema();
     }
 
 
@@ -87,12 +140,182 @@ public class NbtFactory extends JsonFactory {
         return false;
     }
 
+    @Override
+    public boolean canParseAsync() {
+        return true;
+    }
 
-    @SuppressWarnings("resource")
+    @Override
+    public boolean canUseSchema(FormatSchema schema) {
+        return schema instanceof NbtSchema;
+    }
+
+    @Override
+    public Class<NbtParser.Feature> getFormatReadFeatureType() {
+        return NbtParser.Feature.class;
+    }
+
+    @Override
+    public Class<NbtGenerator.Feature> getFormatWriteFeatureType() {
+        return NbtGenerator.Feature.class;
+    }
+
+    /*
+    /**********************************************************
+    /* Configuration, parser settings
+    /**********************************************************
+     */
+
+    /**
+     * Method for enabling or disabling specified parser feature
+     * (check {@link NbtParser.Feature} for list of features)
+     */
+    public final NbtFactory configure(NbtParser.Feature f, boolean state) {
+        if (state) {
+            enable(f);
+        } else {
+            disable(f);
+        }
+        return this;
+    }
+
+    /**
+     * Method for enabling specified parser feature
+     * (check {@link NbtParser.Feature} for list of features)
+     */
+    public NbtFactory enable(NbtParser.Feature f) {
+        _formatParserFeatures |= f.getMask();
+        return this;
+    }
+
+    /**
+     * Method for disabling specified parser features
+     * (check {@link NbtParser.Feature} for list of features)
+     */
+    public NbtFactory disable(NbtParser.Feature f) {
+        _formatParserFeatures &= ~f.getMask();
+        return this;
+    }
+
+    /**
+     * Checked whether specified parser feature is enabled.
+     */
+    public final boolean isEnabled(NbtParser.Feature f) {
+        return (_formatParserFeatures & f.getMask()) != 0;
+    }
+
+    @Override
+    public int getFormatParserFeatures() {
+        return _formatParserFeatures;
+    }
+
+    /*
+    /**********************************************************
+    /* Configuration, generator settings
+    /**********************************************************
+     */
+
+    /**
+     * Method for enabling or disabling specified generator feature
+     * (check {@link NbtGenerator.Feature} for list of features)
+     */
+    public final NbtFactory configure(NbtGenerator.Feature f, boolean state) {
+        if (state) {
+            enable(f);
+        } else {
+            disable(f);
+        }
+        return this;
+    }
+
+    /**
+     * Method for enabling specified generator feature
+     * (check {@link NbtGenerator.Feature} for list of features)
+     */
+    public NbtFactory enable(NbtGenerator.Feature f) {
+        _formatGeneratorFeatures |= f.getMask();
+        return this;
+    }
+
+    /**
+     * Method for disabling specified generator features
+     * (check {@link NbtGenerator.Feature} for list of features)
+     */
+    public NbtFactory disable(NbtGenerator.Feature f) {
+        _formatGeneratorFeatures &= ~f.getMask();
+        return this;
+    }
+
+    /**
+     * Checked whether specified generator feature is enabled.
+     */
+    public final boolean isEnabled(NbtGenerator.Feature f) {
+        return (_formatGeneratorFeatures & f.getMask()) != 0;
+    }
+
+    @Override
+    public int getFormatGeneratorFeatures() {
+        return _formatGeneratorFeatures;
+    }
+
+    /**
+     * Sets the compression of generated output. Defaults to {@link NbtCompression#NONE}.
+     */
+    public NbtFactory setOutputCompression(NbtCompression compression) {
+        _outputSchema = _outputSchema.withCompression(compression);
+        return this;
+    }
+
+    public NbtCompression getOutputCompression() {
+        return _outputSchema.getCompression();
+    }
+
+    /**
+     * Sets the level of output compression; see {@link NbtSchema#withCompressionLevel(int)}.
+     */
+    public NbtFactory setCompressionLevel(int level) {
+        _outputSchema = _outputSchema.withCompressionLevel(level);
+        return this;
+    }
+
+    public int getCompressionLevel() {
+        return _outputSchema.getCompressionLevel();
+    }
+
+
+    /**
+     * Creates a parser for given file. Unless an input decorator is configured, the file is
+     * memory-mapped instead of being read through a stream.
+     */
     @Override
     public NbtParser createParser(File f) throws IOException {
-        final IOContext ctxt = _createContext(f, true);
-        return _createParser(_decorate(new FileInputStream(f), ctxt), ctxt);
+        return _createFileParser(f.toPath(), _createContext(f, true));
+    }
+
+    /**
+     * Creates a parser for given file. Unless an input decorator is configured, the file is
+     * memory-mapped instead of being read through a stream.
+     */
+    public NbtParser createParser(Path path) throws IOException {
+        return _createFileParser(path, _createContext(path, true));
+    }
+
+    /**
+     * Creates a parser for the remaining content of given buffer, from its position to its
+     * limit; the position of the buffer is left unchanged. Heap buffers are parsed in place,
+     * direct and memory-mapped ones are read window by window through a recycled buffer.
+     * With an input decorator configured, direct buffers are read as a decorated stream.
+     */
+    @SuppressWarnings("resource")
+    public NbtParser createParser(ByteBuffer buf) throws IOException {
+        if (buf.hasArray()) {
+            return createParser(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        }
+        final IOContext ctxt = _createContext(buf, false);
+        if (_inputDecorator != null) {
+            return _createParser(_decorate(new ByteBufferInputStream(buf.duplicate()), ctxt), ctxt);
+        }
+        return _createParser(buf, ctxt);
     }
 
     @Override
@@ -117,7 +340,7 @@ public class NbtFactory extends JsonFactory {
     public NbtParser createParser(byte[] data, int offset, int len) throws IOException {
         IOContext ctxt = _createContext(data, true);
         if (_inputDecorator != null) {
-            InputStream in = _inputDecorator.decorate(ctxt, data, 0, data.length);
+            InputStream in = _inputDecorator.decorate(ctxt, data, offset, len);
             if (in != null) {
                 return _createParser(in, ctxt);
             }
@@ -125,6 +348,17 @@ public class NbtFactory extends JsonFactory {
         return _createParser(data, offset, len, ctxt);
     }
 
+    /**
+     * Creates a parser that is fed content in chunks instead of reading it from a source; see
+     * {@link NonBlockingNbtParser}.
+     */
+    @Override
+    public NonBlockingNbtParser createNonBlockingByteArrayParser() throws IOException {
+        IOContext ctxt = _createNonBlockingContext(null);
+        return new NonBlockingNbtParser(ctxt, _parserFeatures, _formatParserFeatures, _objectCodec,
+                _byteSymbolCanonicalizer.makeChildOrPlaceholder(_factoryFeatures));
+    }
+
     /*
     /**********************************************************
     /* Overridden generator factory methods
@@ -164,16 +398,52 @@ public class NbtFactory extends JsonFactory {
 
     @Override
     protected NbtParser _createParser(InputStream in, IOContext ctxt) throws IOException {
-        final int DEFAULT_BUFFER_SIZE = 8192;
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        int transferred = 0;
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        int read;
-        while ((read = in.read(buffer, 0, DEFAULT_BUFFER_SIZE)) >= 0) {
-            out.write(buffer, 0, read);
-            transferred += read;
+        final byte[] buf = ctxt.allocReadIOBuffer();
+        int end = 0;
+        if (NbtParser.Feature.DETECT_COMPRESSION.enabledIn(_formatParserFeatures)) {
+            // read enough to see the magic bytes; whatever is read is handed on
+            while (end < 2) {
+                int count = in.read(buf, end, buf.length - end);
+                if (count < 0) {
+                    break;
+                }
+                end += count;
+            }
+            NbtCompression compression = NbtCompression.detect(buf, 0, end);
+            if (compression != NbtCompression.NONE) {
+                in = new InflatingInputStream(compression, in, buf, 0, end);
+                end = 0;
+            }
+        }
+        return _newParser(ctxt, in, null, buf, 0, end, true);
+    }
+
+    @SuppressWarnings("resource")
+    protected NbtParser _createParser(ByteBuffer src, IOContext ctxt) throws IOException {
+        if (NbtParser.Feature.DETECT_COMPRESSION.enabledIn(_formatParserFeatures) && src.remaining() >= 2) {
+            final int pos = src.position();
+            NbtCompression compression = NbtCompression.detect(new byte[]{src.get(pos), src.get(pos + 1)}, 0, 2);
+            if (compression != NbtCompression.NONE) {
+                InputStream in = new InflatingInputStream(compression,
+                        new ByteBufferInputStream(src.duplicate()), NO_BYTES, 0, 0);
+                return _newParser(ctxt, in, null, ctxt.allocReadIOBuffer(), 0, 0, true);
+            }
         }
-        return _createParser(out.toByteArray(), 0, transferred, ctxt);
+        return _newParser(ctxt, null, src.duplicate(), ctxt.allocReadIOBuffer(), 0, 0, true);
+    }
+
+    @SuppressWarnings("resource")
+    protected NbtParser _createFileParser(Path path, IOContext ctxt) throws IOException {
+        if (_inputDecorator == null) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final long size = channel.size();
+                // larger files can not be mapped into a single buffer
+                if (size <= Integer.MAX_VALUE) {
+                    return _createParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), ctxt);
+                }
+            }
+        }
+        return _createParser(_decorate(Files.newInputStream(path), ctxt), ctxt);
     }
 
     @Override
@@ -187,9 +457,42 @@ public class NbtFactory extends JsonFactory {
         return _nonByteSource();
     }
 
+    @SuppressWarnings("resource")
     @Override
     protected NbtParser _createParser(byte[] data, int offset, int len, IOContext ctxt) throws IOException {
-        return new NbtParser(ctxt, _parserFeatures, _objectCodec, data, offset, offset + len);
+        if (NbtParser.Feature.DETECT_COMPRESSION.enabledIn(_formatParserFeatures)) {
+            NbtCompression compression = NbtCompression.detect(data, offset, len);
+            if (compression != NbtCompression.NONE) {
+                InputStream in = new InflatingInputStream(compression,
+                        new ByteArrayInputStream(data, offset, len), NO_BYTES, 0, 0);
+                return _newParser(ctxt, in, null, ctxt.allocReadIOBuffer(), 0, 0, true);
+            }
+        }
+        return _newParser(ctxt, null, null, data, offset, offset + len, false);
+    }
+
+    /**
+     * Creates a blocking parser for given input, or resets the idle parser of this thread if
+     * parsers are reused.
+     */
+    private NbtParser _newParser(IOContext ctxt, InputStream in, ByteBuffer src,
+                                 byte[] inputBuffer, int start, int end, boolean bufferRecyclable) {
+        if (!NbtParser.Feature.REUSE_INSTANCES.enabledIn(_formatParserFeatures)) {
+            return new NbtParser(ctxt, _parserFeatures, _formatParserFeatures, _objectCodec,
+                    _byteSymbolCanonicalizer.makeChildOrPlaceholder(_factoryFeatures),
+                    in, src, inputBuffer, start, end, bufferRecyclable);
+        }
+        NbtParser p = _instancePool.acquireParser();
+        if (p != null) {
+            p._reset(ctxt, _parserFeatures, _formatParserFeatures, _objectCodec,
+                    in, src, inputBuffer, start, end, bufferRecyclable);
+        } else {
+            p = new NbtParser(ctxt, _parserFeatures, _formatParserFeatures, _objectCodec,
+                    _byteSymbolCanonicalizer.makeChildOrPlaceholder(_factoryFeatures),
+                    in, src, inputBuffer, start, end, bufferRecyclable);
+            p._pool = _instancePool;
+        }
+        return p;
     }
 
     @Override
@@ -208,7 +511,17 @@ public class NbtFactory extends JsonFactory {
     }
 
     private NbtGenerator _createNbtGenerator(IOContext ctxt, int stdFeat, ObjectCodec codec, OutputStream out) throws IOException {
-        return new NbtGenerator(ctxt, stdFeat, _objectCodec, out);
+        if (!NbtGenerator.Feature.REUSE_INSTANCES.enabledIn(_formatGeneratorFeatures)) {
+            return new NbtGenerator(ctxt, stdFeat, _formatGeneratorFeatures, _objectCodec, out, _outputSchema, _nameCache);
+        }
+        NbtGenerator g = _instancePool.acquireGenerator();
+        if (g != null) {
+            g._reset(ctxt, stdFeat, _formatGeneratorFeatures, _objectCodec, out, _outputSchema);
+        } else {
+            g = new NbtGenerator(ctxt, stdFeat, _formatGeneratorFeatures, _objectCodec, out, _outputSchema, _nameCache);
+            g._pool = _instancePool;
+        }
+        return g;
     }
 
 
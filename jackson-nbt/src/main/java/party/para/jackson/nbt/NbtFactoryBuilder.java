@@ -10,12 +10,121 @@ import com.fasterxml.jackson.core.TSFBuilder;
  */
 public class NbtFactoryBuilder extends TSFBuilder<NbtFactory, NbtFactoryBuilder>
 {
+    /**
+     * Set of {@link NbtParser.Feature}s enabled, as bitmask.
+     */
+    protected int _formatParserFeatures;
+
+    /**
+     * Set of {@link NbtGenerator.Feature}s enabled, as bitmask.
+     */
+    protected int _formatGeneratorFeatures;
+
+    /**
+     * Default output settings of generators.
+     */
+    protected NbtSchema _outputSchema;
+
     public NbtFactoryBuilder() {
         super();
+        _formatParserFeatures = NbtFactory.DEFAULT_NBT_PARSER_FEATURE_FLAGS;
+        _formatGeneratorFeatures = NbtFactory.DEFAULT_NBT_GENERATOR_FEATURE_FLAGS;
+        _outputSchema = NbtSchema.DEFAULT;
     }
 
     public NbtFactoryBuilder(NbtFactory base) {
         super(base);
+        _formatParserFeatures = base._formatParserFeatures;
+        _formatGeneratorFeatures = base._formatGeneratorFeatures;
+        _outputSchema = base._outputSchema;
+    }
+
+    public NbtFactoryBuilder enable(NbtParser.Feature f) {
+        _formatParserFeatures |= f.getMask();
+        return _this();
+    }
+
+    public NbtFactoryBuilder enable(NbtParser.Feature first, NbtParser.Feature... other) {
+        enable(first);
+        for (NbtParser.Feature f : other) {
+            enable(f);
+        }
+        return _this();
+    }
+
+    public NbtFactoryBuilder disable(NbtParser.Feature f) {
+        _formatParserFeatures &= ~f.getMask();
+        return _this();
+    }
+
+    public NbtFactoryBuilder disable(NbtParser.Feature first, NbtParser.Feature... other) {
+        disable(first);
+        for (NbtParser.Feature f : other) {
+            disable(f);
+        }
+        return _this();
+    }
+
+    public NbtFactoryBuilder configure(NbtParser.Feature f, boolean state) {
+        return state ? enable(f) : disable(f);
+    }
+
+    public NbtFactoryBuilder enable(NbtGenerator.Feature f) {
+        _formatGeneratorFeatures |= f.getMask();
+        return _this();
+    }
+
+    public NbtFactoryBuilder enable(NbtGenerator.Feature first, NbtGenerator.Feature... other) {
+        enable(first);
+        for (NbtGenerator.Feature f : other) {
+            enable(f);
+        }
+        return _this();
+    }
+
+    public NbtFactoryBuilder disable(NbtGenerator.Feature f) {
+        _formatGeneratorFeatures &= ~f.getMask();
+        return _this();
+    }
+
+    public NbtFactoryBuilder disable(NbtGenerator.Feature first, NbtGenerator.Feature... other) {
+        disable(first);
+        for (NbtGenerator.Feature f : other) {
+            disable(f);
+        }
+        return _this();
+    }
+
+    public NbtFactoryBuilder configure(NbtGenerator.Feature f, boolean state) {
+        return state ? enable(f) : disable(f);
+    }
+
+    /**
+     * Sets the compression of generated output. Defaults to {@link NbtCompression#NONE}.
+     */
+    public NbtFactoryBuilder outputCompression(NbtCompression compression) {
+        _outputSchema = _outputSchema.withCompression(compression);
+        return _this();
+    }
+
+    /**
+     * Sets the level of output compression; see {@link NbtSchema#withCompressionLevel(int)}.
+     */
+    public NbtFactoryBuilder compressionLevel(int level) {
+        _outputSchema = _outputSchema.withCompressionLevel(level);
+        return _this();
+    }
+
+    public int formatParserFeaturesMask() {
+        return _formatParserFeatures;
+    }
+
+    public int formatGeneratorFeaturesMask() {
+        return _formatGeneratorFeatures;
+    }
+
+    public NbtSchema outputSchema() {
+        return _outputSchema;
     }
 
     @Override
@@ -1,105 +1,759 @@
 package party.para.jackson.nbt;
 
 import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.FormatFeature;
+import com.fasterxml.jackson.core.FormatSchema;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.core.base.GeneratorBase;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
 import net.kyori.adventure.nbt.*;
-import party.para.jackson.nbt.entity.MutableListBinaryTagImpl;
-import party.para.jackson.nbt.writer.CompoundTagWriter;
+import party.para.jackson.nbt.compress.DeflatingOutputStream;
+import party.para.jackson.nbt.entity.LazyBinaryTag;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.Stack;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import static party.para.jackson.nbt.NbtConstants.*;
 
 /**
  * NBT Generator.
  * <p>
  * Serializer a NBT data by given JSON sequence.
+ * <p>
+ * Tags are encoded straight into a recycled output buffer as events arrive. Two things in NBT
+ * are only known after the fact, and are backpatched in the buffer:
+ * <ul>
+ *     <li>the type id of a compound entry, which precedes its name but depends on the value
+ *     written after {@link #writeFieldName(String)};</li>
+ *     <li>the element type and length of a list, which precede its elements.</li>
+ * </ul>
+ * Everything before the earliest byte that may still be patched can be written out, so the
+ * buffer only has to hold the content of lists that are still open.
+ * <p>
+ * When the length of a list is known up front, as it is when serializing a {@link java.util.Collection}
+ * or an array through {@link #writeStartArray(Object, int)}, the header is complete as soon as
+ * the first element is written: such lists are written out as they go, at constant memory,
+ * and the number of elements written is checked against the declared length instead.
+ * <p>
+ * Every root value is written as a named tag with an empty name; several root values, as
+ * written by {@link com.fasterxml.jackson.databind.SequenceWriter}, make a stream of
+ * concatenated documents.
  */
 public class NbtGenerator extends GeneratorBase {
-    private final OutputStream writer;
+    /**
+     * Enumeration that defines all togglable features for NBT generators.
+     */
+    public enum Feature implements FormatFeature {
+        /**
+         * Feature that determines whether lists of bytes, ints and longs are written as the
+         * compact {@code BYTE_ARRAY}, {@code INT_ARRAY} and {@code LONG_ARRAY} tags instead of
+         * {@code LIST} tags. This covers {@code int[]} and {@code long[]} (written in bulk by
+         * {@link #writeArray(int[], int, int)} and {@link #writeArray(long[], int, int)}) as well
+         * as lists whose first element is a byte, an int or a long, such as a {@code List<Integer>}.
+         * <p>
+         * Lists that are themselves elements of a list are left as they are (except for the
+         * primitive arrays), since an empty list next to them would still be a {@code LIST} and
+         * NBT lists can not mix element types.
+         * <p>
+         * Feature is disabled by default, so that lists read back as lists by other NBT readers.
+         */
+        WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS(false),
+
+        /**
+         * Feature that determines whether numbers are written as the smallest NBT type that holds
+         * them exactly: integral values as {@code BYTE}, {@code SHORT}, {@code INT} or
+         * {@code LONG}, and floating point values as {@code FLOAT} when that loses nothing,
+         * {@code DOUBLE} otherwise.
+         * <p>
+         * Elements of a list all have the type of its widest element: when a value does not fit
+         * the elements written so far, they are widened in place. Lists of numbers are therefore
+         * kept in the output buffer until they are complete, even if their length is known.
+         * <p>
+         * Feature is disabled by default, since readers of typed data (such as Minecraft itself)
+         * may expect a specific type.
+         */
+        WRITE_COMPACT_NUMBERS(false),
+
+        /**
+         * Feature that determines whether {@link NbtFactory} reuses generators: a generator that
+         * has been closed is kept by the thread that closed it, and is reset (see
+         * {@link NbtGenerator#reset(OutputStream)}) for the next document that thread writes,
+         * instead of setting up a new generator. This saves most of the allocation of a
+         * generator when writing many small documents.
+         * <p>
+         * A generator must then not be used at all once it has been closed, not even closed
+         * again, since it may be writing another document by then; {@code ObjectMapper} and
+         * {@code ObjectWriter} never do. This is only effective when configured on the
+         * {@link NbtFactory}.
+         * <p>
+         * Feature is disabled by default.
+         */
+        REUSE_INSTANCES(false);
+
+        final boolean _defaultState;
+        final int _mask;
+
+        /**
+         * Method that calculates bit set (flags) of all features that
+         * are enabled by default.
+         */
+        public static int collectDefaults() {
+            int flags = 0;
+            for (Feature f : values()) {
+                if (f.enabledByDefault()) {
+                    flags |= f.getMask();
+                }
+            }
+            return flags;
+        }
+
+        Feature(boolean defaultState) {
+            _defaultState = defaultState;
+            _mask = (1 << ordinal());
+        }
+
+        @Override
+        public boolean enabledByDefault() {
+            return _defaultState;
+        }
+
+        @Override
+        public int getMask() {
+            return _mask;
+        }
+
+        @Override
+        public boolean enabledIn(int flags) {
+            return (flags & _mask) != 0;
+        }
+    }
+
+    /**
+     * Maximum number of bytes of a modified UTF-8 string.
+     */
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private static final int LIST_HEADER_SIZE = 5;
+
+    private IOContext _ioContext;
+
+    /**
+     * Bit flag composed of bits that indicate which
+     * {@link NbtGenerator.Feature}s are enabled.
+     */
+    protected int _formatFeatures;
+
+    /**
+     * Stream that output goes to: the target itself, or a compressing stream wrapping it
+     * once output has started.
+     */
+    private OutputStream _out;
+
+    /**
+     * Encoded names of bean properties, shared with the other generators of the factory.
+     */
+    private final NbtNameCache _nameCache;
+
+    /**
+     * Output settings; they can only be changed until output has started.
+     */
+    private NbtSchema _schema;
+
+    private boolean _outputStarted;
+
+    /**
+     * Intermediate buffer in which contents are buffered before
+     * being written using {@link #_out}.
+     */
+    private byte[] _outputBuffer;
+
+    /**
+     * Pointer to the next available byte in {@link #_outputBuffer}.
+     */
+    private int _outputTail;
+
+    /**
+     * Buffer obtained from the {@link IOContext}; {@link #_outputBuffer} only differs from it
+     * if it had to grow to hold a large open list.
+     */
+    private byte[] _recyclableBuffer;
+
+    /**
+     * Offset of the placeholder type id of the compound entry whose name has been written but
+     * whose value has not; -1 if there is none.
+     */
+    private int _pendingTypeOffset = -1;
+
+    /**
+     * Number of lists currently open.
+     */
+    private int _listDepth;
+
+    /**
+     * Offsets of the headers (element type and length) of the open lists, outermost first.
+     */
+    private int[] _listHeaderOffsets = new int[8];
+
+    /**
+     * Element types of the open lists; {@link NbtConstants#TAG_END} until the first element.
+     */
+    private byte[] _listElementTypes = new byte[8];
 
-    private BinaryTag rootTag = null;
+    /**
+     * Number of elements written so far into each of the open lists.
+     */
+    private int[] _listSizes = new int[8];
 
-    private final Stack<Object> tagStack = new Stack<>();
+    /**
+     * Lengths of the open lists as declared when they were started; -1 if not known.
+     */
+    private int[] _listDeclaredSizes = new int[8];
+
+    /**
+     * Offsets of the tag type ids of the open lists, while they may still be turned into
+     * typed arrays; -1 for lists that can not.
+     */
+    private int[] _listTypeOffsets = new int[8];
+
+    /**
+     * Tag types of the open lists: {@link NbtConstants#TAG_LIST}, or the typed array type a list
+     * has been turned into (whose header has no element type).
+     */
+    private byte[] _listTagTypes = new byte[8];
+
+    /**
+     * Pool that the generator gives itself back to when closed, if reused by {@link NbtFactory}.
+     */
+    NbtInstancePool _pool;
 
     public NbtGenerator(IOContext ctxt, int stdFeat, ObjectCodec objectCodec, OutputStream out) {
+        this(ctxt, stdFeat, objectCodec, out, NbtSchema.DEFAULT);
+    }
+
+    public NbtGenerator(IOContext ctxt, int stdFeat, ObjectCodec objectCodec, OutputStream out, NbtSchema schema) {
+        this(ctxt, stdFeat, NbtFactory.DEFAULT_NBT_GENERATOR_FEATURE_FLAGS, objectCodec, out, schema);
+    }
+
+    public NbtGenerator(IOContext ctxt, int stdFeat, int formatFeatures, ObjectCodec objectCodec,
+                        OutputStream out, NbtSchema schema) {
+        this(ctxt, stdFeat, formatFeatures, objectCodec, out, schema, new NbtNameCache());
+    }
+
+    public NbtGenerator(IOContext ctxt, int stdFeat, int formatFeatures, ObjectCodec objectCodec,
+                        OutputStream out, NbtSchema schema, NbtNameCache nameCache) {
         super(stdFeat, objectCodec);
-        this.writer = out;
+        _ioContext = ctxt;
+        _formatFeatures = formatFeatures;
+        _nameCache = nameCache;
+        _out = out;
+        _schema = schema;
+        _outputBuffer = _recyclableBuffer = ctxt.allocWriteEncodingBuffer();
+    }
+
+    /*
+    /**********************************************************
+    /* Reuse
+    /**********************************************************
+     */
+
+    /**
+     * Closes the generator, as {@link #close()} does, and makes it write another document to
+     * given stream. Writing many small documents with one generator saves setting up a new
+     * generator (and its buffers and contexts) for each. The schema is kept.
+     */
+    public void reset(OutputStream out) throws IOException {
+        if (!_closed) {
+            _close();
+        }
+        _reset(_ioContext, _features, _formatFeatures, _objectCodec, out, _schema);
+    }
+
+    /**
+     * Resets a closed generator for a new target, with the settings a new generator would get.
+     */
+    void _reset(IOContext ctxt, int stdFeat, int formatFeatures, ObjectCodec codec,
+                OutputStream out, NbtSchema schema) {
+        _ioContext = ctxt;
+        overrideStdFeatures(stdFeat, ~0);
+        _formatFeatures = formatFeatures;
+        _objectCodec = codec;
+        _cfgPrettyPrinter = null;
+        _out = out;
+        _schema = schema;
+        _outputStarted = false;
+        _outputBuffer = _recyclableBuffer = ctxt.allocWriteEncodingBuffer();
+        _outputTail = 0;
+        _pendingTypeOffset = -1;
+        _listDepth = 0;
+        JsonWriteContext root = _writeContext;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        _writeContext = root.reset(JsonWriteContext.TYPE_ROOT);
+        _closed = false;
+    }
+
+    /*
+    /**********************************************************
+    /* Output state
+    /**********************************************************
+     */
+
+    @Override
+    public Object getOutputTarget() {
+        return (_out instanceof DeflatingOutputStream) ? ((DeflatingOutputStream) _out).getTarget() : _out;
+    }
+
+    @Override
+    public boolean canUseSchema(FormatSchema schema) {
+        return schema instanceof NbtSchema;
+    }
+
+    @Override
+    public void setSchema(FormatSchema schema) {
+        if (!(schema instanceof NbtSchema)) {
+            super.setSchema(schema);
+        }
+        if (_outputStarted) {
+            throw new IllegalStateException("Can not change NBT schema once output has started");
+        }
+        _schema = (NbtSchema) schema;
+    }
+
+    @Override
+    public NbtSchema getSchema() {
+        return _schema;
+    }
+
+    @Override
+    public int getOutputBuffered() {
+        return _outputTail;
     }
 
-    private boolean checkTagStackIsNonnullAndIsPeekSpecifyType(Class<?> clazz) {
-        return tagStack.size() != 0 && (clazz.isAssignableFrom(tagStack.peek().getClass()));
+    /*
+    /**********************************************************
+    /* Overridden methods, configuration
+    /**********************************************************
+     */
+
+    @Override
+    public int getFormatFeatures() {
+        return _formatFeatures;
     }
 
+    @Override
+    public JsonGenerator overrideFormatFeatures(int values, int mask) {
+        _formatFeatures = (_formatFeatures & ~mask) | (values & mask);
+        return this;
+    }
+
+    public NbtGenerator enable(Feature f) {
+        _formatFeatures |= f.getMask();
+        return this;
+    }
+
+    public NbtGenerator disable(Feature f) {
+        _formatFeatures &= ~f.getMask();
+        return this;
+    }
+
+    public final boolean isEnabled(Feature f) {
+        return (_formatFeatures & f.getMask()) != 0;
+    }
+
+    /*
+    /**********************************************************
+    /* Structural output
+    /**********************************************************
+     */
+
     @Override
     public void writeStartArray() throws IOException {
+        _writeStartArray(-1);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void writeStartArray(int size) throws IOException {
+        _writeStartArray(size);
+    }
+
+    @Override
+    public void writeStartArray(Object forValue, int size) throws IOException {
+        _writeStartArray(size);
+        if (forValue != null) {
+            setCurrentValue(forValue);
+        }
+    }
+
+    /**
+     * @param size number of elements that will be written; -1 if not known
+     */
+    private void _writeStartArray(int size) throws IOException {
         _verifyValueWrite("start an array");
-        ListBinaryTag t = new MutableListBinaryTagImpl();
-        _writeHelper(t);
-        tagStack.push(t);
+        // room for the root header as well, so that nothing is flushed until the list is tracked
+        _ensureRoom(3 + LIST_HEADER_SIZE);
+        int typeOffset = -1;
+        if (Feature.WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS.enabledIn(_formatFeatures) && size != 0) {
+            if (_writeContext.inObject()) {
+                typeOffset = _pendingTypeOffset;
+            } else if (_writeContext.inRoot()) {
+                typeOffset = _outputTail;
+            }
+        }
+        _writeTypeHeader(TAG_LIST);
+        _writeContext = _writeContext.createChildArrayContext();
+
+        if (_listDepth == _listHeaderOffsets.length) {
+            int newSize = _listDepth << 1;
+            _listHeaderOffsets = Arrays.copyOf(_listHeaderOffsets, newSize);
+            _listElementTypes = Arrays.copyOf(_listElementTypes, newSize);
+            _listSizes = Arrays.copyOf(_listSizes, newSize);
+            _listDeclaredSizes = Arrays.copyOf(_listDeclaredSizes, newSize);
+            _listTypeOffsets = Arrays.copyOf(_listTypeOffsets, newSize);
+            _listTagTypes = Arrays.copyOf(_listTagTypes, newSize);
+        }
+        final int offset = _outputTail;
+        _listHeaderOffsets[_listDepth] = offset;
+        _listElementTypes[_listDepth] = TAG_END;
+        _listSizes[_listDepth] = 0;
+        _listDeclaredSizes[_listDepth] = size;
+        _listTypeOffsets[_listDepth] = typeOffset;
+        _listTagTypes[_listDepth] = TAG_LIST;
+        ++_listDepth;
+        // element type (and length, if not known yet) are backpatched later
+        _outputBuffer[offset] = TAG_END;
+        _putInt(_outputBuffer, offset + 1, Math.max(size, 0));
+        _outputTail += LIST_HEADER_SIZE;
     }
 
     @Override
     public void writeEndArray() throws IOException {
-        if (!checkTagStackIsNonnullAndIsPeekSpecifyType(ListBinaryTag.class)) {
-            _reportError("Current context not Array but Object");
+        _writeEndArray(true);
+    }
+
+    /**
+     * Ends the current list like {@link #writeEndArray()}, but without checking its length
+     * against the length it was started with. This is for lists whose length is only known once
+     * they end, and which are too long to hold in the output buffer until then, as happens for a
+     * list of unknown length. Such a list is started with an upper bound of its length, and the
+     * caller then patches the length in the list header of the output it wrote.
+     *
+     * @return number of elements written into the list
+     */
+    public int writeEndArrayUnchecked() throws IOException {
+        return _writeEndArray(false);
+    }
+
+    private int _writeEndArray(boolean checkLength) throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
         }
-        tagStack.pop();
+        final int depth = _listDepth - 1;
+        final int declared = _listDeclaredSizes[depth];
+        final int size = _listSizes[depth];
+        if (declared < 0) {
+            final int offset = _listHeaderOffsets[depth];
+            final byte[] buf = _outputBuffer;
+            if (_listTagTypes[depth] == TAG_LIST) {
+                buf[offset] = _listElementTypes[depth];
+                _putInt(buf, offset + 1, size);
+            } else {
+                _putInt(buf, offset, size);
+            }
+        } else if (checkLength && size != declared) {
+            _reportError(String.format("NBT list was declared with %d elements but %d were written",
+                    declared, size));
+        }
+        _listDepth = depth;
+        _writeContext = _writeContext.clearAndGetParent();
+        return size;
     }
 
     @Override
     public void writeStartObject() throws IOException {
         _verifyValueWrite("start an object");
-        CompoundTagWriter t = new CompoundTagWriter();
-        _writeHelper(t.tag);
-        tagStack.push(t);
+        _writeTypeHeader(TAG_COMPOUND);
+        _writeContext = _writeContext.createChildObjectContext();
     }
 
     @Override
     public void writeEndObject() throws IOException {
-        if (!checkTagStackIsNonnullAndIsPeekSpecifyType(CompoundTagWriter.class)) {
-            _reportError("Current context not Object but Array");
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+        if (_pendingTypeOffset >= 0) {
+            _reportError("Can not write END_OBJECT, expecting a value for field '" + _writeContext.getCurrentName() + "'");
         }
-        tagStack.pop();
+        _writeByte(TAG_END);
+        _writeContext = _writeContext.clearAndGetParent();
     }
 
     @Override
     public void writeFieldName(String name) throws IOException {
-        if (!checkTagStackIsNonnullAndIsPeekSpecifyType(CompoundTagWriter.class)) {
-            _reportError("Key value pair not allow here.");
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
         }
+        _ensureRoom(1);
+        _pendingTypeOffset = _outputTail;
+        // type id is backpatched once the value is written
+        _outputBuffer[_outputTail++] = TAG_END;
+        _writeModifiedUTF(name);
+    }
+
+    /**
+     * Writes a name whose encoding is cached by the factory (see {@link NbtNameCache}), as a
+     * byte copy.
+     */
+    @Override
+    public void writeFieldName(SerializableString name) throws IOException {
+        final byte[] encoded = _nameCache.encoded(name);
+        if (encoded == null) {
+            // too long, reported by the regular path
+            writeFieldName(name.getValue());
+            return;
+        }
+        if (_writeContext.writeFieldName(name.getValue()) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        _ensureRoom(1 + encoded.length);
+        _pendingTypeOffset = _outputTail;
+        // type id is backpatched once the value is written
+        _outputBuffer[_outputTail++] = TAG_END;
+        System.arraycopy(encoded, 0, _outputBuffer, _outputTail, encoded.length);
+        _outputTail += encoded.length;
+    }
+
+    /**
+     * Writes what precedes the payload of a value of given type: the type id and empty name
+     * of a root tag, the type id of a compound entry, or nothing but bookkeeping for a list
+     * element.
+     */
+    private void _writeTypeHeader(byte type) throws IOException {
+        if (_writeContext.inObject()) {
+            _outputBuffer[_pendingTypeOffset] = type;
+            _pendingTypeOffset = -1;
+        } else if (_writeContext.inArray()) {
+            final int depth = _listDepth - 1;
+            if (_listSizes[depth] == 0) {
+                _listElementTypes[depth] = type;
+                if (_listTypeOffsets[depth] >= 0) {
+                    if (type == TAG_BYTE || type == TAG_INT || type == TAG_LONG) {
+                        _startTypedArray(depth, type);
+                    }
+                    // the tag type of a typed array changes if its elements are widened
+                    if (_listTagTypes[depth] == TAG_LIST || type == TAG_LONG
+                            || !Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+                        _listTypeOffsets[depth] = -1;
+                    }
+                }
+                if (_listTagTypes[depth] == TAG_LIST && _listDeclaredSizes[depth] > 0) {
+                    // completes the header, which is still pinned in the buffer
+                    _outputBuffer[_listHeaderOffsets[depth]] = type;
+                }
+            } else if (_listElementTypes[depth] != type) {
+                _reportError(String.format("NBT list elements must all have the same type: can not add tag of type %d to list of type %d",
+                        type, _listElementTypes[depth]));
+            }
+            if (_listSizes[depth] == _listDeclaredSizes[depth]) {
+                _reportError(String.format("NBT list was declared with %d elements, can not add more",
+                        _listDeclaredSizes[depth]));
+            }
+            ++_listSizes[depth];
+        } else {
+            _ensureRoom(3);
+            final byte[] buf = _outputBuffer;
+            buf[_outputTail++] = type;
+            buf[_outputTail++] = 0;
+            buf[_outputTail++] = 0;
+        }
+    }
+
+    /**
+     * Turns the list being written, whose first element is about to be written, into a typed
+     * array: its tag type is patched and the element type is dropped from its header.
+     */
+    private void _startTypedArray(int depth, byte elementType) {
+        final byte tagType = (elementType == TAG_BYTE) ? TAG_BYTE_ARRAY
+                : (elementType == TAG_INT) ? TAG_INT_ARRAY : TAG_LONG_ARRAY;
+        final int offset = _listHeaderOffsets[depth];
+        _outputBuffer[_listTypeOffsets[depth]] = tagType;
+        // nothing has been written after the header yet
+        _putInt(_outputBuffer, offset, Math.max(_listDeclaredSizes[depth], 0));
+        _outputTail = offset + LIST_HEADER_SIZE - 1;
+        _listTagTypes[depth] = tagType;
+    }
+
+    /**
+     * Writes an integral value as the smallest type that holds it, or as the type of the list
+     * it is an element of.
+     */
+    private void _writeCompactIntegral(long v) throws IOException {
+        byte type = (v == (byte) v) ? TAG_BYTE : (v == (short) v) ? TAG_SHORT : (v == (int) v) ? TAG_INT : TAG_LONG;
+        type = _compactElementType(type);
+        _writeTypeHeader(type);
+        switch (type) {
+            case TAG_BYTE:
+                _writeByte((byte) v);
+                break;
+            case TAG_SHORT:
+                _writeShort((short) v);
+                break;
+            case TAG_INT:
+                _writeInt((int) v);
+                break;
+            default:
+                _writeLong(v);
+        }
+    }
 
-        CompoundTagWriter s = (CompoundTagWriter) tagStack.peek();
-        if (s.isPendingFieldNameNull()) {
-            s.addPendingFieldName(name);
+    /**
+     * Writes a floating point value as {@code FLOAT} if that is exact, or as the type of the
+     * list it is an element of.
+     */
+    private void _writeCompactFloating(double v) throws IOException {
+        byte type = ((double) (float) v == v || Double.isNaN(v)) ? TAG_FLOAT : TAG_DOUBLE;
+        type = _compactElementType(type);
+        _writeTypeHeader(type);
+        if (type == TAG_FLOAT) {
+            _writeInt(Float.floatToRawIntBits((float) v));
         } else {
-            _reportError("Field name is already exists.");
+            _writeLong(Double.doubleToRawLongBits(v));
         }
     }
 
-    private void _writeHelper(BinaryTag v) throws IOException {
-        if (checkTagStackIsNonnullAndIsPeekSpecifyType(CompoundTagWriter.class)) {
-            CompoundTagWriter s = (CompoundTagWriter) tagStack.peek();
-            if (s.isPendingFieldNameNull()) {
-                _reportError("No field name exists.");
+    /**
+     * Type to write a number as, given the smallest type that holds it. Outside of lists that
+     * is the type itself; in a list it is the wider of the type and the element type, and the
+     * elements written so far are widened if the type is wider.
+     * A type that is not compatible with the element type is returned as is, to be reported
+     * by {@link #_writeTypeHeader(byte)}.
+     */
+    private byte _compactElementType(byte type) throws IOException {
+        if (!_writeContext.inArray()) {
+            return type;
+        }
+        final int depth = _listDepth - 1;
+        // typed arrays have no variant for shorts
+        if (type == TAG_SHORT && (_listTagTypes[depth] != TAG_LIST || _listTypeOffsets[depth] >= 0)) {
+            type = TAG_INT;
+        }
+        if (_listSizes[depth] == 0) {
+            return type;
+        }
+        final byte elementType = _listElementTypes[depth];
+        final int family = _numberFamily(type);
+        if (family == 0 || family != _numberFamily(elementType)) {
+            return type;
+        }
+        // type ids of each family are in order of width
+        if (type <= elementType) {
+            return elementType;
+        }
+        _widenList(depth, type);
+        return type;
+    }
+
+    /**
+     * @return 1 for integral types, 2 for floating point types, 0 for anything else
+     */
+    private static int _numberFamily(byte type) {
+        return (type >= TAG_BYTE && type <= TAG_LONG) ? 1 : (type == TAG_FLOAT || type == TAG_DOUBLE) ? 2 : 0;
+    }
+
+    private static int _numberWidth(byte type) {
+        switch (type) {
+            case TAG_BYTE:
+                return 1;
+            case TAG_SHORT:
+                return 2;
+            case TAG_INT:
+            case TAG_FLOAT:
+                return 4;
+            default:
+                return 8;
+        }
+    }
+
+    /**
+     * Re-encodes the elements of the current list, which are numbers at the end of the output
+     * buffer, as the given wider type of the same family.
+     */
+    private void _widenList(int depth, byte newType) throws IOException {
+        final byte oldType = _listElementTypes[depth];
+        final int oldWidth = _numberWidth(oldType);
+        final int newWidth = _numberWidth(newType);
+        final int count = _listSizes[depth];
+        // the list is pinned, so if this flushes its elements stay in the buffer
+        _ensureRoom(count * (newWidth - oldWidth));
+        final byte[] buf = _outputBuffer;
+        final int start = _outputTail - count * oldWidth;
+        // back to front, so that no element is overwritten before it is moved
+        for (int i = count - 1; i >= 0; --i) {
+            final int src = start + i * oldWidth;
+            final int dst = start + i * newWidth;
+            if (newType == TAG_DOUBLE) {
+                _putLong(buf, dst, Double.doubleToRawLongBits(Float.intBitsToFloat(_getInt(buf, src))));
             } else {
-                s.finishField(v);
+                long v;
+                switch (oldWidth) {
+                    case 1:
+                        v = buf[src];
+                        break;
+                    case 2:
+                        v = (short) ((buf[src] << 8) | (buf[src + 1] & 0xFF));
+                        break;
+                    default:
+                        v = _getInt(buf, src);
+                }
+                switch (newWidth) {
+                    case 2:
+                        buf[dst] = (byte) (v >> 8);
+                        buf[dst + 1] = (byte) v;
+                        break;
+                    case 4:
+                        _putInt(buf, dst, (int) v);
+                        break;
+                    default:
+                        _putLong(buf, dst, v);
+                }
             }
-        } else if (checkTagStackIsNonnullAndIsPeekSpecifyType(ListBinaryTag.class)) {
-            ListBinaryTag s = (ListBinaryTag) tagStack.peek();
-            s.add(v);
+        }
+        _outputTail = start + count * newWidth;
+        _listElementTypes[depth] = newType;
+        if (_listTagTypes[depth] == TAG_LIST) {
+            buf[_listHeaderOffsets[depth]] = newType;
         } else {
-            rootTag = v;
+            final byte tagType = (newType == TAG_INT) ? TAG_INT_ARRAY : TAG_LONG_ARRAY;
+            buf[_listTypeOffsets[depth]] = tagType;
+            _listTagTypes[depth] = tagType;
+            if (newType == TAG_LONG) {
+                _listTypeOffsets[depth] = -1;
+            }
         }
     }
 
+    /*
+    /**********************************************************
+    /* Output method implementations, textual
+    /**********************************************************
+     */
+
     @Override
     public void writeString(String text) throws IOException {
-        _writeHelper(StringBinaryTag.of(text));
+        _verifyValueWrite(WRITE_STRING);
+        _writeTypeHeader(TAG_STRING);
+        _writeModifiedUTF(text);
     }
 
     @Override
@@ -108,14 +762,24 @@ public class NbtGenerator extends GeneratorBase {
         writeString(str);
     }
 
+    /**
+     * Same as {@link #writeUTF8String(byte[], int, int)}: NBT strings need no escaping.
+     */
     @Override
     public void writeRawUTF8String(byte[] text, int offset, int len) throws IOException {
-        _reportError("writeRawUTF8String not supported");
+        writeUTF8String(text, offset, len);
     }
 
+    /**
+     * Writes a string that is already encoded as UTF-8, converting it to modified UTF-8 in the
+     * output buffer without decoding it to a {@link String}.
+     */
     @Override
     public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
-        _reportError("writeUTF8String not supported");
+        _verifyOffsets(text.length, offset, length);
+        _verifyValueWrite(WRITE_STRING);
+        _writeTypeHeader(TAG_STRING);
+        _writeModifiedUTF(text, offset, length);
     }
 
     @Override
@@ -138,103 +802,720 @@ public class NbtGenerator extends GeneratorBase {
         _reportError("writeRaw not supported");
     }
 
+    /*
+    /**********************************************************
+    /* Output method implementations, binary and primitive
+    /**********************************************************
+     */
+
     @Override
     public void writeBinary(Base64Variant bv, byte[] data, int offset, int len) throws IOException {
-        byte[] newData = new byte[len];
-        for (int i = 0; i < len; i++) {
-            newData[i] = data[i + offset];
+        _verifyOffsets(data.length, offset, len);
+        _verifyValueWrite(WRITE_BINARY);
+        _writeTypeHeader(TAG_BYTE_ARRAY);
+        _writeInt(len);
+        _writeBytes(data, offset, len);
+    }
+
+    /**
+     * Writes the content of given stream as a {@code BYTE_ARRAY}. With a known length the
+     * content is read straight into the output buffer; otherwise it has to be read in full
+     * first, since the array is prefixed with its length.
+     */
+    @Override
+    public int writeBinary(Base64Variant bv, InputStream data, int dataLength) throws IOException {
+        if (dataLength < 0) {
+            final ByteArrayBuilder bytes = new ByteArrayBuilder();
+            try {
+                final byte[] chunk = _ioContext.allocBase64Buffer();
+                try {
+                    int count;
+                    while ((count = data.read(chunk)) > 0) {
+                        bytes.write(chunk, 0, count);
+                    }
+                } finally {
+                    _ioContext.releaseBase64Buffer(chunk);
+                }
+                final byte[] content = bytes.toByteArray();
+                writeBinary(bv, content, 0, content.length);
+                return content.length;
+            } finally {
+                bytes.release();
+            }
+        }
+        _verifyValueWrite(WRITE_BINARY);
+        _writeTypeHeader(TAG_BYTE_ARRAY);
+        _writeInt(dataLength);
+        int left = dataLength;
+        while (left > 0) {
+            _ensureRoom(1);
+            final int count = data.read(_outputBuffer, _outputTail, Math.min(left, _outputBuffer.length - _outputTail));
+            if (count < 0) {
+                _reportError(String.format("Too few bytes available: missing %d bytes (out of %d)",
+                        left, dataLength));
+            }
+            _outputTail += count;
+            left -= count;
+        }
+        return dataLength;
+    }
+
+    /**
+     * Writes an {@code INT_ARRAY} if {@link Feature#WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS} is enabled,
+     * a list of ints otherwise.
+     */
+    @Override
+    public void writeArray(int[] array, int offset, int length) throws IOException {
+        if (!Feature.WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS.enabledIn(_formatFeatures)) {
+            super.writeArray(array, offset, length);
+            return;
+        }
+        _verifyOffsets(array.length, offset, length);
+        _verifyValueWrite("write int array");
+        _writeTypeHeader(TAG_INT_ARRAY);
+        _writeInt(length);
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            _writeInt(array[i]);
+        }
+    }
+
+    /**
+     * Writes a {@code LONG_ARRAY} if {@link Feature#WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS} is enabled,
+     * a list of longs otherwise.
+     */
+    @Override
+    public void writeArray(long[] array, int offset, int length) throws IOException {
+        if (!Feature.WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS.enabledIn(_formatFeatures)) {
+            super.writeArray(array, offset, length);
+            return;
+        }
+        _verifyOffsets(array.length, offset, length);
+        _verifyValueWrite("write long array");
+        _writeTypeHeader(TAG_LONG_ARRAY);
+        _writeInt(length);
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            _writeLong(array[i]);
         }
-        ByteArrayBinaryTag result = ByteArrayBinaryTag.of(newData);
-        _writeHelper(result);
     }
 
     @Override
     public void writeNumber(int v) throws IOException {
-        _writeHelper(IntBinaryTag.of(v));
+        _verifyValueWrite(WRITE_NUMBER);
+        if (Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+            _writeCompactIntegral(v);
+            return;
+        }
+        _writeTypeHeader(TAG_INT);
+        _writeInt(v);
     }
 
     @Override
     public void writeNumber(long v) throws IOException {
-        _writeHelper(LongBinaryTag.of(v));
+        _verifyValueWrite(WRITE_NUMBER);
+        if (Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+            _writeCompactIntegral(v);
+            return;
+        }
+        _writeTypeHeader(TAG_LONG);
+        _writeLong(v);
     }
 
     @Override
     public void writeNumber(BigInteger v) throws IOException {
         // TODO improve
-        _writeHelper(LongBinaryTag.of(v.longValue()));
+        writeNumber(v.longValue());
     }
 
     @Override
     public void writeNumber(double v) throws IOException {
-        // TODO improve
-        _writeHelper(DoubleBinaryTag.of(v));
+        _verifyValueWrite(WRITE_NUMBER);
+        if (Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+            _writeCompactFloating(v);
+            return;
+        }
+        _writeTypeHeader(TAG_DOUBLE);
+        _writeLong(Double.doubleToRawLongBits(v));
     }
 
     @Override
     public void writeNumber(float v) throws IOException {
-        // TODO improve
-        _writeHelper(FloatBinaryTag.of(v));
+        _verifyValueWrite(WRITE_NUMBER);
+        if (Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+            _writeCompactFloating(v);
+            return;
+        }
+        _writeTypeHeader(TAG_FLOAT);
+        _writeInt(Float.floatToRawIntBits(v));
     }
 
     @Override
     public void writeNumber(BigDecimal v) throws IOException {
         // TODO improve
-        _writeHelper(DoubleBinaryTag.of(v.doubleValue()));
+        writeNumber(v.doubleValue());
     }
 
     @Override
     public void writeNumber(String encodedValue) throws IOException {
         // TODO improve
-        _writeHelper(StringBinaryTag.of(encodedValue));
+        writeString(encodedValue);
     }
 
     @Override
     public void writeBoolean(boolean state) throws IOException {
-        _writeHelper(ByteBinaryTag.of(state ? (byte) 1 : (byte) 0));
-
+        _verifyValueWrite(WRITE_BOOLEAN);
+        if (Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+            // as wide as the other elements, in a list of numbers
+            _writeCompactIntegral(state ? 1 : 0);
+            return;
+        }
+        _writeTypeHeader(TAG_BYTE);
+        _writeByte(state ? (byte) 1 : (byte) 0);
     }
 
     @Override
     public void writeNull() throws IOException {
-        if (checkTagStackIsNonnullAndIsPeekSpecifyType(CompoundTagWriter.class)) {
-            CompoundTagWriter s = (CompoundTagWriter) tagStack.peek();
-            if (s.isPendingFieldNameNull()) {
-                _reportError("No field name exists.");
-            } else {
-                s.cleanFieldName();
-            }
-        } else if (checkTagStackIsNonnullAndIsPeekSpecifyType(ListBinaryTag.class)) {
+        _verifyValueWrite(WRITE_NULL);
+        if (_writeContext.inObject()) {
+            // NBT has no null: the whole entry is left out
+            _outputTail = _pendingTypeOffset;
+            _pendingTypeOffset = -1;
+        } else if (_writeContext.inArray()) {
             _reportError("Null is not in list.");
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Output method implementations, raw NBT
+    /**********************************************************
+     */
+
+    /**
+     * Writes an already encoded value: the type id and name the current context needs, then
+     * the payload copied verbatim. The payload is not validated.
+     */
+    public void writeRawValue(RawNbtValue value) throws IOException {
+        _verifyValueWrite("write raw value");
+        _writeTypeHeader(value.getType());
+        _writeBytes(value.getData(), value.getOffset(), value.getLength());
+    }
+
+    /**
+     * Also accepts {@link RawNbtValue}s and adventure {@link BinaryTag}s, besides what
+     * {@link JsonGenerator#writeEmbeddedObject(Object)} accepts.
+     */
+    @Override
+    public void writeEmbeddedObject(Object object) throws IOException {
+        if (object instanceof RawNbtValue) {
+            writeRawValue((RawNbtValue) object);
+        } else if (object instanceof BinaryTag) {
+            writeTag((BinaryTag) object);
         } else {
-            rootTag = null;
+            super.writeEmbeddedObject(object);
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Output method implementations, adventure tags
+    /**********************************************************
+     */
+
+    /**
+     * Writes given tag as a value, straight from the tree instead of through one event per
+     * token. Every tag keeps its own type, whatever the {@link Feature}s; the payload of
+     * byte-backed views ({@link LazyBinaryTag}) is copied verbatim.
+     */
+    public void writeTag(BinaryTag tag) throws IOException {
+        _verifyValueWrite("write a tag");
+        final byte type = tag.type().id();
+        if (type == TAG_END) {
+            _reportError("Can not write an END tag as a value");
+        }
+        _writeTypeHeader(type);
+        _writeTagPayload(tag, type);
+    }
+
+    private void _writeTagPayload(BinaryTag tag, byte type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                _writeByte(((ByteBinaryTag) tag).value());
+                return;
+            case TAG_SHORT:
+                _writeShort(((ShortBinaryTag) tag).value());
+                return;
+            case TAG_INT:
+                _writeInt(((IntBinaryTag) tag).value());
+                return;
+            case TAG_LONG:
+                _writeLong(((LongBinaryTag) tag).value());
+                return;
+            case TAG_FLOAT:
+                _writeInt(Float.floatToRawIntBits(((FloatBinaryTag) tag).value()));
+                return;
+            case TAG_DOUBLE:
+                _writeLong(Double.doubleToRawLongBits(((DoubleBinaryTag) tag).value()));
+                return;
+            case TAG_STRING:
+                _writeModifiedUTF(((StringBinaryTag) tag).value());
+                return;
+            case TAG_BYTE_ARRAY: {
+                final byte[] array = ((ByteArrayBinaryTag) tag).value();
+                _writeInt(array.length);
+                _writeBytes(array, 0, array.length);
+                return;
+            }
+            case TAG_INT_ARRAY: {
+                final IntArrayBinaryTag array = (IntArrayBinaryTag) tag;
+                final int size = array.size();
+                _writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    _writeInt(array.get(i));
+                }
+                return;
+            }
+            case TAG_LONG_ARRAY: {
+                final LongArrayBinaryTag array = (LongArrayBinaryTag) tag;
+                final int size = array.size();
+                _writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    _writeLong(array.get(i));
+                }
+                return;
+            }
+            case TAG_LIST:
+                if (tag instanceof LazyBinaryTag) {
+                    _writeBytes(((LazyBinaryTag) tag).payload());
+                } else {
+                    _writeListPayload((ListBinaryTag) tag);
+                }
+                return;
+            case TAG_COMPOUND:
+                if (tag instanceof LazyBinaryTag) {
+                    _writeBytes(((LazyBinaryTag) tag).payload());
+                    return;
+                }
+                for (Map.Entry<String, ? extends BinaryTag> entry : (CompoundBinaryTag) tag) {
+                    final BinaryTag value = entry.getValue();
+                    final byte valueType = value.type().id();
+                    _writeByte(valueType);
+                    _writeModifiedUTF(entry.getKey());
+                    _writeTagPayload(value, valueType);
+                }
+                _writeByte(TAG_END);
+                return;
+            default:
+                _reportError("Can not write an END tag as a value");
+        }
+    }
+
+    private void _writeListPayload(ListBinaryTag list) throws IOException {
+        final int size = list.size();
+        final byte elementType = (size == 0) ? TAG_END : list.elementType().id();
+        _writeByte(elementType);
+        _writeInt(size);
+        // numbers through the typed getters, which primitive-backed lists answer without boxing
+        switch (elementType) {
+            case TAG_BYTE:
+                for (int i = 0; i < size; i++) {
+                    _writeByte(list.getByte(i));
+                }
+                return;
+            case TAG_SHORT:
+                for (int i = 0; i < size; i++) {
+                    _writeShort(list.getShort(i));
+                }
+                return;
+            case TAG_INT:
+                for (int i = 0; i < size; i++) {
+                    _writeInt(list.getInt(i));
+                }
+                return;
+            case TAG_LONG:
+                for (int i = 0; i < size; i++) {
+                    _writeLong(list.getLong(i));
+                }
+                return;
+            case TAG_FLOAT:
+                for (int i = 0; i < size; i++) {
+                    _writeInt(Float.floatToRawIntBits(list.getFloat(i)));
+                }
+                return;
+            case TAG_DOUBLE:
+                for (int i = 0; i < size; i++) {
+                    _writeLong(Double.doubleToRawLongBits(list.getDouble(i)));
+                }
+                return;
+            default:
+                for (BinaryTag element : list) {
+                    if (element.type().id() != elementType) {
+                        _reportError(String.format("NBT list elements must all have the same type: can not add tag of type %d to list of type %d",
+                                element.type().id(), elementType));
+                    }
+                    _writeTagPayload(element, elementType);
+                }
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Low-level output
+    /**********************************************************
+     */
+
+    private void _writeByte(byte b) throws IOException {
+        if (_outputTail >= _outputBuffer.length) {
+            _ensureRoom(1);
+        }
+        _outputBuffer[_outputTail++] = b;
+    }
+
+    private void _writeShort(short v) throws IOException {
+        _ensureRoom(2);
+        final byte[] buf = _outputBuffer;
+        buf[_outputTail++] = (byte) (v >> 8);
+        buf[_outputTail++] = (byte) v;
+    }
+
+    private void _writeInt(int v) throws IOException {
+        _ensureRoom(4);
+        _putInt(_outputBuffer, _outputTail, v);
+        _outputTail += 4;
+    }
+
+    private void _writeLong(long v) throws IOException {
+        _ensureRoom(8);
+        final byte[] buf = _outputBuffer;
+        _putInt(buf, _outputTail, (int) (v >> 32));
+        _putInt(buf, _outputTail + 4, (int) v);
+        _outputTail += 8;
+    }
+
+    private static void _putInt(byte[] buf, int offset, int v) {
+        buf[offset] = (byte) (v >> 24);
+        buf[offset + 1] = (byte) (v >> 16);
+        buf[offset + 2] = (byte) (v >> 8);
+        buf[offset + 3] = (byte) v;
+    }
+
+    private static void _putLong(byte[] buf, int offset, long v) {
+        _putInt(buf, offset, (int) (v >> 32));
+        _putInt(buf, offset + 4, (int) v);
+    }
+
+    private static int _getInt(byte[] buf, int offset) {
+        return (buf[offset] << 24) | ((buf[offset + 1] & 0xFF) << 16)
+                | ((buf[offset + 2] & 0xFF) << 8) | (buf[offset + 3] & 0xFF);
+    }
+
+    private void _writeBytes(byte[] data, int offset, int len) throws IOException {
+        if (len > _outputBuffer.length - _outputTail && len >= _outputBuffer.length) {
+            _flushBuffer();
+            if (_outputTail == 0) {
+                // nothing left to patch: large content goes straight to the target
+                _writeOut(data, offset, len);
+                return;
+            }
         }
+        while (true) {
+            int room = _outputBuffer.length - _outputTail;
+            if (len <= room) {
+                System.arraycopy(data, offset, _outputBuffer, _outputTail, len);
+                _outputTail += len;
+                return;
+            }
+            System.arraycopy(data, offset, _outputBuffer, _outputTail, room);
+            _outputTail += room;
+            offset += room;
+            len -= room;
+            _ensureRoom(len);
+        }
+    }
+
+    private void _writeBytes(ByteBuffer data) throws IOException {
+        while (true) {
+            int room = _outputBuffer.length - _outputTail;
+            int len = data.remaining();
+            if (len <= room) {
+                data.get(_outputBuffer, _outputTail, len);
+                _outputTail += len;
+                return;
+            }
+            data.get(_outputBuffer, _outputTail, room);
+            _outputTail += room;
+            _ensureRoom(len - room);
+        }
+    }
+
+    /**
+     * Writes a string in the modified UTF-8 encoding used by {@link java.io.DataOutput#writeUTF(String)},
+     * preceded by its encoded length.
+     */
+    private void _writeModifiedUTF(String str) throws IOException {
+        final int len = str.length();
+        int utfLen = len;
+        for (int i = 0; i < len; i++) {
+            final char c = str.charAt(i);
+            if (c >= 0x80 || c == 0) {
+                utfLen += (c >= 0x800) ? 2 : 1;
+            }
+        }
+        if (utfLen > MAX_STRING_BYTES) {
+            _reportError("String too long for NBT: " + utfLen + " bytes encoded, at most " + MAX_STRING_BYTES + " allowed");
+        }
+        _ensureRoom(2);
+        _outputBuffer[_outputTail++] = (byte) (utfLen >> 8);
+        _outputBuffer[_outputTail++] = (byte) utfLen;
+
+        int i = 0;
+        while (i < len) {
+            // every char takes at most 3 bytes
+            int room = (_outputBuffer.length - _outputTail) / 3;
+            if (room == 0) {
+                _ensureRoom(Math.min(3 * (len - i), _outputBuffer.length));
+                continue;
+            }
+            final int end = Math.min(len, i + room);
+            final byte[] buf = _outputBuffer;
+            int tail = _outputTail;
+            for (; i < end; i++) {
+                final char c = str.charAt(i);
+                if (c < 0x80 && c != 0) {
+                    buf[tail++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[tail++] = (byte) (0xC0 | (c >> 6));
+                    buf[tail++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    buf[tail++] = (byte) (0xE0 | (c >> 12));
+                    buf[tail++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[tail++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            _outputTail = tail;
+        }
+    }
+
+    /**
+     * Writes a string given as UTF-8 in the modified UTF-8 encoding, preceded by its encoded
+     * length. The two only differ for NUL, which takes two bytes, and for supplementary
+     * characters, which are written as two 3-byte surrogates instead of one 4-byte sequence.
+     */
+    private void _writeModifiedUTF(byte[] text, int offset, int len) throws IOException {
+        // modified UTF-8 is never shorter than UTF-8, and at most twice as long
+        if (len > MAX_STRING_BYTES) {
+            _reportError("String too long for NBT: at least " + len + " bytes encoded, at most " + MAX_STRING_BYTES + " allowed");
+        }
+        _ensureRoom(2 + 2 * len);
+        final byte[] buf = _outputBuffer;
+        final int start = _outputTail;
+        int tail = start + 2;
+        for (int i = offset, end = offset + len; i < end; ) {
+            final byte b = text[i++];
+            if (b > 0) {
+                buf[tail++] = b;
+            } else if (b == 0) {
+                buf[tail++] = (byte) 0xC0;
+                buf[tail++] = (byte) 0x80;
+            } else if ((b & 0xF8) == 0xF0) {
+                if (i + 3 > end) {
+                    _reportError("Invalid UTF-8: truncated 4-byte sequence");
+                }
+                final int c = ((b & 0x07) << 18) | ((text[i] & 0x3F) << 12)
+                        | ((text[i + 1] & 0x3F) << 6) | (text[i + 2] & 0x3F);
+                i += 3;
+                tail = _putSurrogate(buf, tail, Character.highSurrogate(c));
+                tail = _putSurrogate(buf, tail, Character.lowSurrogate(c));
+            } else {
+                // lead or continuation byte of a 2 or 3-byte sequence: the same in both encodings
+                buf[tail++] = b;
+            }
+        }
+        final int utfLen = tail - start - 2;
+        if (utfLen > MAX_STRING_BYTES) {
+            _reportError("String too long for NBT: " + utfLen + " bytes encoded, at most " + MAX_STRING_BYTES + " allowed");
+        }
+        buf[start] = (byte) (utfLen >> 8);
+        buf[start + 1] = (byte) utfLen;
+        _outputTail = tail;
     }
 
-    private boolean isFlushed = false;
+    private static int _putSurrogate(byte[] buf, int tail, char c) {
+        buf[tail] = (byte) (0xE0 | (c >> 12));
+        buf[tail + 1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buf[tail + 2] = (byte) (0x80 | (c & 0x3F));
+        return tail + 3;
+    }
+
+    /**
+     * Makes sure there is room for {@code needed} more bytes in the output buffer, by writing out
+     * what can be written, or by growing the buffer if open lists keep the content pinned.
+     */
+    private void _ensureRoom(int needed) throws IOException {
+        if (_outputTail + needed <= _outputBuffer.length) {
+            return;
+        }
+        _flushBuffer();
+        if (_outputTail + needed > _outputBuffer.length) {
+            int newSize = Math.max(_outputTail + needed, _outputBuffer.length << 1);
+            _outputBuffer = Arrays.copyOf(_outputBuffer, newSize);
+        }
+    }
+
+    /**
+     * Offset of the first byte that may still be backpatched: the header of the outermost open
+     * list whose header is incomplete, or the type id of a pending compound entry.
+     * Everything before it is final.
+     */
+    private int _pinnedOffset() {
+        int offset = _outputTail;
+        for (int i = 0; i < _listDepth; i++) {
+            final int declared = _listDeclaredSizes[i];
+            if (declared < 0 || (declared > 0 && _listSizes[i] == 0) || _mayWiden(i)) {
+                // a list that may still become a typed array also pins its tag type id
+                offset = (_listTypeOffsets[i] >= 0) ? _listTypeOffsets[i] : _listHeaderOffsets[i];
+                break;
+            }
+        }
+        if (_pendingTypeOffset >= 0 && _pendingTypeOffset < offset) {
+            offset = _pendingTypeOffset;
+        }
+        return offset;
+    }
+
+    /**
+     * Whether the elements of given open list may still be widened by
+     * {@link Feature#WRITE_COMPACT_NUMBERS}.
+     */
+    private boolean _mayWiden(int depth) {
+        if (_listSizes[depth] == 0 || !Feature.WRITE_COMPACT_NUMBERS.enabledIn(_formatFeatures)) {
+            return false;
+        }
+        final byte type = _listElementTypes[depth];
+        return type == TAG_BYTE || type == TAG_SHORT || type == TAG_INT || type == TAG_FLOAT;
+    }
+
+    /**
+     * Writes out all final content of the output buffer and moves the rest to its beginning.
+     */
+    private void _flushBuffer() throws IOException {
+        final int end = _pinnedOffset();
+        if (end == 0) {
+            return;
+        }
+        _writeOut(end);
+        final int remaining = _outputTail - end;
+        if (remaining > 0) {
+            System.arraycopy(_outputBuffer, end, _outputBuffer, 0, remaining);
+        }
+        _outputTail = remaining;
+        if (_pendingTypeOffset >= 0) {
+            _pendingTypeOffset -= end;
+        }
+        for (int i = 0; i < _listDepth; i++) {
+            _listHeaderOffsets[i] -= end;
+            if (_listTypeOffsets[i] >= 0) {
+                _listTypeOffsets[i] -= end;
+            }
+        }
+    }
+
+    /**
+     * Writes the first {@code len} bytes of the output buffer to the target, through a
+     * compressing stream if the schema asks for one.
+     */
+    private void _writeOut(int len) throws IOException {
+        _writeOut(_outputBuffer, 0, len);
+    }
+
+    private void _writeOut(byte[] data, int offset, int len) throws IOException {
+        if (!_outputStarted) {
+            _outputStarted = true;
+            if (_schema.getCompression() != NbtCompression.NONE) {
+                _out = new DeflatingOutputStream(_schema.getCompression(), _schema.getCompressionLevel(), _out);
+            }
+        }
+        _out.write(data, offset, len);
+    }
+
+    /*
+    /**********************************************************
+    /* Low-level output handling
+    /**********************************************************
+     */
 
     @Override
     public void flush() throws IOException {
-        if (isFlushed) return;
-        isFlushed = true;
+        _flushBuffer();
+        if (isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+            _out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        try {
+            _close();
+        } finally {
+            if (_pool != null) {
+                _pool.releaseGenerator(this);
+            }
+        }
+    }
 
-        if (!tagStack.empty()) {
-            _reportError("Can not flush");
-        } else if (rootTag != null) {
-            if (!CompoundBinaryTag.class.isAssignableFrom(rootTag.getClass())) {
-                CompoundBinaryTag tmp = CompoundBinaryTag.empty();
-                tmp.put("", rootTag);
+    private void _close() throws IOException {
+        if (_outputBuffer != null && isEnabled(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+            while (true) {
+                if (_writeContext.inArray()) {
+                    writeEndArray();
+                } else if (_writeContext.inObject()) {
+                    if (_pendingTypeOffset >= 0) {
+                        writeNull();
+                    }
+                    writeEndObject();
+                } else {
+                    break;
+                }
+            }
+        }
+        super.close();
+        try {
+            if (_outputBuffer != null && _outputTail > 0) {
+                _writeOut(_outputTail);
+                _outputTail = 0;
+            }
+            if (_out instanceof DeflatingOutputStream) {
+                ((DeflatingOutputStream) _out).finish();
+            }
+            if (_ioContext.isResourceManaged() || isEnabled(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                _out.close();
+            } else if (isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+                _out.flush();
+            }
+        } finally {
+            if (_out instanceof DeflatingOutputStream) {
+                ((DeflatingOutputStream) _out).release();
             }
-            BinaryTagIO.writer().write((CompoundBinaryTag) rootTag, writer);
+            _releaseBuffers();
         }
     }
 
     @Override
     protected void _releaseBuffers() {
-
+        byte[] buf = _recyclableBuffer;
+        if (buf != null) {
+            _recyclableBuffer = null;
+            _outputBuffer = null;
+            _ioContext.releaseWriteEncodingBuffer(buf);
+        }
     }
 
     @Override
     protected void _verifyValueWrite(String typeMsg) throws IOException {
-
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) {
+            _reportError("Can not " + typeMsg + ", expecting field name");
+        }
     }
 }
@@ -0,0 +1,61 @@
+package party.para.jackson.nbt;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Per-thread pool of closed {@link NbtParser}s and {@link NbtGenerator}s of a {@link NbtFactory},
+ * used when {@link NbtParser.Feature#REUSE_INSTANCES} or {@link NbtGenerator.Feature#REUSE_INSTANCES}
+ * is enabled.
+ * <p>
+ * Instances are recycled like {@link com.fasterxml.jackson.core.util.BufferRecyclers} recycles
+ * buffers: each thread keeps a softly referenced idle instance of each, which is handed out
+ * again (and reset) by the next call to create one on that thread. An instance gives itself
+ * back when it is closed.
+ */
+final class NbtInstancePool {
+    private final ThreadLocal<SoftReference<Idle>> _idle = new ThreadLocal<>();
+
+    private static final class Idle {
+        NbtParser parser;
+
+        NbtGenerator generator;
+    }
+
+    private Idle _idle() {
+        SoftReference<Idle> ref = _idle.get();
+        Idle idle = (ref == null) ? null : ref.get();
+        if (idle == null) {
+            idle = new Idle();
+            _idle.set(new SoftReference<>(idle));
+        }
+        return idle;
+    }
+
+    /**
+     * @return idle parser of this thread, or null if there is none
+     */
+    NbtParser acquireParser() {
+        Idle idle = _idle();
+        NbtParser parser = idle.parser;
+        idle.parser = null;
+        return parser;
+    }
+
+    void releaseParser(NbtParser parser) {
+        _idle().parser = parser;
+    }
+
+    /**
+     * @return idle generator of this thread, or null if there is none
+     */
+    NbtGenerator acquireGenerator() {
+        Idle idle = _idle();
+        NbtGenerator generator = idle.generator;
+        idle.generator = null;
+        return generator;
+    }
+
+    void releaseGenerator(NbtGenerator generator) {
+        _idle().generator = generator;
+    }
+}
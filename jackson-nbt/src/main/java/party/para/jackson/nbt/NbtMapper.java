@@ -1,7 +1,19 @@
 package party.para.jackson.nbt;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import net.kyori.adventure.nbt.BinaryTag;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * {@link ObjectMapper} but only NBT supported.
@@ -9,8 +21,59 @@ import com.fasterxml.jackson.databind.cfg.MapperBuilder;
 public class NbtMapper extends ObjectMapper {
     public static class Builder extends MapperBuilder<NbtMapper, Builder>
     {
+        protected final NbtFactory _streamFactory;
+
         protected Builder(NbtMapper mapper) {
             super(mapper);
+            _streamFactory = mapper.getFactory();
+        }
+
+        public Builder enable(NbtParser.Feature... features) {
+            for (NbtParser.Feature f : features) {
+                _streamFactory.enable(f);
+            }
+            return this;
+        }
+
+        public Builder disable(NbtParser.Feature... features) {
+            for (NbtParser.Feature f : features) {
+                _streamFactory.disable(f);
+            }
+            return this;
+        }
+
+        public Builder configure(NbtParser.Feature f, boolean state) {
+            _streamFactory.configure(f, state);
+            return this;
+        }
+
+        public Builder enable(NbtGenerator.Feature... features) {
+            for (NbtGenerator.Feature f : features) {
+                _streamFactory.enable(f);
+            }
+            return this;
+        }
+
+        public Builder disable(NbtGenerator.Feature... features) {
+            for (NbtGenerator.Feature f : features) {
+                _streamFactory.disable(f);
+            }
+            return this;
+        }
+
+        public Builder configure(NbtGenerator.Feature f, boolean state) {
+            _streamFactory.configure(f, state);
+            return this;
+        }
+
+        public Builder outputCompression(NbtCompression compression) {
+            _streamFactory.setOutputCompression(compression);
+            return this;
+        }
+
+        public Builder compressionLevel(int level) {
+            _streamFactory.setCompressionLevel(level);
+            return this;
         }
     }
 
@@ -22,6 +85,7 @@ public class NbtMapper extends ObjectMapper {
     public NbtMapper(NbtFactory s)
     {
         super(s);
+        registerModule(new NbtModule());
     }
 
     public NbtMapper(NbtMapper src)
@@ -29,6 +93,14 @@ public class NbtMapper extends ObjectMapper {
         super(src);
     }
 
+    public static Builder builder() {
+        return new Builder(new NbtMapper());
+    }
+
+    public static Builder builder(NbtFactory streamFactory) {
+        return new Builder(new NbtMapper(streamFactory));
+    }
+
     @Override
     public NbtMapper copy()
     {
@@ -40,4 +112,93 @@ public class NbtMapper extends ObjectMapper {
     public NbtFactory getFactory() {
         return (NbtFactory) _jsonFactory;
     }
+
+    /*
+    /**********************************************************
+    /* Adventure tags
+    /**********************************************************
+     */
+
+    /**
+     * Reads a NBT document as an adventure tag tree, keeping the NBT type of every tag.
+     * The tree is built straight from the tokens, see {@link party.para.jackson.nbt.deser.BinaryTagDeserializer}.
+     *
+     * @return root tag, or null if the input is empty
+     */
+    public BinaryTag readTag(byte[] src) throws IOException {
+        return readValue(src, BinaryTag.class);
+    }
+
+    public BinaryTag readTag(InputStream src) throws IOException {
+        return readValue(src, BinaryTag.class);
+    }
+
+    public BinaryTag readTag(File src) throws IOException {
+        return readValue(src, BinaryTag.class);
+    }
+
+    /**
+     * Writes an adventure tag tree as a NBT document, straight from the tree.
+     *
+     * @see NbtGenerator#writeTag(BinaryTag)
+     */
+    public byte[] writeTag(BinaryTag tag) throws IOException {
+        return writeValueAsBytes(tag);
+    }
+
+    public void writeTag(OutputStream out, BinaryTag tag) throws IOException {
+        writeValue(out, tag);
+    }
+
+    public void writeTag(File out, BinaryTag tag) throws IOException {
+        writeValue(out, tag);
+    }
+
+    /*
+    /**********************************************************
+    /* Path projection
+    /**********************************************************
+     */
+
+    /**
+     * Reads the values at given paths out of a NBT document in a single pass.
+     * <p>
+     * Subtrees that do not lead to one of the paths are skipped without being decoded,
+     * and reading stops once every path has been found, so the cost depends on the part of
+     * the document actually visited rather than on its size.
+     *
+     * @return values found, by path; paths that do not exist in the document are left out
+     */
+    public Map<JsonPointer, JsonNode> readPaths(byte[] src, Collection<JsonPointer> paths) throws IOException {
+        try (JsonParser p = createParser(src)) {
+            return readPaths(p, paths);
+        }
+    }
+
+    public Map<JsonPointer, JsonNode> readPaths(byte[] src, JsonPointer... paths) throws IOException {
+        return readPaths(src, Arrays.asList(paths));
+    }
+
+    public Map<JsonPointer, JsonNode> readPaths(InputStream src, Collection<JsonPointer> paths) throws IOException {
+        try (JsonParser p = createParser(src)) {
+            return readPaths(p, paths);
+        }
+    }
+
+    public Map<JsonPointer, JsonNode> readPaths(File src, Collection<JsonPointer> paths) throws IOException {
+        try (JsonParser p = createParser(src)) {
+            return readPaths(p, paths);
+        }
+    }
+
+    /**
+     * Reads the values at given paths out of the next value of given parser.
+     * Paths are relative to that value.
+     */
+    public Map<JsonPointer, JsonNode> readPaths(JsonParser p, Collection<JsonPointer> paths) throws IOException {
+        if (p.currentToken() == null) {
+            p.nextToken();
+        }
+        return NbtPathProjection.project(p, paths);
+    }
 }
@@ -0,0 +1,44 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import net.kyori.adventure.nbt.*;
+import party.para.jackson.nbt.deser.BinaryTagDeserializer;
+import party.para.jackson.nbt.deser.TypedArrayDeserializer;
+import party.para.jackson.nbt.ser.BinaryTagSerializer;
+
+/**
+ * Databind support for NBT specific value representations.
+ * <p>
+ * Also (de)serializes adventure {@link BinaryTag}s, see {@link BinaryTagSerializer} and
+ * {@link BinaryTagDeserializer}.
+ * <p>
+ * Registered by default by {@link NbtMapper}.
+ */
+public class NbtModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public NbtModule() {
+        super("NbtModule");
+        addDeserializer(int[].class, new TypedArrayDeserializer.IntArrayDeserializer());
+        addDeserializer(long[].class, new TypedArrayDeserializer.LongArrayDeserializer());
+
+        addSerializer(BinaryTag.class, new BinaryTagSerializer());
+        addTagDeserializer(BinaryTag.class);
+        addTagDeserializer(CompoundBinaryTag.class);
+        addTagDeserializer(ListBinaryTag.class);
+        addTagDeserializer(ByteBinaryTag.class);
+        addTagDeserializer(ShortBinaryTag.class);
+        addTagDeserializer(IntBinaryTag.class);
+        addTagDeserializer(LongBinaryTag.class);
+        addTagDeserializer(FloatBinaryTag.class);
+        addTagDeserializer(DoubleBinaryTag.class);
+        addTagDeserializer(StringBinaryTag.class);
+        addTagDeserializer(ByteArrayBinaryTag.class);
+        addTagDeserializer(IntArrayBinaryTag.class);
+        addTagDeserializer(LongArrayBinaryTag.class);
+    }
+
+    private <T extends BinaryTag> void addTagDeserializer(Class<T> tagType) {
+        addDeserializer(tagType, new BinaryTagDeserializer<>(tagType));
+    }
+}
@@ -0,0 +1,52 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.SerializableString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of field names in their NBT encoding: modified UTF-8 preceded by its length.
+ * <p>
+ * Shared by the generators of a {@link NbtFactory}, so that the names of bean properties,
+ * which databind hands over as {@link SerializableString}s, are encoded once and then written
+ * as a byte copy. Like the symbol tables of the parser, the cache is bounded: it is simply
+ * cleared when full.
+ */
+public final class NbtNameCache {
+    static final int MAX_ENTRIES = 1000;
+
+    private final ConcurrentHashMap<String, byte[]> _names = new ConcurrentHashMap<>(64, 0.75f, 4);
+
+    /**
+     * @return encoded name, or null if it is too long to be a NBT name
+     */
+    public byte[] encoded(SerializableString name) {
+        final String key = name.getValue();
+        byte[] encoded = _names.get(key);
+        if (encoded == null) {
+            encoded = _encode(key);
+            if (encoded != null) {
+                if (_names.size() >= MAX_ENTRIES) {
+                    _names.clear();
+                }
+                _names.put(key, encoded);
+            }
+        }
+        return encoded;
+    }
+
+    private static byte[] _encode(String name) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(name.length() + 2);
+        try {
+            // exactly the NBT encoding of strings
+            new DataOutputStream(bytes).writeUTF(name);
+        } catch (IOException e) {
+            // UTFDataFormatException: too long
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -3,444 +3,1106 @@ package party.para.jackson.nbt;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.base.ParserMinimalBase;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
 import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.core.util.TextBuffer;
-import net.kyori.adventure.nbt.BinaryTagType;
-import net.kyori.adventure.nbt.BinaryTagTypes;
+import party.para.jackson.nbt.compress.InflatingInputStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.util.ArrayDeque;
-import java.util.Stack;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static party.para.jackson.nbt.NbtConstants.*;
 
 /**
  * NBT Parser
  * <p>
  * Parser a NBT data from NBT stream.
+ * <p>
+ * The parser is a pull state machine: every call to {@link #nextToken()} decodes exactly one
+ * token straight from the input buffer. Scalar values are kept in primitive fields, and elements
+ * of lists and typed arrays are decoded one at a time, so no intermediate objects are created
+ * for numeric content.
+ * <p>
+ * Every root value is a named tag: a type id, a (usually empty) name and the payload.
+ * Root values are read until the end of the input, so that concatenated documents, such as
+ * records appended to a log, are read as a sequence of values with
+ * {@link com.fasterxml.jackson.databind.ObjectReader#readValues(InputStream)}; only one document
+ * is held at a time.
  */
 public class NbtParser extends ParserMinimalBase {
-    private final IOContext _ioContext;
-    private ObjectCodec _objectCodec;
-    private final TextBuffer _textBuffer;
-
-    private final ByteArrayInputStream inputStream;
-    private final DataInputStream dataInputStream;
-    private final int _totalByte;
-
-    private final ArrayDeque<JsonToken> tokenQueue = new ArrayDeque<JsonToken>();
-    private final ArrayDeque<Object> valueQueue = new ArrayDeque<Object>();
-    private Object nowValue = null;
-
-    private final Stack<State> stateStack = new Stack<State>();
-
-    static class State {
-        final byte type;
-        final int length;
-        int nowIndex = 0;
-        final byte containsType;
-
-        State(BinaryTagType<?> type) {
-            this.type = type.id();
-            this.length = 0;
-            this.containsType = (byte) 0;
+    /**
+     * Enumeration that defines all togglable features for NBT parsers.
+     */
+    public enum Feature implements FormatFeature {
+        /**
+         * Feature that determines how {@code BYTE_ARRAY}, {@code INT_ARRAY} and {@code LONG_ARRAY}
+         * tags are exposed. When enabled, each of them is read in bulk and reported as a single
+         * {@link JsonToken#VALUE_EMBEDDED_OBJECT} whose value ({@link #getEmbeddedObject()}) is a
+         * {@code byte[]}, {@code int[]} or {@code long[]}; byte arrays are also available through
+         * {@link #getBinaryValue(Base64Variant)}.
+         * When disabled, they are exposed like lists: {@code START_ARRAY}, one number token per
+         * element and {@code END_ARRAY}.
+         * <p>
+         * Feature is disabled by default, since not every target type accepts embedded values.
+         */
+        READ_TYPED_ARRAYS_AS_EMBEDDED_OBJECTS(false),
+
+        /**
+         * Feature that determines whether GZIP and zlib compressed input is detected from its
+         * magic bytes and decompressed transparently. Detection happens when the parser is
+         * created, so this is only effective when configured on the {@link NbtFactory}.
+         * <p>
+         * Feature is enabled by default: the magic bytes can not start uncompressed NBT.
+         */
+        DETECT_COMPRESSION(true),
+
+        /**
+         * Feature that determines whether {@link NbtFactory} reuses parsers: a parser that has
+         * been closed is kept by the thread that closed it, and is reset (see
+         * {@link NbtParser#reset(InputStream)}) for the next document that thread reads, instead
+         * of setting up a new parser. This saves most of the allocation of a parser when reading
+         * many small documents. Non-blocking parsers are not reused.
+         * <p>
+         * A parser must then not be used at all once it has been closed, not even closed again,
+         * since it may be reading another document by then; {@code ObjectMapper} and
+         * {@code ObjectReader} never do. Like {@link #DETECT_COMPRESSION}, this is only effective
+         * when configured on the {@link NbtFactory}.
+         * <p>
+         * Feature is disabled by default.
+         */
+        REUSE_INSTANCES(false);
+
+        final boolean _defaultState;
+        final int _mask;
+
+        /**
+         * Method that calculates bit set (flags) of all features that
+         * are enabled by default.
+         */
+        public static int collectDefaults() {
+            int flags = 0;
+            for (Feature f : values()) {
+                if (f.enabledByDefault()) {
+                    flags |= f.getMask();
+                }
+            }
+            return flags;
         }
 
-        State(BinaryTagType<?> type, int length) {
-            this.type = type.id();
-            this.length = length;
-            this.containsType = (byte) 0;
+        Feature(boolean defaultState) {
+            _defaultState = defaultState;
+            _mask = (1 << ordinal());
         }
 
-        State(BinaryTagType<?> type, int length, byte containsType) {
-            this.type = type.id();
-            this.length = length;
-            this.containsType = containsType;
+        @Override
+        public boolean enabledByDefault() {
+            return _defaultState;
         }
 
-        static State MAP() {
-            return new State(BinaryTagTypes.COMPOUND);
+        @Override
+        public int getMask() {
+            return _mask;
         }
 
-        static State LIST(int length, byte containsType) {
-            return new State(BinaryTagTypes.LIST, length, containsType);
+        @Override
+        public boolean enabledIn(int flags) {
+            return (flags & _mask) != 0;
         }
+    }
 
-        static State LIST_BYTE(int length) {
-            return new State(BinaryTagTypes.BYTE_ARRAY, length);
-        }
+    /**
+     * Marker for "no value header pending" in {@link #_pendingType}.
+     */
+    private static final int NO_PENDING_TYPE = -1;
 
-        static State LIST_INT(int length) {
-            return new State(BinaryTagTypes.INT_ARRAY, length);
-        }
+    private IOContext _ioContext;
+    private ObjectCodec _objectCodec;
 
-        static State LONG_ARRAY(int length) {
-            return new State(BinaryTagTypes.LONG_ARRAY, length);
-        }
-    }
+    /**
+     * Bit flag composed of bits that indicate which
+     * {@link NbtParser.Feature}s are enabled.
+     */
+    private int _formatFeatures;
+    private TextBuffer _textBuffer;
+
+    /**
+     * Input stream that can be used for reading more content, if one
+     * in use. May be null, if input comes just as a full buffer.
+     */
+    private InputStream _inputStream;
+
+    /**
+     * Buffer that content is read from, if input comes from a (possibly direct or memory-mapped)
+     * {@link ByteBuffer}. Its content is copied window by window into {@link #_inputBuffer},
+     * and skipped content is never touched.
+     */
+    private ByteBuffer _inputSource;
+
+    /**
+     * Current buffer from which data is read; generally data is read into
+     * buffer from input source, but in some cases pre-loaded buffer
+     * is handed to the parser.
+     */
+    protected byte[] _inputBuffer;
+
+    /**
+     * Pointer to next available byte in {@link #_inputBuffer}.
+     */
+    protected int _inputPtr;
+
+    /**
+     * Index of character after last available one in the buffer.
+     */
+    protected int _inputEnd;
+
+    /**
+     * Number of bytes that were contained in previous blocks
+     * (blocks that were already processed prior to the current buffer).
+     */
+    protected long _currInputProcessed;
+
+    /**
+     * Input offset at the start of the current token.
+     */
+    private long _tokenInputTotal;
+
+    /**
+     * Flag that indicates whether the input buffer is recycable (and
+     * needs to be returned to recycler once we are done) or not.
+     */
+    private boolean _bufferRecyclable;
+
+    private boolean _closed;
+
+    private NbtReadContext _parsingContext;
+
+    /**
+     * Symbol table that contains tag names encountered so far, keyed on their encoded bytes;
+     * a child of the table of the {@link NbtFactory}, merged back on close.
+     */
+    private final ByteQuadsCanonicalizer _symbols;
+
+    private final boolean _canonicalizeNames;
+
+    /**
+     * Temporary buffer used to pack the encoded bytes of long tag names into quads.
+     */
+    private int[] _quadBuffer = new int[16];
+
+    /**
+     * Tag type of a value whose header (type id and name) has been read but whose payload
+     * has not been decoded yet; {@link #NO_PENDING_TYPE} if there is none.
+     */
+    private int _pendingType = NO_PENDING_TYPE;
+
+    /**
+     * Tag type of the current scalar value.
+     */
+    private byte _valueType;
+
+    /**
+     * Value of current BYTE, SHORT or INT token.
+     */
+    private int _numberInt;
+
+    /**
+     * Value of current LONG token.
+     */
+    private long _numberLong;
+
+    /**
+     * Value of current FLOAT or DOUBLE token.
+     */
+    private double _numberDouble;
+
+    /**
+     * Whether the bytes of the current STRING token are still in the input buffer, undecoded.
+     * They are decoded into {@link #_textBuffer} on first access, or skipped by the next
+     * call to {@link #nextToken()}.
+     */
+    private boolean _tokenIncomplete;
+
+    /**
+     * Encoded length of the current STRING token, in bytes.
+     */
+    private int _stringLength;
+
+    /**
+     * Temporary buffer that tag names are decoded into before becoming Strings; recycled
+     * through the {@link IOContext}, allocated on first use.
+     */
+    private char[] _nameCopyBuffer;
+
+    /**
+     * Builder for binary values decoded from base64 text, kept for reuse.
+     */
+    private ByteArrayBuilder _byteArrayBuilder;
+
+    /**
+     * Value of current VALUE_EMBEDDED_OBJECT token: a {@code byte[]}, {@code int[]} or {@code long[]}.
+     */
+    private Object _embeddedValue;
+
+    /**
+     * Pool that the parser gives itself back to when closed, if reused by {@link NbtFactory}.
+     */
+    NbtInstancePool _pool;
 
-    private void pushState(State t) {
-        stateStack.push(t);
-    }
-
-    private void popState() {
-        stateStack.pop();
+    public NbtParser(IOContext ctxt, int parserFeatures,
+                     ObjectCodec codec,
+                     byte[] inputBuffer, int start, int end) throws IOException {
+        this(ctxt, parserFeatures, Feature.collectDefaults(), codec, null, null, inputBuffer, start, end, false);
     }
 
-    private State topState() {
-        return stateStack.peek();
+    public NbtParser(IOContext ctxt, int parserFeatures, int formatFeatures,
+                     ObjectCodec codec, ByteQuadsCanonicalizer sym, InputStream in,
+                     byte[] inputBuffer, int start, int end,
+                     boolean bufferRecyclable) {
+        this(ctxt, parserFeatures, formatFeatures, codec, sym, in, null, inputBuffer, start, end, bufferRecyclable);
     }
 
-    private boolean hasState() {
-        return !stateStack.isEmpty();
+    /**
+     * Creates a parser that reads the remaining content of given buffer, from its position to
+     * its limit. The buffer itself is left untouched.
+     */
+    public NbtParser(IOContext ctxt, int parserFeatures, int formatFeatures,
+                     ObjectCodec codec, ByteQuadsCanonicalizer sym, ByteBuffer src,
+                     byte[] inputBuffer, boolean bufferRecyclable) {
+        this(ctxt, parserFeatures, formatFeatures, codec, sym, null, src.duplicate(), inputBuffer, 0, 0, bufferRecyclable);
     }
 
-    public NbtParser(IOContext ctxt, int parserFeatures,
-                     ObjectCodec codec,
-                     byte[] inputBuffer, int start, int end) throws IOException {
+    NbtParser(IOContext ctxt, int parserFeatures, int formatFeatures,
+              ObjectCodec codec, ByteQuadsCanonicalizer sym, InputStream in, ByteBuffer src,
+              byte[] inputBuffer, int start, int end,
+              boolean bufferRecyclable) {
         super(parserFeatures);
         _ioContext = ctxt;
         _objectCodec = codec;
+        _formatFeatures = formatFeatures;
+        _symbols = sym;
+        _canonicalizeNames = (sym != null) && sym.isCanonicalizing();
         _textBuffer = ctxt.constructTextBuffer();
+        _initInput(in, src, inputBuffer, start, end, bufferRecyclable);
+        _parsingContext = NbtReadContext.createRootContext();
+    }
 
+    private void _initInput(InputStream in, ByteBuffer src, byte[] inputBuffer, int start, int end,
+                            boolean bufferRecyclable) {
         // include start, exclude end
-        inputStream = new ByteArrayInputStream(inputBuffer, start, end - start);
-        dataInputStream = new DataInputStream(inputStream);
-        _totalByte = end - start;
+        _inputStream = in;
+        _inputSource = src;
+        _inputBuffer = inputBuffer;
+        _inputPtr = start;
+        _inputEnd = end;
+        _currInputProcessed = -start;
+        _bufferRecyclable = bufferRecyclable;
+    }
 
+    /*
+    /**********************************************************
+    /* Reuse
+    /**********************************************************
+     */
+
+    /**
+     * Closes the current input, as {@link #close()} does, and makes the parser read another
+     * document from given bytes. Reading many small documents with one parser saves setting
+     * up a new parser (and its buffers and contexts) for each.
+     * <p>
+     * The content is read as is: compressed input is only detected when the parser is created
+     * by {@link NbtFactory}.
+     */
+    public void reset(byte[] data, int offset, int len) throws IOException {
+        if (!_closed) {
+            _close();
+        }
+        _reset(_ioContext, _features, _formatFeatures, _objectCodec, null, null, data, offset, offset + len, false);
+    }
 
-        if (inputBuffer[0] == BinaryTagTypes.COMPOUND.id()) {
-            dataInputStream.readByte(); // 读掉 0x0A
-            String key = dataInputStream.readUTF();  // 读掉第一层键-
+    /**
+     * Closes the current input, as {@link #close()} does, and makes the parser read another
+     * document from given stream; see {@link #reset(byte[], int, int)}.
+     */
+    public void reset(InputStream in) throws IOException {
+        if (!_closed) {
+            _close();
+        }
+        _reset(_ioContext, _features, _formatFeatures, _objectCodec, in, null, _ioContext.allocReadIOBuffer(), 0, 0, true);
+    }
 
-            tokenQueue.addLast(JsonToken.START_OBJECT);
-            valueQueue.addLast(key);
-            pushState(State.MAP());
-        } else if (inputBuffer[0] == BinaryTagTypes.LIST.id()) {
-            byte containsType = dataInputStream.readByte();
-            int length = dataInputStream.readInt();
-            tokenQueue.addLast(JsonToken.START_ARRAY);
-            valueQueue.addLast("[");
-            pushState(State.LIST(length, containsType));
-        } else if (inputBuffer[0] == BinaryTagTypes.BYTE_ARRAY.id()) {
-            dataInputStream.readByte();
-            int length = dataInputStream.readInt();
+    /**
+     * Resets a closed parser for a new input, with the settings a new parser would get.
+     */
+    void _reset(IOContext ctxt, int parserFeatures, int formatFeatures, ObjectCodec codec,
+                InputStream in, ByteBuffer src, byte[] inputBuffer, int start, int end,
+                boolean bufferRecyclable) {
+        if (ctxt != _ioContext) {
+            _ioContext = ctxt;
+            _textBuffer = ctxt.constructTextBuffer();
+        }
+        _features = parserFeatures;
+        _formatFeatures = formatFeatures;
+        _objectCodec = codec;
+        _initInput(in, src, inputBuffer, start, end, bufferRecyclable);
+        _parsingContext = _parsingContext.resetRoot();
+        _currToken = null;
+        _lastClearedToken = null;
+        _tokenInputTotal = 0L;
+        _pendingType = NO_PENDING_TYPE;
+        _tokenIncomplete = false;
+        _embeddedValue = null;
+        _closed = false;
+    }
 
-            for (int i = 0; i < length; i++) {
-                tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                valueQueue.add(dataInputStream.readByte());
+    /*
+    /**********************************************************
+    /* Low-level reading
+    /**********************************************************
+     */
+
+    /**
+     * Makes sure that at least {@code minAvailable} bytes are available in the input buffer,
+     * reading more content from the input stream if necessary.
+     * Unread content is moved to the beginning of the buffer first, so the buffer only grows
+     * beyond its recycled size if a single value needs more contiguous bytes than it holds.
+     *
+     * @return false if the input ends before enough bytes are available
+     */
+    private boolean _loadToHaveAtLeast(int minAvailable) throws IOException {
+        if (_inputEnd - _inputPtr >= minAvailable) {
+            return true;
+        }
+        if (_inputStream == null && _inputSource == null) {
+            return false;
+        }
+        int amount = _inputEnd - _inputPtr;
+        if (amount > 0 && _inputPtr > 0) {
+            System.arraycopy(_inputBuffer, _inputPtr, _inputBuffer, 0, amount);
+        }
+        _currInputProcessed += _inputPtr;
+        _inputPtr = 0;
+        _inputEnd = amount;
+        if (minAvailable > _inputBuffer.length) {
+            _inputBuffer = Arrays.copyOf(_inputBuffer, minAvailable);
+        }
+        if (_inputSource != null) {
+            int count = Math.min(_inputSource.remaining(), _inputBuffer.length - _inputEnd);
+            _inputSource.get(_inputBuffer, _inputEnd, count);
+            _inputEnd += count;
+            return _inputEnd >= minAvailable;
+        }
+        while (_inputEnd < minAvailable) {
+            int count = _inputStream.read(_inputBuffer, _inputEnd, _inputBuffer.length - _inputEnd);
+            if (count < 0) {
+                return false;
             }
+            _inputEnd += count;
+        }
+        return true;
+    }
+
+    private int _getUShort(int ptr) {
+        final byte[] buf = _inputBuffer;
+        return ((buf[ptr] & 0xFF) << 8) | (buf[ptr + 1] & 0xFF);
+    }
 
-//            tokenQueue.addLast(JsonToken.START_ARRAY);
-//            pushState(State.LIST_BYTE);
-        } else if (inputBuffer[0] == BinaryTagTypes.INT_ARRAY.id()) {
-            dataInputStream.readByte();
-            int length = dataInputStream.readInt();
+    private int _getInt(int ptr) {
+        final byte[] buf = _inputBuffer;
+        return (buf[ptr] << 24) | ((buf[ptr + 1] & 0xFF) << 16)
+                | ((buf[ptr + 2] & 0xFF) << 8) | (buf[ptr + 3] & 0xFF);
+    }
+
+    private long _getLong(int ptr) {
+        long hi = _getInt(ptr);
+        long lo = _getInt(ptr + 4);
+        return (hi << 32) | (lo & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Decodes a tag name of {@code len} bytes starting at the current input pointer.
+     * Caller must have made sure the bytes are loaded.
+     */
+    private String _decodeUTF(int len) throws IOException {
+        char[] chars = _nameCopyBuffer;
+        if (chars == null) {
+            _nameCopyBuffer = chars = _ioContext.allocNameCopyBuffer(len);
+        } else if (chars.length < len) {
+            // the larger buffer replaces the recycled one when released
+            _nameCopyBuffer = chars = new char[Math.max(len, chars.length << 1)];
+        }
+        final int count = _decodeModifiedUTF(_inputBuffer, _inputPtr, _inputPtr + len, chars);
+        _inputPtr += len;
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Decodes the current STRING token into the {@link TextBuffer}, the first time its
+     * content is accessed.
+     */
+    private void _finishString() throws IOException {
+        _tokenIncomplete = false;
+        final int len = _stringLength;
+        char[] chars = _textBuffer.emptyAndGetCurrentSegment();
+        if (chars.length < len) {
+            chars = _textBuffer.expandCurrentSegment(len);
+        }
+        final int count = _decodeModifiedUTF(_inputBuffer, _inputPtr, _inputPtr + len, chars);
+        _inputPtr += len;
+        _textBuffer.setCurrentLength(count);
+    }
 
-            for (int i = 0; i < length; i++) {
-                tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                valueQueue.add(dataInputStream.readInt());
+    /**
+     * Decodes modified UTF-8 (the encoding of {@link java.io.DataInput#readUTF()}) from
+     * {@code buf[ptr..end)} into {@code out}, which must hold at least {@code end - ptr} chars.
+     *
+     * @return number of chars decoded
+     */
+    private int _decodeModifiedUTF(byte[] buf, int ptr, int end, char[] out) throws IOException {
+        int outPtr = 0;
+        // fast path: plain ASCII, one char per byte
+        while (ptr < end) {
+            final byte b = buf[ptr];
+            if (b < 0) {
+                break;
             }
+            out[outPtr++] = (char) b;
+            ++ptr;
+        }
+        while (ptr < end) {
+            int c = buf[ptr++] & 0xFF;
+            if (c < 0x80) {
+                out[outPtr++] = (char) c;
+            } else if ((c & 0xE0) == 0xC0) {
+                if (ptr >= end) {
+                    _reportError("Malformed modified UTF-8 string: truncated 2-byte sequence");
+                }
+                out[outPtr++] = (char) (((c & 0x1F) << 6) | (buf[ptr++] & 0x3F));
+            } else if ((c & 0xF0) == 0xE0) {
+                if (ptr + 1 >= end) {
+                    _reportError("Malformed modified UTF-8 string: truncated 3-byte sequence");
+                }
+                out[outPtr++] = (char) (((c & 0x0F) << 12) | ((buf[ptr] & 0x3F) << 6) | (buf[ptr + 1] & 0x3F));
+                ptr += 2;
+            } else {
+                _reportError("Malformed modified UTF-8 string: invalid byte 0x" + Integer.toHexString(c));
+            }
+        }
+        return outPtr;
+    }
 
-//            tokenQueue.addLast(JsonToken.START_ARRAY);
-//            pushState(State.LIST_INT);
-        } else if (inputBuffer[0] == BinaryTagTypes.LONG_ARRAY.id()) {
-            dataInputStream.readByte();
-            int length = dataInputStream.readInt();
+    /**
+     * Reads {@code length} bytes into a new array. The content is copied buffer by buffer,
+     * and the result only grows as content actually arrives, so a bogus length cannot make
+     * the parser allocate more than the input holds.
+     */
+    private byte[] _readByteArray(int length) throws IOException {
+        byte[] result = new byte[_initialArraySize(length, 1)];
+        int i = 0;
+        while (i < length) {
+            if (!_loadToHaveAtLeast(1)) {
+                _eofInContent();
+            }
+            int count = Math.min(_inputEnd - _inputPtr, length - i);
+            if (i + count > result.length) {
+                result = Arrays.copyOf(result, _grownArraySize(result.length, i + count, length));
+            }
+            System.arraycopy(_inputBuffer, _inputPtr, result, i, count);
+            _inputPtr += count;
+            i += count;
+        }
+        return result;
+    }
 
-            for (int i = 0; i < length; i++) {
-                tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                valueQueue.add(dataInputStream.readLong());
+    private int[] _readIntArray(int length) throws IOException {
+        int[] result = new int[_initialArraySize(length, 4)];
+        int i = 0;
+        while (i < length) {
+            if (!_loadToHaveAtLeast(4)) {
+                _eofInContent();
             }
+            int count = Math.min((_inputEnd - _inputPtr) >> 2, length - i);
+            if (i + count > result.length) {
+                result = Arrays.copyOf(result, _grownArraySize(result.length, i + count, length));
+            }
+            ByteBuffer.wrap(_inputBuffer, _inputPtr, count << 2).asIntBuffer().get(result, i, count);
+            _inputPtr += count << 2;
+            i += count;
+        }
+        return result;
+    }
 
-//            tokenQueue.addLast(JsonToken.START_ARRAY);
-//            pushState(State.LIST_ARRAY);
-        } else {
-            throw new IOException("Not support.");
+    private long[] _readLongArray(int length) throws IOException {
+        long[] result = new long[_initialArraySize(length, 8)];
+        int i = 0;
+        while (i < length) {
+            if (!_loadToHaveAtLeast(8)) {
+                _eofInContent();
+            }
+            int count = Math.min((_inputEnd - _inputPtr) >> 3, length - i);
+            if (i + count > result.length) {
+                result = Arrays.copyOf(result, _grownArraySize(result.length, i + count, length));
+            }
+            ByteBuffer.wrap(_inputBuffer, _inputPtr, count << 3).asLongBuffer().get(result, i, count);
+            _inputPtr += count << 3;
+            i += count;
         }
+        return result;
     }
 
+    private int _initialArraySize(int length, int elementSize) {
+        if (_inputSource != null) {
+            return (int) Math.min(length, ((long) _inputEnd - _inputPtr + _inputSource.remaining()) / elementSize);
+        }
+        if (_inputStream == null) {
+            // everything there is has been loaded already
+            return Math.min(length, (_inputEnd - _inputPtr) / elementSize);
+        }
+        return Math.min(length, _inputBuffer.length / elementSize);
+    }
+
+    private static int _grownArraySize(int current, int needed, int length) {
+        int size = Math.max(needed, current + (current >> 1));
+        return Math.min(size, length);
+    }
+
+    /*
+    /**********************************************************
+    /* Token decoding
+    /**********************************************************
+     */
+
     @Override
     public JsonToken nextToken() throws IOException {
-        try {
-            JsonToken ret = _nextToken();
-            while (ret == null && hasState()) {
-                ret = _nextToken();
-            }
-            return ret;
-        } catch (EOFException e) {
+        if (_closed) {
             return null;
         }
+        if (_tokenIncomplete) {
+            _tokenIncomplete = false;
+            _inputPtr += _stringLength;
+        }
+        _tokenInputTotal = _currInputProcessed + _inputPtr;
+
+        if (_pendingType != NO_PENDING_TYPE) {
+            return _currToken = _startPendingValue();
+        }
+
+        final NbtReadContext ctxt = _parsingContext;
+        switch (ctxt.getTagType()) {
+            case TAG_COMPOUND:
+                return _currToken = _nextInCompound(ctxt);
+            case TAG_END:
+                return _currToken = _nextInRoot(ctxt);
+            default:
+                return _currToken = _nextInList(ctxt);
+        }
     }
 
-    private JsonToken _nextToken() throws IOException {
-        if (!tokenQueue.isEmpty()) {
-            nowValue = valueQueue.removeFirst();
-            return _currToken = tokenQueue.removeFirst();
+    private JsonToken _nextInRoot(NbtReadContext ctxt) throws IOException {
+        if (!_loadToHaveAtLeast(1)) {
+            return _eofAtRoot();
         }
+        final byte type = _inputBuffer[_inputPtr];
+        if (type == TAG_END) {
+            ++_inputPtr;
+            ctxt.advance();
+            return null;
+        }
+        String name = _readTagName();
+        if (name == null) {
+            return JsonToken.NOT_AVAILABLE;
+        }
+        ctxt.advance();
+        ctxt.setCurrentName(name);
+        _pendingType = type;
+        return _startPendingValue();
+    }
 
-        if (!hasState()) {
-            throw new EOFException();
+    /**
+     * Starts the value whose type has been read with its name. The type stays pending if the
+     * value is not available yet, so that a non-blocking parser resumes from there.
+     */
+    private JsonToken _startPendingValue() throws IOException {
+        JsonToken t = _startValue((byte) _pendingType);
+        if (t != JsonToken.NOT_AVAILABLE) {
+            _pendingType = NO_PENDING_TYPE;
         }
+        return t;
+    }
 
-        if (topState().type == BinaryTagTypes.COMPOUND.id()) {
-            byte type = dataInputStream.readByte();
-            if (type == BinaryTagTypes.END.id()) {
-                popState();
-                tokenQueue.addLast(JsonToken.END_OBJECT);
-                valueQueue.addLast("}");
-            } else {
-                String key = dataInputStream.readUTF();
-                tokenQueue.addLast(JsonToken.FIELD_NAME);
-                valueQueue.addLast(key);
-
-                if (type == BinaryTagTypes.BYTE.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readByte());
-                } else if (type == BinaryTagTypes.SHORT.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readShort());
-                } else if (type == BinaryTagTypes.INT.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readInt());
-                } else if (type == BinaryTagTypes.LONG.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readLong());
-                } else if (type == BinaryTagTypes.FLOAT.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_FLOAT);
-                    valueQueue.addLast(dataInputStream.readFloat());
-                } else if (type == BinaryTagTypes.DOUBLE.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_FLOAT);
-                    valueQueue.addLast(dataInputStream.readDouble());
-                } else if (type == BinaryTagTypes.BYTE_ARRAY.id()) {
-                    int length = dataInputStream.readInt();
-                    tokenQueue.add(JsonToken.START_ARRAY);
-                    valueQueue.add("[");
-                    for (int i = 0; i < length; i++) {
-                        tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                        valueQueue.add(dataInputStream.readByte());
-                    }
-                    tokenQueue.add(JsonToken.END_ARRAY);
-                    valueQueue.add("]");
-                } else if (type == BinaryTagTypes.STRING.id()) {
-                    tokenQueue.addLast(JsonToken.VALUE_STRING);
-                    valueQueue.addLast(dataInputStream.readUTF());
-                } else if (type == BinaryTagTypes.LIST.id()) {
-                    byte containsType = dataInputStream.readByte();
-                    int length = dataInputStream.readInt();
-                    tokenQueue.addLast(JsonToken.START_ARRAY);
-                    valueQueue.addLast("[");
-                    pushState(State.LIST(length, containsType));
-                } else if (type == BinaryTagTypes.COMPOUND.id()) {
-                    pushState(State.MAP());
-                } else if (type == BinaryTagTypes.INT_ARRAY.id()) {
-                    int length = dataInputStream.readInt();
-                    tokenQueue.add(JsonToken.START_ARRAY);
-                    valueQueue.add("[");
-                    for (int i = 0; i < length; i++) {
-                        tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                        valueQueue.add(dataInputStream.readInt());
-                    }
-                    tokenQueue.add(JsonToken.END_ARRAY);
-                    valueQueue.add("]");
-                } else if (type == BinaryTagTypes.LONG_ARRAY.id()) {
-                    int length = dataInputStream.readInt();
-                    tokenQueue.add(JsonToken.START_ARRAY);
-                    valueQueue.add("[");
-                    for (int i = 0; i < length; i++) {
-                        tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                        valueQueue.add(dataInputStream.readLong());
-                    }
-                    tokenQueue.add(JsonToken.END_ARRAY);
-                    valueQueue.add("]");
-                } else {
-                    _reportError("Invalid Type ID");
-                }
+    private JsonToken _nextInCompound(NbtReadContext ctxt) throws IOException {
+        if (!_loadToHaveAtLeast(1)) {
+            return _eofInContent();
+        }
+        final byte type = _inputBuffer[_inputPtr];
+        if (type == TAG_END) {
+            ++_inputPtr;
+            _parsingContext = ctxt.clearAndGetParent();
+            return JsonToken.END_OBJECT;
+        }
+        String name = _readTagName();
+        if (name == null) {
+            return JsonToken.NOT_AVAILABLE;
+        }
+        ctxt.advance();
+        ctxt.setCurrentName(name);
+        _pendingType = type;
+        return JsonToken.FIELD_NAME;
+    }
+
+    private JsonToken _nextInList(NbtReadContext ctxt) throws IOException {
+        if (!ctxt.hasMoreElements()) {
+            _parsingContext = ctxt.clearAndGetParent();
+            return JsonToken.END_ARRAY;
+        }
+        JsonToken t = _startValue(ctxt.getElementType());
+        if (t != JsonToken.NOT_AVAILABLE) {
+            ctxt.advance();
+        }
+        return t;
+    }
+
+    /**
+     * Reads the header of a named tag: the type id and the name.
+     * The type id has been peeked already by the caller.
+     *
+     * @return null if the name is not available yet (non-blocking parsing only)
+     */
+    private String _readTagName() throws IOException {
+        if (!_loadToHaveAtLeast(3)) {
+            _eofInContent();
+            return null;
+        }
+        final int len = _getUShort(_inputPtr + 1);
+        if (!_loadToHaveAtLeast(3 + len)) {
+            _eofInContent();
+            return null;
+        }
+        _inputPtr += 3;
+        if (len == 0) {
+            return "";
+        }
+        if (!_canonicalizeNames) {
+            return _decodeUTF(len);
+        }
+        return _findOrAddName(len);
+    }
+
+    /**
+     * Looks up the tag name encoded in the next {@code len} input bytes in the symbol table,
+     * so that names seen before are neither decoded nor allocated again.
+     * Bytes are packed into big-endian quads with the last one padded, as
+     * {@link com.fasterxml.jackson.core.json.UTF8StreamJsonParser} does for JSON names.
+     */
+    private String _findOrAddName(int len) throws IOException {
+        final byte[] buf = _inputBuffer;
+        final int qlen = (len + 3) >> 2;
+        if (qlen > _quadBuffer.length) {
+            _quadBuffer = Arrays.copyOf(_quadBuffer, Math.max(qlen, _quadBuffer.length << 1));
+        }
+        final int[] quads = _quadBuffer;
+        int ptr = _inputPtr;
+        final int fullQuads = len >> 2;
+        for (int i = 0; i < fullQuads; i++, ptr += 4) {
+            quads[i] = _getInt(ptr);
+        }
+        final int lastBytes = len & 3;
+        if (lastBytes > 0) {
+            int q = buf[ptr] & 0xFF;
+            for (int i = 1; i < lastBytes; i++) {
+                q = (q << 8) | (buf[ptr + i] & 0xFF);
             }
-        } else if (topState().type == BinaryTagTypes.LIST.id()) {
-            State nowState = topState();
-            byte nowContainsType = nowState.containsType;
-            int nowLength = nowState.length;
-
-            if (nowContainsType == BinaryTagTypes.END.id()) {
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.BYTE.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readByte());
+            quads[fullQuads] = q | (-1 << (lastBytes << 3));
+        }
+
+        String name = _symbols.findName(quads, qlen);
+        if (name != null) {
+            _inputPtr += len;
+            return name;
+        }
+        name = _decodeUTF(len);
+        return _symbols.addName(name, quads, qlen);
+    }
+
+    /**
+     * Decodes the start of a value of given tag type: the whole value for scalars,
+     * or the container header for compounds, lists and typed arrays.
+     */
+    private JsonToken _startValue(byte type) throws IOException {
+        final int ptr;
+        switch (type) {
+            case TAG_BYTE:
+                if (!_loadToHaveAtLeast(1)) {
+                    return _eofInContent();
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.SHORT.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readShort());
+                _valueType = TAG_BYTE;
+                _numberInt = _inputBuffer[_inputPtr++];
+                return JsonToken.VALUE_NUMBER_INT;
+            case TAG_SHORT:
+                if (!_loadToHaveAtLeast(2)) {
+                    return _eofInContent();
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.INT.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readInt());
+                _valueType = TAG_SHORT;
+                _numberInt = (short) _getUShort(_inputPtr);
+                _inputPtr += 2;
+                return JsonToken.VALUE_NUMBER_INT;
+            case TAG_INT:
+                if (!_loadToHaveAtLeast(4)) {
+                    return _eofInContent();
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.LONG.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_INT);
-                    valueQueue.addLast(dataInputStream.readLong());
+                _valueType = TAG_INT;
+                _numberInt = _getInt(_inputPtr);
+                _inputPtr += 4;
+                return JsonToken.VALUE_NUMBER_INT;
+            case TAG_LONG:
+                if (!_loadToHaveAtLeast(8)) {
+                    return _eofInContent();
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.FLOAT.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_FLOAT);
-                    valueQueue.addLast(dataInputStream.readFloat());
+                _valueType = TAG_LONG;
+                _numberLong = _getLong(_inputPtr);
+                _inputPtr += 8;
+                return JsonToken.VALUE_NUMBER_INT;
+            case TAG_FLOAT:
+                if (!_loadToHaveAtLeast(4)) {
+                    return _eofInContent();
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.DOUBLE.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_NUMBER_FLOAT);
-                    valueQueue.addLast(dataInputStream.readDouble());
+                _valueType = TAG_FLOAT;
+                _numberDouble = Float.intBitsToFloat(_getInt(_inputPtr));
+                _inputPtr += 4;
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case TAG_DOUBLE:
+                if (!_loadToHaveAtLeast(8)) {
+                    return _eofInContent();
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.BYTE_ARRAY.id()) {
-                if (nowState.nowIndex < nowState.length) {
-                    nowState.nowIndex++;
-
-                    int length = dataInputStream.readInt();
-                    tokenQueue.add(JsonToken.START_ARRAY);
-                    valueQueue.add("[");
-                    for (int i = 0; i < length; i++) {
-                        tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                        valueQueue.add(dataInputStream.readByte());
-                    }
-                    tokenQueue.add(JsonToken.END_ARRAY);
-                    valueQueue.add("]");
-                } else {
-                    tokenQueue.addLast(JsonToken.END_ARRAY);
-                    valueQueue.addLast("]");
-                    popState();
+                _valueType = TAG_DOUBLE;
+                _numberDouble = Double.longBitsToDouble(_getLong(_inputPtr));
+                _inputPtr += 8;
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case TAG_STRING: {
+                if (!_loadToHaveAtLeast(2)) {
+                    return _eofInContent();
+                }
+                final int len = _getUShort(_inputPtr);
+                if (!_loadToHaveAtLeast(2 + len)) {
+                    return _eofInContent();
+                }
+                _inputPtr += 2;
+                _valueType = TAG_STRING;
+                _stringLength = len;
+                _tokenIncomplete = true;
+                return JsonToken.VALUE_STRING;
+            }
+            case TAG_LIST: {
+                if (!_loadToHaveAtLeast(5)) {
+                    return _eofInContent();
                 }
-            } else if (nowContainsType == BinaryTagTypes.STRING.id()) {
-                for (int i = 0; i < nowLength; i++) {
-                    tokenQueue.addLast(JsonToken.VALUE_STRING);
-                    valueQueue.addLast(dataInputStream.readUTF());
+                ptr = _inputPtr;
+                final byte elementType = _inputBuffer[ptr];
+                final int length = _getInt(ptr + 1);
+                _inputPtr = ptr + 5;
+                if (length < 0) {
+                    _reportError("Invalid NBT list length " + length);
                 }
-                tokenQueue.addLast(JsonToken.END_ARRAY);
-                valueQueue.addLast("]");
-                popState();
-            } else if (nowContainsType == BinaryTagTypes.LIST.id()) {
-                if (nowState.nowIndex < nowState.length) {
-                    nowState.nowIndex++;
-
-                    byte containsType = dataInputStream.readByte();
-                    int length = dataInputStream.readInt();
-                    tokenQueue.addLast(JsonToken.START_ARRAY);
-                    valueQueue.addLast("[");
-                    pushState(State.LIST(length, containsType));
-                } else {
-                    tokenQueue.addLast(JsonToken.END_ARRAY);
-                    valueQueue.addLast("]");
-                    popState();
+                if (elementType == TAG_END && length > 0) {
+                    _reportError("Invalid NBT list: " + length + " elements of type END");
                 }
+                _parsingContext = _parsingContext.createChildListContext(TAG_LIST, elementType, length);
+                return JsonToken.START_ARRAY;
+            }
+            case TAG_COMPOUND:
+                _parsingContext = _parsingContext.createChildObjectContext();
+                return JsonToken.START_OBJECT;
+            case TAG_BYTE_ARRAY:
+            case TAG_INT_ARRAY:
+            case TAG_LONG_ARRAY:
+                return _startTypedArray(type);
+            default:
+                _reportError(String.format("Invalid NBT tag type id 0x%02X", type));
+                return null;
+        }
+    }
 
-                if (nowState.nowIndex < nowState.length) {
-                    nowState.nowIndex++;
+    private JsonToken _startTypedArray(byte tagType) throws IOException {
+        if (!_loadToHaveAtLeast(4)) {
+            return _eofInContent();
+        }
+        final int length = _getInt(_inputPtr);
+        if (length < 0) {
+            _reportError("Invalid NBT array length " + length);
+        }
+        if (Feature.READ_TYPED_ARRAYS_AS_EMBEDDED_OBJECTS.enabledIn(_formatFeatures)) {
+            // without blocking reads the whole array has to be there before any of it is consumed
+            if (canParseAsync()) {
+                final long size = 4L + (long) length * ((tagType == TAG_BYTE_ARRAY) ? 1 : (tagType == TAG_INT_ARRAY) ? 4 : 8);
+                if (size > Integer.MAX_VALUE) {
+                    _reportError("NBT array of " + length + " elements too large for non-blocking parsing");
+                }
+                if (!_loadToHaveAtLeast((int) size)) {
+                    return _eofInContent();
+                }
+            }
+            _inputPtr += 4;
+            _valueType = tagType;
+            switch (tagType) {
+                case TAG_BYTE_ARRAY:
+                    _embeddedValue = _readByteArray(length);
+                    break;
+                case TAG_INT_ARRAY:
+                    _embeddedValue = _readIntArray(length);
+                    break;
+                default:
+                    _embeddedValue = _readLongArray(length);
+                    break;
+            }
+            return JsonToken.VALUE_EMBEDDED_OBJECT;
+        }
+        _inputPtr += 4;
+        final byte elementType = (tagType == TAG_BYTE_ARRAY) ? TAG_BYTE
+                : (tagType == TAG_INT_ARRAY) ? TAG_INT : TAG_LONG;
+        _parsingContext = _parsingContext.createChildListContext(tagType, elementType, length);
+        return JsonToken.START_ARRAY;
+    }
+
+    /**
+     * Called when the input ends in the middle of a value.
+     *
+     * @return token to report instead, if any: non-blocking parsers report
+     * {@link JsonToken#NOT_AVAILABLE} as long as more input may come
+     */
+    protected JsonToken _eofInContent() throws IOException {
+        _reportInvalidEOF(": was expecting rest of NBT " + _parsingContext.typeDesc(), _currToken);
+        return null;
+    }
+
+    /**
+     * Called when the input ends before a root value.
+     */
+    protected JsonToken _eofAtRoot() throws IOException {
+        return null;
+    }
 
-                    tokenQueue.addLast(JsonToken.START_OBJECT);
-                    valueQueue.addLast("{");
-                    pushState(State.MAP());
-                } else {
-                    tokenQueue.addLast(JsonToken.END_ARRAY);
-                    valueQueue.addLast("]");
-                    popState();
+    @Override
+    protected void _handleEOF() throws JsonParseException {
+
+    }
+
+    /*
+    /**********************************************************
+    /* Skipping
+    /**********************************************************
+     */
+
+    /**
+     * Skips the rest of the current compound, list or typed array without decoding it.
+     * Lists of fixed-width elements and typed arrays are skipped by length alone; compounds
+     * are walked tag by tag, but names and strings are skipped without being decoded.
+     */
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if (_currToken != JsonToken.START_OBJECT && _currToken != JsonToken.START_ARRAY) {
+            return this;
+        }
+        final NbtReadContext ctxt = _parsingContext;
+        if (_currToken == JsonToken.START_OBJECT) {
+            _skipCompound();
+            _currToken = JsonToken.END_OBJECT;
+        } else {
+            _skipElements(ctxt.getElementType(), ctxt.getLength() - ctxt.getEntryCount());
+            _currToken = JsonToken.END_ARRAY;
+        }
+        _parsingContext = ctxt.clearAndGetParent();
+        return this;
+    }
+
+    private void _skipPayload(byte type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                _skipBytes(1);
+                break;
+            case TAG_SHORT:
+                _skipBytes(2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                _skipBytes(4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                _skipBytes(8);
+                break;
+            case TAG_STRING:
+                if (!_loadToHaveAtLeast(2)) {
+                    _eofInContent();
                 }
-            } else if (nowContainsType == BinaryTagTypes.COMPOUND.id()) {
-                if (nowState.nowIndex < nowState.length) {
-                    nowState.nowIndex++;
-
-                    tokenQueue.addLast(JsonToken.START_OBJECT);
-                    valueQueue.addLast("{");
-                    pushState(State.MAP());
-                } else {
-                    tokenQueue.addLast(JsonToken.END_ARRAY);
-                    valueQueue.addLast("]");
-                    popState();
+                final int len = _getUShort(_inputPtr);
+                _inputPtr += 2;
+                _skipBytes(len);
+                break;
+            case TAG_LIST: {
+                if (!_loadToHaveAtLeast(5)) {
+                    _eofInContent();
                 }
-            } else if (nowContainsType == BinaryTagTypes.INT_ARRAY.id()) {
-                if (nowState.nowIndex < nowState.length) {
-                    nowState.nowIndex++;
-
-                    int length = dataInputStream.readInt();
-                    tokenQueue.add(JsonToken.START_ARRAY);
-                    valueQueue.add("[");
-                    for (int i = 0; i < length; i++) {
-                        tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                        valueQueue.add(dataInputStream.readInt());
-                    }
-                    tokenQueue.add(JsonToken.END_ARRAY);
-                    valueQueue.add("]");
-                } else {
-                    tokenQueue.addLast(JsonToken.END_ARRAY);
-                    valueQueue.addLast("]");
-                    popState();
+                final byte elementType = _inputBuffer[_inputPtr];
+                final int length = _getInt(_inputPtr + 1);
+                _inputPtr += 5;
+                if (length < 0) {
+                    _reportError("Invalid NBT list length " + length);
                 }
-            } else if (nowContainsType == BinaryTagTypes.LONG_ARRAY.id()) {
-                if (nowState.nowIndex < nowState.length) {
-                    nowState.nowIndex++;
-
-                    int length = dataInputStream.readInt();
-                    tokenQueue.add(JsonToken.START_ARRAY);
-                    valueQueue.add("[");
-                    for (int i = 0; i < length; i++) {
-                        tokenQueue.add(JsonToken.VALUE_NUMBER_INT);
-                        valueQueue.add(dataInputStream.readLong());
-                    }
-                    tokenQueue.add(JsonToken.END_ARRAY);
-                    valueQueue.add("]");
-                } else {
-                    tokenQueue.addLast(JsonToken.END_ARRAY);
-                    valueQueue.addLast("]");
-                    popState();
+                _skipElements(elementType, length);
+                break;
+            }
+            case TAG_COMPOUND:
+                _skipCompound();
+                break;
+            case TAG_BYTE_ARRAY:
+            case TAG_INT_ARRAY:
+            case TAG_LONG_ARRAY: {
+                if (!_loadToHaveAtLeast(4)) {
+                    _eofInContent();
                 }
-            } else {
-                _reportError("Invalid Type ID");
+                final int length = _getInt(_inputPtr);
+                _inputPtr += 4;
+                if (length < 0) {
+                    _reportError("Invalid NBT array length " + length);
+                }
+                _skipBytes((long) length * _fixedWidth(type == TAG_BYTE_ARRAY ? TAG_BYTE
+                        : (type == TAG_INT_ARRAY) ? TAG_INT : TAG_LONG));
+                break;
             }
+            default:
+                _reportError(String.format("Invalid NBT tag type id 0x%02X", type));
+        }
+    }
 
+    /**
+     * Skips the remaining entries of a compound, including its END tag.
+     */
+    private void _skipCompound() throws IOException {
+        while (true) {
+            if (!_loadToHaveAtLeast(1)) {
+                _eofInContent();
+            }
+            final byte type = _inputBuffer[_inputPtr];
+            if (type == TAG_END) {
+                ++_inputPtr;
+                return;
+            }
+            if (!_loadToHaveAtLeast(3)) {
+                _eofInContent();
+            }
+            final int nameLen = _getUShort(_inputPtr + 1);
+            _inputPtr += 3;
+            _skipBytes(nameLen);
+            _skipPayload(type);
         }
+    }
 
-        if (!tokenQueue.isEmpty()) {
-            nowValue = valueQueue.removeFirst();
-            return _currToken = tokenQueue.removeFirst();
+    private void _skipElements(byte elementType, int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        final int width = _fixedWidth(elementType);
+        if (width > 0) {
+            _skipBytes((long) count * width);
+            return;
+        }
+        if (elementType == TAG_END) {
+            _reportError("Invalid NBT list: " + count + " elements of type END");
+        }
+        for (int i = 0; i < count; i++) {
+            _skipPayload(elementType);
         }
-        return null;
     }
 
-    @Override
-    protected void _handleEOF() throws JsonParseException {
+    /**
+     * @return size of the payload of given tag type if it is fixed, 0 otherwise
+     */
+    private static int _fixedWidth(byte type) {
+        switch (type) {
+            case TAG_BYTE:
+                return 1;
+            case TAG_SHORT:
+                return 2;
+            case TAG_INT:
+            case TAG_FLOAT:
+                return 4;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                return 8;
+            default:
+                return 0;
+        }
+    }
 
+    /**
+     * Skips {@code count} bytes of input: buffered content is simply passed over, and the
+     * rest is skipped in the underlying buffer or stream where possible.
+     */
+    private void _skipBytes(long count) throws IOException {
+        while (true) {
+            final int available = _inputEnd - _inputPtr;
+            if (count <= available) {
+                _inputPtr += (int) count;
+                return;
+            }
+            count -= available;
+            _inputPtr = _inputEnd;
+            if (_inputSource != null) {
+                if (count > _inputSource.remaining()) {
+                    _eofInContent();
+                }
+                _currInputProcessed += _inputEnd + count;
+                _inputPtr = _inputEnd = 0;
+                _inputSource.position(_inputSource.position() + (int) count);
+                return;
+            }
+            if (_inputStream != null) {
+                _currInputProcessed += _inputEnd;
+                _inputPtr = _inputEnd = 0;
+                long skipped = _inputStream.skip(count);
+                if (skipped > 0) {
+                    _currInputProcessed += skipped;
+                    count -= skipped;
+                    if (count == 0) {
+                        return;
+                    }
+                }
+            }
+            if (!_loadToHaveAtLeast(1)) {
+                _eofInContent();
+            }
+        }
     }
 
+    /*
+    /**********************************************************
+    /* Public API, access to token information
+    /**********************************************************
+     */
+
     @Override
     public String getCurrentName() throws IOException {
-        if (nowValue instanceof String) {
-            return (String) nowValue;
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            NbtReadContext parent = _parsingContext.getParent();
+            return (parent == null) ? null : parent.getCurrentName();
+        }
+        return _parsingContext.getCurrentName();
+    }
+
+    @Override
+    public void overrideCurrentName(String name) {
+        NbtReadContext ctxt = _parsingContext;
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            ctxt = ctxt.getParent();
+        }
+        if (ctxt != null) {
+            ctxt.setCurrentName(name);
         }
-        throw new IOException("");
     }
 
     @Override
@@ -460,155 +1122,341 @@ public class NbtParser extends ParserMinimalBase {
 
     @Override
     public void close() throws IOException {
+        if (!_closed) {
+            try {
+                _close();
+            } finally {
+                if (_pool != null) {
+                    _pool.releaseParser(this);
+                }
+            }
+        }
+    }
+
+    private void _close() throws IOException {
+        _closed = true;
+        try {
+            _closeInput();
+        } finally {
+            _releaseBuffers();
+        }
+    }
 
+    private void _closeInput() throws IOException {
+        if (_inputStream != null) {
+            if (_ioContext.isResourceManaged() || isEnabled(JsonParser.Feature.AUTO_CLOSE_SOURCE)) {
+                _inputStream.close();
+            } else if (_inputStream instanceof InflatingInputStream) {
+                // the source stays open, but the pooled inflater must be given back
+                ((InflatingInputStream) _inputStream).release();
+            }
+            _inputStream = null;
+        }
+        _inputSource = null;
+    }
+
+    private void _releaseBuffers() {
+        if (_symbols != null) {
+            _symbols.release();
+        }
+        if (_bufferRecyclable) {
+            byte[] buf = _inputBuffer;
+            if (buf != null) {
+                _inputBuffer = null;
+                _ioContext.releaseReadIOBuffer(buf);
+            }
+        }
+        _textBuffer.releaseBuffers();
+        char[] chars = _nameCopyBuffer;
+        if (chars != null) {
+            _nameCopyBuffer = null;
+            _ioContext.releaseNameCopyBuffer(chars);
+        }
+        if (_byteArrayBuilder != null) {
+            _byteArrayBuilder.release();
+            _byteArrayBuilder = null;
+        }
     }
 
     @Override
     public boolean isClosed() {
-        return false;
+        return _closed;
     }
 
     @Override
-    public JsonStreamContext getParsingContext() {
-        return null;
+    public int getFormatFeatures() {
+        return _formatFeatures;
     }
 
     @Override
-    public JsonLocation getTokenLocation() {
-        try {
-            return new JsonLocation(inputStream, _totalByte, 0, 1, _totalByte - dataInputStream.available());
-        } catch (IOException e) {
-            return null;
-        }
+    public JsonParser overrideFormatFeatures(int values, int mask) {
+        _formatFeatures = (_formatFeatures & ~mask) | (values & mask);
+        return this;
+    }
+
+    public boolean isEnabled(NbtParser.Feature f) {
+        return f.enabledIn(_formatFeatures);
     }
 
     @Override
-    public JsonLocation getCurrentLocation() {
-        return null;
+    public NbtReadContext getParsingContext() {
+        return _parsingContext;
     }
 
     @Override
-    public void overrideCurrentName(String name) {
+    public JsonLocation getTokenLocation() {
+        return new JsonLocation(_ioContext.contentReference(), _tokenInputTotal, -1L, -1, (int) _tokenInputTotal);
+    }
 
+    @Override
+    public JsonLocation getCurrentLocation() {
+        final long offset = _currInputProcessed + _inputPtr;
+        return new JsonLocation(_ioContext.contentReference(), offset, -1L, -1, (int) offset);
     }
 
+    /*
+    /**********************************************************
+    /* Public API, access to textual content
+    /**********************************************************
+     */
+
     @Override
     public String getText() throws IOException {
-        if (nowValue instanceof String) {
-            return (String) nowValue;
+        final JsonToken t = _currToken;
+        if (t == JsonToken.VALUE_STRING) {
+            if (_tokenIncomplete) {
+                _finishString();
+            }
+            return _textBuffer.contentsAsString();
+        }
+        if (t == null) {
+            return null;
+        }
+        switch (t) {
+            case FIELD_NAME:
+                return _parsingContext.getCurrentName();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return String.valueOf(getNumberValue());
+            default:
+                return t.asString();
+        }
+    }
+
+    @Override
+    public int getText(Writer writer) throws IOException {
+        final JsonToken t = _currToken;
+        if (t == JsonToken.VALUE_STRING) {
+            if (_tokenIncomplete) {
+                _finishString();
+            }
+            return _textBuffer.contentsToWriter(writer);
         }
-        throw new IOException("");
+        String text = getText();
+        if (text == null) {
+            return 0;
+        }
+        writer.write(text);
+        return text.length();
     }
 
     @Override
     public char[] getTextCharacters() throws IOException {
-        if (nowValue instanceof String) {
-            return ((String) nowValue).toCharArray();
+        if (_currToken == JsonToken.VALUE_STRING) {
+            if (_tokenIncomplete) {
+                _finishString();
+            }
+            return _textBuffer.getTextBuffer();
         }
-        throw new IOException("");
+        String text = getText();
+        return (text == null) ? null : text.toCharArray();
     }
 
     @Override
     public boolean hasTextCharacters() {
-        return nowValue instanceof String;
+        return _currToken == JsonToken.VALUE_STRING;
     }
 
     @Override
-    public Number getNumberValue() throws IOException {
-        if (nowValue instanceof Number) {
-            return (Number) nowValue;
+    public int getTextLength() throws IOException {
+        if (_currToken == JsonToken.VALUE_STRING) {
+            if (_tokenIncomplete) {
+                _finishString();
+            }
+            return _textBuffer.size();
         }
-        throw new IOException("");
+        String text = getText();
+        return (text == null) ? 0 : text.length();
     }
 
     @Override
-    public NumberType getNumberType() throws IOException {
-        if (nowValue instanceof Double) {
-            return NumberType.DOUBLE;
-        }
-        if (nowValue instanceof Float) {
-            return NumberType.FLOAT;
+    public int getTextOffset() throws IOException {
+        if (_currToken == JsonToken.VALUE_STRING) {
+            if (_tokenIncomplete) {
+                _finishString();
+            }
+            return _textBuffer.getTextOffset();
         }
+        return 0;
+    }
 
-        if (nowValue instanceof Byte || nowValue instanceof Short || nowValue instanceof Integer) {
-            return NumberType.INT;
+    @Override
+    public byte[] getBinaryValue(Base64Variant variant) throws IOException {
+        if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT && _embeddedValue instanceof byte[]) {
+            return (byte[]) _embeddedValue;
         }
-
-        if (nowValue instanceof Long) {
-            return NumberType.LONG;
+        if (_currToken != JsonToken.VALUE_STRING) {
+            _reportError("Current token (" + _currToken + ") not VALUE_STRING or VALUE_EMBEDDED_OBJECT, can not access as binary");
+        }
+        ByteArrayBuilder builder = _byteArrayBuilder;
+        if (builder == null) {
+            _byteArrayBuilder = builder = new ByteArrayBuilder();
+        } else {
+            builder.reset();
         }
+        _decodeBase64(getText(), builder, variant);
+        return builder.toByteArray();
+    }
 
-        return null;
+    @Override
+    public int readBinaryValue(Base64Variant b64variant, OutputStream out) throws IOException {
+        byte[] b = getBinaryValue(b64variant);
+        out.write(b);
+        return b.length;
     }
 
     @Override
-    public int getIntValue() throws IOException {
-        if (nowValue instanceof Byte || nowValue instanceof Short || nowValue instanceof Integer) {
-            return ((Number) nowValue).intValue();
+    public Object getEmbeddedObject() throws IOException {
+        if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            return _embeddedValue;
         }
-        throw new IOException("");
+        return null;
     }
 
+    /*
+    /**********************************************************
+    /* Public API, access to numeric content
+    /**********************************************************
+     */
+
     @Override
-    public long getLongValue() throws IOException {
-        if (nowValue instanceof Byte || nowValue instanceof Short || nowValue instanceof Integer || nowValue instanceof Long) {
-            return ((Number) nowValue).longValue();
+    public Number getNumberValue() throws IOException {
+        _checkNumericValue();
+        switch (_valueType) {
+            case TAG_BYTE:
+                return (byte) _numberInt;
+            case TAG_SHORT:
+                return (short) _numberInt;
+            case TAG_INT:
+                return _numberInt;
+            case TAG_LONG:
+                return _numberLong;
+            case TAG_FLOAT:
+                return (float) _numberDouble;
+            default:
+                return _numberDouble;
         }
-        throw new IOException("");
     }
 
     @Override
-    public BigInteger getBigIntegerValue() throws IOException {
-        if (nowValue instanceof Number) {
-            return new BigInteger(String.valueOf((Number) nowValue));
+    public NumberType getNumberType() throws IOException {
+        _checkNumericValue();
+        switch (_valueType) {
+            case TAG_LONG:
+                return NumberType.LONG;
+            case TAG_FLOAT:
+                return NumberType.FLOAT;
+            case TAG_DOUBLE:
+                return NumberType.DOUBLE;
+            default:
+                return NumberType.INT;
         }
-        throw new IOException("");
     }
 
     @Override
-    public float getFloatValue() throws IOException {
-        if (nowValue instanceof Float) {
-            return (Float) nowValue;
+    public int getIntValue() throws IOException {
+        _checkNumericValue();
+        switch (_valueType) {
+            case TAG_BYTE:
+            case TAG_SHORT:
+            case TAG_INT:
+                return _numberInt;
+            case TAG_LONG:
+                if (_numberLong < MIN_INT_L || _numberLong > MAX_INT_L) {
+                    reportOverflowInt(String.valueOf(_numberLong));
+                }
+                return (int) _numberLong;
+            default:
+                if (_numberDouble < MIN_INT_D || _numberDouble > MAX_INT_D) {
+                    reportOverflowInt(String.valueOf(_numberDouble));
+                }
+                return (int) _numberDouble;
         }
-        throw new IOException("");
     }
 
     @Override
-    public double getDoubleValue() throws IOException {
-        if (nowValue instanceof Double) {
-            return (Double) nowValue;
+    public long getLongValue() throws IOException {
+        _checkNumericValue();
+        switch (_valueType) {
+            case TAG_BYTE:
+            case TAG_SHORT:
+            case TAG_INT:
+                return _numberInt;
+            case TAG_LONG:
+                return _numberLong;
+            default:
+                if (_numberDouble < MIN_LONG_D || _numberDouble > MAX_LONG_D) {
+                    reportOverflowLong(String.valueOf(_numberDouble));
+                }
+                return (long) _numberDouble;
         }
-        throw new IOException("");
     }
 
     @Override
-    public BigDecimal getDecimalValue() throws IOException {
-        if (nowValue instanceof Number) {
-            return new BigDecimal(String.valueOf((Number) nowValue));
+    public BigInteger getBigIntegerValue() throws IOException {
+        _checkNumericValue();
+        if (_valueType == TAG_FLOAT || _valueType == TAG_DOUBLE) {
+            return getDecimalValue().toBigInteger();
         }
-        throw new IOException("");
+        return BigInteger.valueOf(getLongValue());
     }
 
     @Override
-    public int getTextLength() throws IOException {
-        if (nowValue instanceof String) {
-            return ((String) nowValue).length();
-        }
-        throw new IOException("");
+    public float getFloatValue() throws IOException {
+        return (float) getDoubleValue();
     }
 
     @Override
-    public int getTextOffset() throws IOException {
-        return 0;
+    public double getDoubleValue() throws IOException {
+        _checkNumericValue();
+        switch (_valueType) {
+            case TAG_BYTE:
+            case TAG_SHORT:
+            case TAG_INT:
+                return _numberInt;
+            case TAG_LONG:
+                return _numberLong;
+            default:
+                return _numberDouble;
+        }
     }
 
     @Override
-    public byte[] getBinaryValue(Base64Variant variant) throws IOException {
-        if (!(nowValue instanceof String)) {
-            _reportError("Current token (" + _currToken + ") not VALUE_STRING, can not access as binary");
+    public BigDecimal getDecimalValue() throws IOException {
+        _checkNumericValue();
+        switch (_valueType) {
+            case TAG_FLOAT:
+                return new BigDecimal(Float.toString((float) _numberDouble));
+            case TAG_DOUBLE:
+                return BigDecimal.valueOf(_numberDouble);
+            default:
+                return BigDecimal.valueOf(getLongValue());
+        }
+    }
+
+    private void _checkNumericValue() throws IOException {
+        if (_currToken != JsonToken.VALUE_NUMBER_INT && _currToken != JsonToken.VALUE_NUMBER_FLOAT) {
+            _reportError("Current token (" + _currToken + ") not numeric, can not use numeric value accessors");
         }
-        ByteArrayBuilder builder = new ByteArrayBuilder();
-        _decodeBase64(getText(), builder, variant);
-        return builder.toByteArray();
     }
 }
@@ -0,0 +1,141 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts the values at a set of {@link JsonPointer} paths from a NBT document in a single pass.
+ * <p>
+ * Only the containers on the way to a requested path are walked token by token; every other
+ * subtree is passed over with {@link NbtParser#skipChildren()}, which skips at byte level.
+ * Reading stops as soon as all paths have been found.
+ *
+ * @see NbtMapper#readPaths(byte[], Collection)
+ */
+final class NbtPathProjection {
+    private final int _pathCount;
+
+    private final Map<JsonPointer, JsonNode> _result;
+
+    private NbtPathProjection(int pathCount) {
+        _pathCount = pathCount;
+        _result = new LinkedHashMap<>();
+    }
+
+    /**
+     * Reads the value at the current token of given parser, which must be the first token of the
+     * root value, and returns the values found at given paths. Paths that do not exist in the
+     * document are left out of the result.
+     */
+    static Map<JsonPointer, JsonNode> project(JsonParser p, Collection<JsonPointer> paths) throws IOException {
+        Set<JsonPointer> distinct = new LinkedHashSet<>(paths);
+        List<Target> targets = new ArrayList<>(distinct.size());
+        for (JsonPointer path : distinct) {
+            targets.add(new Target(path, path));
+        }
+        NbtPathProjection projection = new NbtPathProjection(distinct.size());
+        if (p.currentToken() != null && !targets.isEmpty()) {
+            projection._readValue(p, targets);
+        }
+        return projection._result;
+    }
+
+    /**
+     * @return true once all paths have been found and reading can stop
+     */
+    private boolean _readValue(JsonParser p, List<Target> targets) throws IOException {
+        for (Target target : targets) {
+            if (target.remaining.matches()) {
+                // the whole subtree is wanted: read it once, and pick deeper paths out of it
+                JsonNode node = p.readValueAsTree();
+                for (Target t : targets) {
+                    JsonNode value = node.at(t.remaining);
+                    if (!value.isMissingNode()) {
+                        _result.put(t.path, value);
+                    }
+                }
+                return _isComplete();
+            }
+        }
+
+        final JsonToken t = p.currentToken();
+        if (t == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                List<Target> next = _matchProperty(targets, p.getCurrentName());
+                p.nextToken();
+                if (next == null) {
+                    p.skipChildren();
+                } else if (_readValue(p, next)) {
+                    return true;
+                }
+            }
+        } else if (t == JsonToken.START_ARRAY) {
+            for (int index = 0; p.nextToken() != JsonToken.END_ARRAY; index++) {
+                List<Target> next = _matchElement(targets, index);
+                if (next == null) {
+                    p.skipChildren();
+                } else if (_readValue(p, next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean _isComplete() {
+        return _result.size() == _pathCount;
+    }
+
+    private static List<Target> _matchProperty(List<Target> targets, String name) {
+        List<Target> next = null;
+        for (Target target : targets) {
+            JsonPointer tail = target.remaining.matchProperty(name);
+            if (tail != null) {
+                if (next == null) {
+                    next = new ArrayList<>(targets.size());
+                }
+                next.add(new Target(target.path, tail));
+            }
+        }
+        return next;
+    }
+
+    private static List<Target> _matchElement(List<Target> targets, int index) {
+        List<Target> next = null;
+        for (Target target : targets) {
+            JsonPointer tail = target.remaining.matchElement(index);
+            if (tail != null) {
+                if (next == null) {
+                    next = new ArrayList<>(targets.size());
+                }
+                next.add(new Target(target.path, tail));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * A requested path, and the part of it that is still to be matched.
+     */
+    private static final class Target {
+        final JsonPointer path;
+
+        final JsonPointer remaining;
+
+        Target(JsonPointer path, JsonPointer remaining) {
+            this.path = path;
+            this.remaining = remaining;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+
+/**
+ * Parsing context of {@link NbtParser}.
+ * <p>
+ * Besides the usual {@link JsonStreamContext} information this keeps the NBT tag type of the
+ * container and, for lists and typed arrays, the element type and the declared length.
+ * Child contexts are reused like {@link com.fasterxml.jackson.core.json.JsonReadContext} does,
+ * so walking a document does not allocate once the deepest nesting level has been seen.
+ */
+public final class NbtReadContext extends JsonStreamContext {
+    private final NbtReadContext _parent;
+
+    private NbtReadContext _child;
+
+    /**
+     * NBT tag type of the container: {@link NbtConstants#TAG_COMPOUND}, {@link NbtConstants#TAG_LIST}
+     * or one of the typed array tags. {@link NbtConstants#TAG_END} for the root context.
+     */
+    private byte _tagType;
+
+    /**
+     * Element type for lists and typed arrays.
+     */
+    private byte _elementType;
+
+    /**
+     * Declared number of elements for lists and typed arrays.
+     */
+    private int _length;
+
+    private String _currentName;
+
+    private Object _currentValue;
+
+    private NbtReadContext(NbtReadContext parent, int type, byte tagType, byte elementType, int length) {
+        super();
+        _parent = parent;
+        reset(type, tagType, elementType, length);
+    }
+
+    private void reset(int type, byte tagType, byte elementType, int length) {
+        _type = type;
+        _index = -1;
+        _tagType = tagType;
+        _elementType = elementType;
+        _length = length;
+        _currentName = null;
+        _currentValue = null;
+    }
+
+    public static NbtReadContext createRootContext() {
+        return new NbtReadContext(null, TYPE_ROOT, NbtConstants.TAG_END, NbtConstants.TAG_END, 0);
+    }
+
+    public NbtReadContext createChildObjectContext() {
+        return _createChild(TYPE_OBJECT, NbtConstants.TAG_COMPOUND, NbtConstants.TAG_END, 0);
+    }
+
+    public NbtReadContext createChildListContext(byte tagType, byte elementType, int length) {
+        return _createChild(TYPE_ARRAY, tagType, elementType, length);
+    }
+
+    private NbtReadContext _createChild(int type, byte tagType, byte elementType, int length) {
+        NbtReadContext ctxt = _child;
+        if (ctxt == null) {
+            _child = ctxt = new NbtReadContext(this, type, tagType, elementType, length);
+        } else {
+            ctxt.reset(type, tagType, elementType, length);
+        }
+        return ctxt;
+    }
+
+    /**
+     * Method that can be used to both clear the accumulated references
+     * (specifically value set with {@link #setCurrentValue(Object)})
+     * that should not be retained, and returns parent (as would
+     * {@link #getParent()} do). Typically called when closing the active
+     * context when encountering end of a container.
+     */
+    public NbtReadContext clearAndGetParent() {
+        _currentValue = null;
+        return _parent;
+    }
+
+    @Override
+    public NbtReadContext getParent() {
+        return _parent;
+    }
+
+    @Override
+    public String getCurrentName() {
+        return _currentName;
+    }
+
+    @Override
+    public boolean hasCurrentName() {
+        return _currentName != null;
+    }
+
+    public void setCurrentName(String name) {
+        _currentName = name;
+    }
+
+    @Override
+    public Object getCurrentValue() {
+        return _currentValue;
+    }
+
+    @Override
+    public void setCurrentValue(Object v) {
+        _currentValue = v;
+    }
+
+    public byte getTagType() {
+        return _tagType;
+    }
+
+    public byte getElementType() {
+        return _elementType;
+    }
+
+    public int getLength() {
+        return _length;
+    }
+
+    /**
+     * Resets the root context for reading another document; the child contexts are kept for
+     * reuse.
+     *
+     * @return the root context
+     */
+    NbtReadContext resetRoot() {
+        NbtReadContext root = this;
+        while (root._parent != null) {
+            root = root._parent;
+        }
+        root.reset(TYPE_ROOT, NbtConstants.TAG_END, NbtConstants.TAG_END, 0);
+        return root;
+    }
+
+    /**
+     * Moves to the next entry of this context.
+     */
+    void advance() {
+        ++_index;
+    }
+
+    /**
+     * Whether a list or typed array context has elements left.
+     */
+    boolean hasMoreElements() {
+        return _index + 1 < _length;
+    }
+}
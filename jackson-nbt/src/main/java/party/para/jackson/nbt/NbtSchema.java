@@ -0,0 +1,69 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.FormatSchema;
+
+import java.util.zip.Deflater;
+
+/**
+ * NBT Schema.
+ * <p>
+ * Per-writer output settings, overriding the defaults of the {@link NbtFactory}:
+ * <pre>
+ * mapper.writer(NbtSchema.compressed(NbtCompression.GZIP).withCompressionLevel(9))
+ *         .writeValue(out, value);
+ * </pre>
+ * Instances are immutable.
+ */
+public class NbtSchema implements FormatSchema {
+    public static final String SCHEMA_TYPE = "NBT";
+
+    /**
+     * Uncompressed output.
+     */
+    public static final NbtSchema DEFAULT = new NbtSchema(NbtCompression.NONE, Deflater.DEFAULT_COMPRESSION);
+
+    private final NbtCompression _compression;
+
+    private final int _compressionLevel;
+
+    protected NbtSchema(NbtCompression compression, int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        }
+        _compression = compression;
+        _compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Schema that writes output with given compression, at the default compression level.
+     */
+    public static NbtSchema compressed(NbtCompression compression) {
+        return new NbtSchema(compression, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public NbtSchema withCompression(NbtCompression compression) {
+        return (compression == _compression) ? this : new NbtSchema(compression, _compressionLevel);
+    }
+
+    /**
+     * @param level compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *              or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public NbtSchema withCompressionLevel(int level) {
+        return (level == _compressionLevel) ? this : new NbtSchema(_compression, level);
+    }
+
+    public NbtCompression getCompression() {
+        return _compression;
+    }
+
+    public int getCompressionLevel() {
+        return _compressionLevel;
+    }
+
+    @Override
+    public String getSchemaType() {
+        return SCHEMA_TYPE;
+    }
+}
@@ -0,0 +1,171 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import net.kyori.adventure.nbt.BinaryTag;
+import party.para.jackson.nbt.entity.LazyBinaryTags;
+
+import java.io.IOException;
+
+/**
+ * Value that is already encoded as NBT: a tag type and the encoded payload of a tag of that
+ * type. Serialized with a {@link NbtGenerator}, the payload is copied into the output verbatim,
+ * after the type id and name that the surrounding structure needs (see
+ * {@link NbtGenerator#writeRawValue(RawNbtValue)}); this is how a cached fragment, such as a
+ * compound, is embedded without being decoded and encoded again.
+ * <p>
+ * The payload is not validated: it has to be a complete and valid encoding of a tag of the given
+ * type, or the output will not be valid NBT. A {@link TokenBuffer} keeps the value as an
+ * embedded object, so that it is replayed verbatim; other generators get the tokens of the
+ * fragment.
+ */
+public final class RawNbtValue implements JsonSerializable {
+    private static final NbtFactory TOKEN_FACTORY = new NbtFactory();
+
+    private final byte _type;
+    private final byte[] _data;
+    private final int _offset;
+    private final int _length;
+
+    private RawNbtValue(byte type, byte[] data, int offset, int length) {
+        if (type <= NbtConstants.TAG_END || type > NbtConstants.TAG_LONG_ARRAY) {
+            throw new IllegalArgumentException("Invalid NBT tag type " + type);
+        }
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IllegalArgumentException(String.format("Invalid payload range: offset %d, length %d of %d bytes",
+                    offset, length, data.length));
+        }
+        _type = type;
+        _data = data;
+        _offset = offset;
+        _length = length;
+    }
+
+    /**
+     * @param type    tag type id, see {@link NbtConstants}
+     * @param payload encoded payload of a tag of that type; not copied, so it must not change
+     */
+    public static RawNbtValue of(byte type, byte[] payload) {
+        return new RawNbtValue(type, payload, 0, payload.length);
+    }
+
+    public static RawNbtValue of(byte type, byte[] payload, int offset, int length) {
+        return new RawNbtValue(type, payload, offset, length);
+    }
+
+    /**
+     * @param document encoded NBT document, as written by {@link NbtMapper}: the root tag type,
+     *                 name and payload. Not copied, so it must not change. The name of the root
+     *                 tag is dropped.
+     */
+    public static RawNbtValue ofDocument(byte[] document) {
+        if (document.length < 3) {
+            throw new IllegalArgumentException("Truncated NBT document of " + document.length + " bytes");
+        }
+        final int nameLength = ((document[1] & 0xFF) << 8) | (document[2] & 0xFF);
+        final int offset = 3 + nameLength;
+        if (offset > document.length) {
+            throw new IllegalArgumentException("Truncated NBT document of " + document.length + " bytes");
+        }
+        return new RawNbtValue(document[0], document, offset, document.length - offset);
+    }
+
+    /**
+     * @return tag type id, see {@link NbtConstants}
+     */
+    public byte getType() {
+        return _type;
+    }
+
+    /**
+     * @return array holding the encoded payload; not a copy
+     */
+    public byte[] getData() {
+        return _data;
+    }
+
+    public int getOffset() {
+        return _offset;
+    }
+
+    public int getLength() {
+        return _length;
+    }
+
+    /**
+     * @return the value as a NBT document with an empty root name
+     */
+    public byte[] toDocument() {
+        final byte[] document = new byte[3 + _length];
+        document[0] = _type;
+        System.arraycopy(_data, _offset, document, 3, _length);
+        return document;
+    }
+
+    /**
+     * @return the value as an adventure tag; compounds and lists are read-only views over the
+     * payload, see {@link LazyBinaryTags}
+     */
+    public BinaryTag toTag() {
+        return LazyBinaryTags.view(toDocument());
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (gen instanceof NbtGenerator) {
+            ((NbtGenerator) gen).writeRawValue(this);
+        } else if (gen instanceof TokenBuffer) {
+            // kept as is, so that the tag types survive buffering
+            gen.writeEmbeddedObject(this);
+        } else {
+            try (JsonParser p = TOKEN_FACTORY.createParser(toDocument())) {
+                p.nextToken();
+                gen.copyCurrentStructure(p);
+            }
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        // no type id: like JSON raw values, the content is taken as is
+        serialize(gen, serializers);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof RawNbtValue)) {
+            return false;
+        }
+        final RawNbtValue other = (RawNbtValue) o;
+        if (_type != other._type || _length != other._length) {
+            return false;
+        }
+        for (int i = 0; i < _length; i++) {
+            if (_data[_offset + i] != other._data[other._offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = _type;
+        for (int i = _offset, end = _offset + _length; i < end; i++) {
+            h = 31 * h + _data[i];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[RawNbtValue of type %d, %d bytes]", _type, _length);
+    }
+}
@@ -0,0 +1,171 @@
+package party.para.jackson.nbt.async;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.async.NonBlockingInputFeeder;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+import party.para.jackson.nbt.NbtFactory;
+import party.para.jackson.nbt.NbtParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Non-blocking NBT Parser.
+ * <p>
+ * Content is fed in chunks through {@link ByteArrayFeeder#feedInput(byte[], int, int)};
+ * {@link #nextToken()} returns {@link JsonToken#NOT_AVAILABLE} when the next token is not
+ * complete yet, and picks up from there once more content has been fed.
+ * <p>
+ * Fed content is appended to an internal buffer that only keeps what has not been consumed, so
+ * memory use is bounded by the largest single token (a string, or a typed array read as an
+ * embedded object) rather than by the size of the document.
+ * <p>
+ * Instances are created with {@link NbtFactory#createNonBlockingByteArrayParser()}.
+ * Compressed input is not detected by this parser.
+ */
+public class NonBlockingNbtParser extends NbtParser implements ByteArrayFeeder {
+    /**
+     * Whether {@link #endOfInput()} has been called.
+     */
+    private boolean _endOfInput;
+
+    /**
+     * Whether the last call to {@link #nextToken()} ran out of content.
+     */
+    private boolean _needMoreInput = true;
+
+    public NonBlockingNbtParser(IOContext ctxt, int parserFeatures, int formatFeatures,
+                                ObjectCodec codec, ByteQuadsCanonicalizer sym) {
+        super(ctxt, parserFeatures, formatFeatures, codec, sym, null, ctxt.allocReadIOBuffer(), 0, 0, true);
+    }
+
+    /*
+    /**********************************************************
+    /* NonBlockingInputFeeder implementation
+    /**********************************************************
+     */
+
+    @Override
+    public boolean canParseAsync() {
+        return true;
+    }
+
+    @Override
+    public NonBlockingInputFeeder getNonBlockingInputFeeder() {
+        return this;
+    }
+
+    @Override
+    public boolean needMoreInput() {
+        return !_endOfInput && (_needMoreInput || _inputPtr >= _inputEnd);
+    }
+
+    @Override
+    public void feedInput(byte[] buf, int start, int end) throws IOException {
+        if (_endOfInput) {
+            _reportError("Already closed, can not feed more input");
+        }
+        if (end < start) {
+            _reportError("Input end (%d) may not be before start (%d)", end, start);
+        }
+        final int len = end - start;
+        // move what is left to the start, so the buffer only holds unconsumed content
+        final int remaining = _inputEnd - _inputPtr;
+        if (_inputPtr > 0) {
+            if (remaining > 0) {
+                System.arraycopy(_inputBuffer, _inputPtr, _inputBuffer, 0, remaining);
+            }
+            _currInputProcessed += _inputPtr;
+            _inputPtr = 0;
+            _inputEnd = remaining;
+        }
+        if (remaining + len > _inputBuffer.length) {
+            _inputBuffer = Arrays.copyOf(_inputBuffer, Math.max(remaining + len, _inputBuffer.length << 1));
+        }
+        System.arraycopy(buf, start, _inputBuffer, _inputEnd, len);
+        _inputEnd += len;
+        _needMoreInput = false;
+    }
+
+    @Override
+    public void endOfInput() {
+        _endOfInput = true;
+    }
+
+    /**
+     * Not supported: content is fed to a non-blocking parser, which already reads any number
+     * of documents.
+     */
+    @Override
+    public void reset(byte[] data, int offset, int len) {
+        throw new UnsupportedOperationException("Can not reset a non-blocking parser, feed it content instead");
+    }
+
+    /**
+     * Not supported, see {@link #reset(byte[], int, int)}.
+     */
+    @Override
+    public void reset(InputStream in) {
+        throw new UnsupportedOperationException("Can not reset a non-blocking parser, feed it content instead");
+    }
+
+    /*
+    /**********************************************************
+    /* Token decoding
+    /**********************************************************
+     */
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken t = super.nextToken();
+        _needMoreInput = (t == JsonToken.NOT_AVAILABLE);
+        return t;
+    }
+
+    @Override
+    protected JsonToken _eofInContent() throws IOException {
+        if (!_endOfInput) {
+            return JsonToken.NOT_AVAILABLE;
+        }
+        return super._eofInContent();
+    }
+
+    @Override
+    protected JsonToken _eofAtRoot() throws IOException {
+        return _endOfInput ? null : JsonToken.NOT_AVAILABLE;
+    }
+
+    /**
+     * Skips the rest of the current container token by token, since content that has not been
+     * fed yet can not be skipped over.
+     */
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if (_currToken != JsonToken.START_OBJECT && _currToken != JsonToken.START_ARRAY) {
+            return this;
+        }
+        int open = 1;
+        while (true) {
+            JsonToken t = nextToken();
+            if (t == null) {
+                _handleEOF();
+                return this;
+            }
+            if (t.isStructStart()) {
+                ++open;
+            } else if (t.isStructEnd()) {
+                if (--open == 0) {
+                    return this;
+                }
+            } else if (t == JsonToken.NOT_AVAILABLE) {
+                _reportError("Not enough content available for `skipChildren()`: non-blocking parser? (%s)",
+                        getClass().getName());
+            }
+        }
+    }
+}
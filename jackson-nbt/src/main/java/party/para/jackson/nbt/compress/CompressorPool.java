@@ -0,0 +1,106 @@
+package party.para.jackson.nbt.compress;
+
+import java.lang.ref.SoftReference;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Per-thread pool of {@link Inflater}s and {@link Deflater}s, along with the buffers used to
+ * feed them.
+ * <p>
+ * Creating an {@link Inflater} or {@link Deflater} allocates native memory that is only freed
+ * when it is ended or garbage collected, so instances are recycled like
+ * {@link com.fasterxml.jackson.core.util.BufferRecyclers} recycles buffers: each thread keeps
+ * a softly referenced instance of each, which is checked out for the lifetime of one stream.
+ * All instances use raw deflate (no wrapper), the GZIP and zlib wrappers are handled by the
+ * streams themselves.
+ */
+final class CompressorPool {
+    static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<SoftReference<CompressorPool>> _pools = new ThreadLocal<>();
+
+    private Inflater _inflater;
+
+    private byte[] _inflaterBuffer;
+
+    private Deflater _deflater;
+
+    private byte[] _deflaterBuffer;
+
+    private CompressorPool() {
+    }
+
+    private static CompressorPool _pool() {
+        SoftReference<CompressorPool> ref = _pools.get();
+        CompressorPool pool = (ref == null) ? null : ref.get();
+        if (pool == null) {
+            pool = new CompressorPool();
+            _pools.set(new SoftReference<>(pool));
+        }
+        return pool;
+    }
+
+    static Inflater acquireInflater() {
+        CompressorPool pool = _pool();
+        Inflater inflater = pool._inflater;
+        if (inflater == null) {
+            return new Inflater(true);
+        }
+        pool._inflater = null;
+        return inflater;
+    }
+
+    static void releaseInflater(Inflater inflater) {
+        CompressorPool pool = _pool();
+        if (pool._inflater == null) {
+            inflater.reset();
+            pool._inflater = inflater;
+        } else {
+            inflater.end();
+        }
+    }
+
+    static Deflater acquireDeflater(int level) {
+        CompressorPool pool = _pool();
+        Deflater deflater = pool._deflater;
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        pool._deflater = null;
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    static void releaseDeflater(Deflater deflater) {
+        CompressorPool pool = _pool();
+        if (pool._deflater == null) {
+            deflater.reset();
+            pool._deflater = deflater;
+        } else {
+            deflater.end();
+        }
+    }
+
+    static byte[] acquireBuffer(boolean forInflater) {
+        CompressorPool pool = _pool();
+        byte[] buf;
+        if (forInflater) {
+            buf = pool._inflaterBuffer;
+            pool._inflaterBuffer = null;
+        } else {
+            buf = pool._deflaterBuffer;
+            pool._deflaterBuffer = null;
+        }
+        return (buf == null) ? new byte[BUFFER_SIZE] : buf;
+    }
+
+    static void releaseBuffer(boolean forInflater, byte[] buf) {
+        CompressorPool pool = _pool();
+        if (forInflater) {
+            pool._inflaterBuffer = buf;
+        } else {
+            pool._deflaterBuffer = buf;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package party.para.jackson.nbt.compress;
+
+import party.para.jackson.nbt.NbtCompression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * Stream that compresses into a GZIP or zlib wrapped deflate stream, using a pooled {@link Deflater}.
+ * <p>
+ * {@link #finish()} writes the trailer and returns the deflater to the pool, but leaves the
+ * underlying stream open; {@link #close()} does both.
+ */
+public class DeflatingOutputStream extends OutputStream {
+    private static final byte[] GZIP_HEADER = {0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    private final OutputStream _out;
+
+    private final NbtCompression _compression;
+
+    private final Checksum _checksum;
+
+    private Deflater _deflater;
+
+    private byte[] _buffer;
+
+    private boolean _finished;
+
+    private final byte[] _singleByte = new byte[1];
+
+    /**
+     * @param compression {@link NbtCompression#GZIP} or {@link NbtCompression#ZLIB}
+     * @param level compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *              or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public DeflatingOutputStream(NbtCompression compression, int level, OutputStream out) throws IOException {
+        _out = out;
+        _compression = compression;
+        _checksum = (compression == NbtCompression.GZIP) ? new CRC32() : new Adler32();
+        _deflater = CompressorPool.acquireDeflater(level);
+        _buffer = CompressorPool.acquireBuffer(false);
+        if (compression == NbtCompression.GZIP) {
+            out.write(GZIP_HEADER);
+        } else {
+            out.write(0x78);
+            out.write(_zlibLevelFlags(level));
+        }
+    }
+
+    /**
+     * Second byte of the zlib header: the compression level hint, made to pass the header check.
+     */
+    private static int _zlibLevelFlags(int level) {
+        int hint;
+        if (level == Deflater.DEFAULT_COMPRESSION || level == 6) {
+            hint = 2;
+        } else if (level < 2) {
+            hint = 0;
+        } else if (level < 6) {
+            hint = 1;
+        } else {
+            hint = 3;
+        }
+        int flg = hint << 6;
+        return flg + (31 - ((0x78 << 8) | flg) % 31) % 31;
+    }
+
+    /**
+     * @return stream that compressed output goes to
+     */
+    public OutputStream getTarget() {
+        return _out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        _singleByte[0] = (byte) b;
+        write(_singleByte, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (_finished) {
+            throw new IOException("Write beyond end of " + _compression + " stream");
+        }
+        if (len == 0) {
+            return;
+        }
+        _checksum.update(b, off, len);
+        _deflater.setInput(b, off, len);
+        while (!_deflater.needsInput()) {
+            _deflate();
+        }
+    }
+
+    private void _deflate() throws IOException {
+        int count = _deflater.deflate(_buffer, 0, _buffer.length);
+        if (count > 0) {
+            _out.write(_buffer, 0, count);
+        }
+    }
+
+    /**
+     * Writes out all data written so far, with {@link Deflater#SYNC_FLUSH}, so that a reader can
+     * decompress it without waiting for more; the underlying stream is then flushed. Since each
+     * flush ends the current deflate block, frequent flushing costs some compression.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!_finished) {
+            int count;
+            do {
+                count = _deflater.deflate(_buffer, 0, _buffer.length, Deflater.SYNC_FLUSH);
+                if (count > 0) {
+                    _out.write(_buffer, 0, count);
+                }
+            } while (count == _buffer.length);
+        }
+        _out.flush();
+    }
+
+    /**
+     * Writes out the remaining compressed data and the trailer, and returns the deflater to the
+     * pool. The underlying stream is neither flushed nor closed.
+     */
+    public void finish() throws IOException {
+        if (_finished) {
+            return;
+        }
+        _finished = true;
+        try {
+            _deflater.finish();
+            while (!_deflater.finished()) {
+                _deflate();
+            }
+            final long check = _checksum.getValue();
+            if (_compression == NbtCompression.GZIP) {
+                _writeIntLE((int) check);
+                _writeIntLE((int) _deflater.getBytesRead());
+            } else {
+                _out.write((int) (check >> 24));
+                _out.write((int) (check >> 16));
+                _out.write((int) (check >> 8));
+                _out.write((int) check);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void _writeIntLE(int v) throws IOException {
+        _out.write(v);
+        _out.write(v >> 8);
+        _out.write(v >> 16);
+        _out.write(v >> 24);
+    }
+
+    /**
+     * Returns the deflater and buffer to the pool, without writing anything more.
+     */
+    public void release() {
+        _finished = true;
+        Deflater deflater = _deflater;
+        if (deflater != null) {
+            _deflater = null;
+            CompressorPool.releaseDeflater(deflater);
+        }
+        byte[] buf = _buffer;
+        if (buf != null) {
+            _buffer = null;
+            CompressorPool.releaseBuffer(false, buf);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            _out.close();
+        }
+    }
+}
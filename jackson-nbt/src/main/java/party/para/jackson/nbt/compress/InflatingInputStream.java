@@ -0,0 +1,292 @@
+package party.para.jackson.nbt.compress;
+
+import party.para.jackson.nbt.NbtCompression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Stream that decompresses a GZIP or zlib wrapped deflate stream, using a pooled {@link Inflater}.
+ * <p>
+ * Unlike {@link java.util.zip.GZIPInputStream} this does not allocate an inflater per stream,
+ * and it can be handed bytes that have already been read from the source (to detect the
+ * compression) so nothing has to be pushed back.
+ * The inflater is returned to the pool as soon as the end of the compressed data is reached,
+ * or when the stream is {@link #release() released} or closed.
+ */
+public class InflatingInputStream extends InputStream {
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+
+    private static final int ZLIB_FDICT = 0x20;
+
+    private final InputStream _in;
+
+    private final NbtCompression _compression;
+
+    private final Checksum _checksum;
+
+    private Inflater _inflater;
+
+    private byte[] _buffer;
+
+    private int _bufferPtr;
+
+    private int _bufferEnd;
+
+    private boolean _finished;
+
+    private final byte[] _singleByte = new byte[1];
+
+    /**
+     * @param compression {@link NbtCompression#GZIP} or {@link NbtCompression#ZLIB}
+     * @param in source of compressed data
+     * @param prefix bytes already read from {@code in}, to be decompressed first
+     */
+    public InflatingInputStream(NbtCompression compression, InputStream in,
+                                byte[] prefix, int offset, int len) throws IOException {
+        _in = in;
+        _compression = compression;
+        _checksum = (compression == NbtCompression.GZIP) ? new CRC32() : new Adler32();
+        byte[] buf = CompressorPool.acquireBuffer(true);
+        if (buf.length < len) {
+            buf = new byte[len];
+        }
+        System.arraycopy(prefix, offset, buf, 0, len);
+        _buffer = buf;
+        _bufferEnd = len;
+        _inflater = CompressorPool.acquireInflater();
+        try {
+            if (compression == NbtCompression.GZIP) {
+                _readGzipHeader();
+            } else {
+                _readZlibHeader();
+            }
+        } catch (IOException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Wrapper format
+    /**********************************************************
+     */
+
+    private void _readGzipHeader() throws IOException {
+        if (_readByte() != 0x1F || _readByte() != 0x8B) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (_readByte() != 8) {
+            throw new ZipException("Unsupported GZIP compression method");
+        }
+        final int flags = _readByte();
+        // modification time, extra flags and operating system
+        _skipBytes(6);
+        if ((flags & GZIP_FEXTRA) != 0) {
+            _skipBytes(_readByte() | (_readByte() << 8));
+        }
+        if ((flags & GZIP_FNAME) != 0) {
+            while (_readByte() != 0) {
+            }
+        }
+        if ((flags & GZIP_FCOMMENT) != 0) {
+            while (_readByte() != 0) {
+            }
+        }
+        if ((flags & GZIP_FHCRC) != 0) {
+            _skipBytes(2);
+        }
+    }
+
+    private void _readGzipTrailer() throws IOException {
+        long crc = _readIntLE() & 0xFFFFFFFFL;
+        long size = _readIntLE() & 0xFFFFFFFFL;
+        if (crc != _checksum.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+        }
+        if (size != (_inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt GZIP trailer: size mismatch");
+        }
+    }
+
+    private void _readZlibHeader() throws IOException {
+        final int cmf = _readByte();
+        final int flg = _readByte();
+        if ((cmf & 0x0F) != 8 || ((cmf << 8) | flg) % 31 != 0) {
+            throw new ZipException("Not in zlib format");
+        }
+        if ((flg & ZLIB_FDICT) != 0) {
+            throw new ZipException("zlib streams with a preset dictionary are not supported");
+        }
+    }
+
+    private void _readZlibTrailer() throws IOException {
+        long adler = ((long) _readByte() << 24) | (_readByte() << 16) | (_readByte() << 8) | _readByte();
+        if (adler != _checksum.getValue()) {
+            throw new ZipException("Corrupt zlib trailer: checksum mismatch");
+        }
+    }
+
+    private int _readByte() throws IOException {
+        if (_bufferPtr >= _bufferEnd) {
+            _fill();
+        }
+        return _buffer[_bufferPtr++] & 0xFF;
+    }
+
+    private int _readIntLE() throws IOException {
+        return _readByte() | (_readByte() << 8) | (_readByte() << 16) | (_readByte() << 24);
+    }
+
+    private void _skipBytes(int count) throws IOException {
+        while (count > 0) {
+            if (_bufferPtr >= _bufferEnd) {
+                _fill();
+            }
+            int n = Math.min(count, _bufferEnd - _bufferPtr);
+            _bufferPtr += n;
+            count -= n;
+        }
+    }
+
+    private void _fill() throws IOException {
+        int count = _in.read(_buffer, 0, _buffer.length);
+        if (count < 0) {
+            throw new EOFException("Unexpected end of " + _compression + " compressed NBT input");
+        }
+        _bufferPtr = 0;
+        _bufferEnd = count;
+    }
+
+    /*
+    /**********************************************************
+    /* InputStream implementation
+    /**********************************************************
+     */
+
+    @Override
+    public int read() throws IOException {
+        return (read(_singleByte, 0, 1) < 0) ? -1 : (_singleByte[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (_finished) {
+            return -1;
+        }
+        if (_inflater == null) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        try {
+            while (true) {
+                final int count = _inflater.inflate(b, off, len);
+                if (count > 0) {
+                    _checksum.update(b, off, count);
+                    return count;
+                }
+                if (_inflater.finished()) {
+                    _finish();
+                    if (_finished) {
+                        return -1;
+                    }
+                    continue;
+                }
+                if (_inflater.needsDictionary()) {
+                    throw new ZipException("Deflate stream requires a preset dictionary");
+                }
+                if (_inflater.needsInput()) {
+                    if (_bufferPtr >= _bufferEnd) {
+                        _fill();
+                    }
+                    _inflater.setInput(_buffer, _bufferPtr, _bufferEnd - _bufferPtr);
+                    _bufferPtr = _bufferEnd;
+                }
+            }
+        } catch (DataFormatException e) {
+            String msg = e.getMessage();
+            throw new ZipException((msg != null) ? msg : "Invalid deflate data");
+        }
+    }
+
+    private void _finish() throws IOException {
+        // whatever the inflater has not consumed belongs to the trailer
+        _bufferPtr = _bufferEnd - _inflater.getRemaining();
+        if (_compression == NbtCompression.GZIP) {
+            _readGzipTrailer();
+            if (_startNextMember()) {
+                return;
+            }
+        } else {
+            _readZlibTrailer();
+        }
+        _finished = true;
+        release();
+    }
+
+    /**
+     * Starts the next member of a GZIP stream, if another one follows: like
+     * {@link java.util.zip.GZIPInputStream}, concatenated members (such as compressed records
+     * appended to a file) are read as a single stream.
+     *
+     * @return whether a member follows
+     */
+    private boolean _startNextMember() throws IOException {
+        if (_bufferPtr >= _bufferEnd) {
+            int count = _in.read(_buffer, 0, _buffer.length);
+            if (count <= 0) {
+                return false;
+            }
+            _bufferPtr = 0;
+            _bufferEnd = count;
+        }
+        if ((_buffer[_bufferPtr] & 0xFF) != 0x1F) {
+            return false;
+        }
+        _inflater.reset();
+        _checksum.reset();
+        _readGzipHeader();
+        return true;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (_finished || _inflater == null) ? 0 : 1;
+    }
+
+    /**
+     * Returns the inflater and buffer to the pool without closing the underlying stream.
+     * The stream can not be read any more after this.
+     */
+    public void release() {
+        Inflater inflater = _inflater;
+        if (inflater != null) {
+            _inflater = null;
+            CompressorPool.releaseInflater(inflater);
+        }
+        byte[] buf = _buffer;
+        if (buf != null && buf.length == CompressorPool.BUFFER_SIZE) {
+            CompressorPool.releaseBuffer(true, buf);
+        }
+        _buffer = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        _in.close();
+    }
+}
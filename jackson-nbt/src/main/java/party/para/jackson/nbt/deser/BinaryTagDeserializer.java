@@ -0,0 +1,231 @@
+package party.para.jackson.nbt.deser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.type.LogicalType;
+import net.kyori.adventure.nbt.*;
+import party.para.jackson.nbt.NbtParser;
+import party.para.jackson.nbt.NbtReadContext;
+import party.para.jackson.nbt.RawNbtValue;
+import party.para.jackson.nbt.entity.MutableCompoundTagImpl;
+import party.para.jackson.nbt.writer.ListTagWriter;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static party.para.jackson.nbt.NbtConstants.*;
+
+/**
+ * Deserializer for adventure {@link BinaryTag}s, which builds the tree straight from the
+ * tokens instead of going through a {@code JsonNode}.
+ * <p>
+ * With a {@link NbtParser} the tags keep their NBT types: numbers are read as the type they
+ * were encoded with, and {@code BYTE_ARRAY}, {@code INT_ARRAY} and {@code LONG_ARRAY} tags stay
+ * arrays whether or not {@link NbtParser.Feature#READ_TYPED_ARRAYS_AS_EMBEDDED_OBJECTS} is
+ * enabled. Compounds are {@link MutableCompoundTagImpl}s and lists of numbers are
+ * primitive-backed, see {@link ListTagWriter}.
+ *
+ * @param <T> Type of tag expected
+ */
+public class BinaryTagDeserializer<T extends BinaryTag> extends StdDeserializer<T> {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_ARRAY_CAPACITY = 4096;
+
+    public BinaryTagDeserializer(Class<T> tagType) {
+        super(tagType);
+    }
+
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        final BinaryTag tag = _deserializeTag(p, ctxt);
+        if (!handledType().isInstance(tag)) {
+            return _reportMismatch(ctxt, tag);
+        }
+        @SuppressWarnings("unchecked")
+        final T result = (T) tag;
+        return result;
+    }
+
+    @Override
+    public LogicalType logicalType() {
+        return LogicalType.Untyped;
+    }
+
+    private T _reportMismatch(DeserializationContext ctxt, BinaryTag tag) throws IOException {
+        return ctxt.reportInputMismatch(this, "Can not deserialize %s out of %s tag",
+                handledType().getSimpleName(), tag.type());
+    }
+
+    protected BinaryTag _deserializeTag(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.currentTokenId()) {
+            case JsonTokenId.ID_START_OBJECT:
+                p.nextToken();
+                return _deserializeCompound(p, ctxt);
+            case JsonTokenId.ID_FIELD_NAME:
+            case JsonTokenId.ID_END_OBJECT:
+                return _deserializeCompound(p, ctxt);
+            case JsonTokenId.ID_START_ARRAY:
+                if (p instanceof NbtParser) {
+                    final NbtReadContext list = ((NbtParser) p).getParsingContext();
+                    switch (list.getTagType()) {
+                        case TAG_BYTE_ARRAY:
+                            return _deserializeByteArray(p, list.getLength());
+                        case TAG_INT_ARRAY:
+                            return _deserializeIntArray(p, list.getLength());
+                        case TAG_LONG_ARRAY:
+                            return _deserializeLongArray(p, list.getLength());
+                        default:
+                            break;
+                    }
+                }
+                return _deserializeList(p, ctxt);
+            case JsonTokenId.ID_STRING:
+                return StringBinaryTag.of(p.getText());
+            case JsonTokenId.ID_NUMBER_INT:
+            case JsonTokenId.ID_NUMBER_FLOAT:
+                return _numberTag(p.getNumberValue());
+            case JsonTokenId.ID_TRUE:
+                return ByteBinaryTag.ONE;
+            case JsonTokenId.ID_FALSE:
+                return ByteBinaryTag.ZERO;
+            case JsonTokenId.ID_EMBEDDED_OBJECT: {
+                final Object value = p.getEmbeddedObject();
+                if (value instanceof BinaryTag) {
+                    return (BinaryTag) value;
+                }
+                if (value instanceof RawNbtValue) {
+                    return ((RawNbtValue) value).toTag();
+                }
+                if (value instanceof byte[]) {
+                    return ByteArrayBinaryTag.of((byte[]) value);
+                }
+                if (value instanceof int[]) {
+                    return IntArrayBinaryTag.of((int[]) value);
+                }
+                if (value instanceof long[]) {
+                    return LongArrayBinaryTag.of((long[]) value);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+        return (BinaryTag) ctxt.handleUnexpectedToken(handledType(), p);
+    }
+
+    /**
+     * Reads the entries of a compound, from its first field name (or end) on.
+     */
+    private BinaryTag _deserializeCompound(JsonParser p, DeserializationContext ctxt) throws IOException {
+        final MutableCompoundTagImpl compound = new MutableCompoundTagImpl();
+        for (String name = p.currentName(); p.hasToken(JsonToken.FIELD_NAME); name = p.nextFieldName()) {
+            p.nextToken();
+            if (p.hasToken(JsonToken.VALUE_NULL)) {
+                // NBT has no null: the entry is left out
+                continue;
+            }
+            compound.put(name, _deserializeTag(p, ctxt));
+        }
+        return compound;
+    }
+
+    private BinaryTag _deserializeList(JsonParser p, DeserializationContext ctxt) throws IOException {
+        final ListTagWriter list = new ListTagWriter();
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t == JsonToken.VALUE_NUMBER_INT || t == JsonToken.VALUE_NUMBER_FLOAT) {
+                final Number n = p.getNumberValue();
+                if (n instanceof Integer) {
+                    list.addInt(n.intValue());
+                } else if (n instanceof Long) {
+                    list.addLong(n.longValue());
+                } else if (n instanceof Double) {
+                    list.addDouble(n.doubleValue());
+                } else if (n instanceof Byte) {
+                    list.addByte(n.byteValue());
+                } else if (n instanceof Short) {
+                    list.addShort(n.shortValue());
+                } else if (n instanceof Float) {
+                    list.addFloat(n.floatValue());
+                } else {
+                    list.add(_numberTag(n));
+                }
+            } else if (t == JsonToken.VALUE_NULL) {
+                return ctxt.reportInputMismatch(this, "Null is not in list.");
+            } else {
+                list.add(_deserializeTag(p, ctxt));
+            }
+        }
+        return list.getTag();
+    }
+
+    /*
+     * Typed arrays are filled as their elements arrive: like the parser does, a bogus length
+     * does not make us allocate more than the input holds.
+     */
+
+    private static BinaryTag _deserializeByteArray(JsonParser p, int length) throws IOException {
+        byte[] value = new byte[Math.min(length, INITIAL_ARRAY_CAPACITY)];
+        int size = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (size == value.length) {
+                value = Arrays.copyOf(value, _grownCapacity(size, length));
+            }
+            value[size++] = (byte) p.getIntValue();
+        }
+        return ByteArrayBinaryTag.of((size == value.length) ? value : Arrays.copyOf(value, size));
+    }
+
+    private static BinaryTag _deserializeIntArray(JsonParser p, int length) throws IOException {
+        int[] value = new int[Math.min(length, INITIAL_ARRAY_CAPACITY)];
+        int size = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (size == value.length) {
+                value = Arrays.copyOf(value, _grownCapacity(size, length));
+            }
+            value[size++] = p.getIntValue();
+        }
+        return IntArrayBinaryTag.of((size == value.length) ? value : Arrays.copyOf(value, size));
+    }
+
+    private static BinaryTag _deserializeLongArray(JsonParser p, int length) throws IOException {
+        long[] value = new long[Math.min(length, INITIAL_ARRAY_CAPACITY)];
+        int size = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (size == value.length) {
+                value = Arrays.copyOf(value, _grownCapacity(size, length));
+            }
+            value[size++] = p.getLongValue();
+        }
+        return LongArrayBinaryTag.of((size == value.length) ? value : Arrays.copyOf(value, size));
+    }
+
+    private static int _grownCapacity(int size, int length) {
+        return Math.max(size + 1, Math.min(length, size << 1));
+    }
+
+    private static BinaryTag _numberTag(Number n) {
+        if (n instanceof Integer) {
+            return IntBinaryTag.of(n.intValue());
+        }
+        if (n instanceof Long || n instanceof BigInteger) {
+            return LongBinaryTag.of(n.longValue());
+        }
+        if (n instanceof Byte) {
+            return ByteBinaryTag.of(n.byteValue());
+        }
+        if (n instanceof Short) {
+            return ShortBinaryTag.of(n.shortValue());
+        }
+        if (n instanceof Float) {
+            return FloatBinaryTag.of(n.floatValue());
+        }
+        // Double or BigDecimal
+        return DoubleBinaryTag.of(n.doubleValue());
+    }
+}
@@ -0,0 +1,185 @@
+package party.para.jackson.nbt.deser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.PrimitiveArrayDeserializers;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.type.LogicalType;
+import com.fasterxml.jackson.databind.util.AccessPattern;
+import party.para.jackson.nbt.NbtParser;
+
+import java.io.IOException;
+
+/**
+ * Deserializer for primitive arrays that accepts the bulk values produced by
+ * {@link NbtParser.Feature#READ_TYPED_ARRAYS_AS_EMBEDDED_OBJECTS}.
+ * <p>
+ * A {@code VALUE_EMBEDDED_OBJECT} holding a compatible primitive array is taken over directly;
+ * any other content is handed to the standard databind deserializer for the array type.
+ * {@code byte[]} needs no such wrapper, as databind already accepts embedded byte arrays.
+ *
+ * @param <T> Primitive array type
+ */
+public abstract class TypedArrayDeserializer<T> extends StdDeserializer<T> implements ContextualDeserializer {
+    private static final long serialVersionUID = 1L;
+
+    protected final JsonDeserializer<Object> _delegate;
+
+    @SuppressWarnings("unchecked")
+    protected TypedArrayDeserializer(Class<T> arrayType, JsonDeserializer<?> delegate) {
+        super(arrayType);
+        _delegate = (JsonDeserializer<Object>) delegate;
+    }
+
+    /**
+     * @return the array for given embedded value, or null if it can not be converted
+     */
+    protected abstract T _fromEmbedded(Object value);
+
+    protected abstract TypedArrayDeserializer<T> withDelegate(JsonDeserializer<?> delegate);
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+        JsonDeserializer<?> delegate = _delegate;
+        if (delegate instanceof ContextualDeserializer) {
+            delegate = ((ContextualDeserializer) delegate).createContextual(ctxt, property);
+        }
+        return (delegate == _delegate) ? this : withDelegate(delegate);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_EMBEDDED_OBJECT)) {
+            T result = _fromEmbedded(p.getEmbeddedObject());
+            if (result != null) {
+                return result;
+            }
+        }
+        return (T) _delegate.deserialize(p, ctxt);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt, T intoValue) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_EMBEDDED_OBJECT)) {
+            T result = _fromEmbedded(p.getEmbeddedObject());
+            if (result != null) {
+                return result;
+            }
+        }
+        return (T) _delegate.deserialize(p, ctxt, intoValue);
+    }
+
+    @Override
+    public Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer) throws IOException {
+        return _delegate.deserializeWithType(p, ctxt, typeDeserializer);
+    }
+
+    @Override
+    public LogicalType logicalType() {
+        return LogicalType.Array;
+    }
+
+    @Override
+    public Boolean supportsUpdate(DeserializationConfig config) {
+        return _delegate.supportsUpdate(config);
+    }
+
+    @Override
+    public AccessPattern getEmptyAccessPattern() {
+        return _delegate.getEmptyAccessPattern();
+    }
+
+    @Override
+    public Object getEmptyValue(DeserializationContext ctxt) throws JsonMappingException {
+        return _delegate.getEmptyValue(ctxt);
+    }
+
+    /**
+     * Deserializer for {@code int[]}; also widens embedded {@code byte[]}.
+     */
+    public static class IntArrayDeserializer extends TypedArrayDeserializer<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        public IntArrayDeserializer() {
+            this(PrimitiveArrayDeserializers.forType(Integer.TYPE));
+        }
+
+        protected IntArrayDeserializer(JsonDeserializer<?> delegate) {
+            super(int[].class, delegate);
+        }
+
+        @Override
+        protected int[] _fromEmbedded(Object value) {
+            if (value instanceof int[]) {
+                return (int[]) value;
+            }
+            if (value instanceof byte[]) {
+                byte[] src = (byte[]) value;
+                int[] result = new int[src.length];
+                for (int i = 0; i < src.length; i++) {
+                    result[i] = src[i];
+                }
+                return result;
+            }
+            return null;
+        }
+
+        @Override
+        protected IntArrayDeserializer withDelegate(JsonDeserializer<?> delegate) {
+            return new IntArrayDeserializer(delegate);
+        }
+    }
+
+    /**
+     * Deserializer for {@code long[]}; also widens embedded {@code byte[]} and {@code int[]}.
+     */
+    public static class LongArrayDeserializer extends TypedArrayDeserializer<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        public LongArrayDeserializer() {
+            this(PrimitiveArrayDeserializers.forType(Long.TYPE));
+        }
+
+        protected LongArrayDeserializer(JsonDeserializer<?> delegate) {
+            super(long[].class, delegate);
+        }
+
+        @Override
+        protected long[] _fromEmbedded(Object value) {
+            if (value instanceof long[]) {
+                return (long[]) value;
+            }
+            if (value instanceof int[]) {
+                int[] src = (int[]) value;
+                long[] result = new long[src.length];
+                for (int i = 0; i < src.length; i++) {
+                    result[i] = src[i];
+                }
+                return result;
+            }
+            if (value instanceof byte[]) {
+                byte[] src = (byte[]) value;
+                long[] result = new long[src.length];
+                for (int i = 0; i < src.length; i++) {
+                    result[i] = src[i];
+                }
+                return result;
+            }
+            return null;
+        }
+
+        @Override
+        protected LongArrayDeserializer withDelegate(JsonDeserializer<?> delegate) {
+            return new LongArrayDeserializer(delegate);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * Base of the implementations of {@link CompoundBinaryTag}: typed getters look their key
+ * up once with {@link #get(String)} and check the type of the tag found. Equality is that of
+ * the entries, so that compounds of the implementations in this package holding the same tags
+ * are equal.
+ */
+public abstract class AbstractCompoundBinaryTag implements CompoundBinaryTag {
+    public boolean contains(final @NotNull String key, final @NotNull BinaryTagType<?> type) {
+        final @Nullable BinaryTag tag = this.get(key);
+        return tag != null && type.test(tag.type());
+    }
+
+    @Override
+    public byte getByte(final @NotNull String key, final byte defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.BYTE.test(tag.type())) {
+            return ((NumberBinaryTag) tag).byteValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public short getShort(final @NotNull String key, final short defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.SHORT.test(tag.type())) {
+            return ((NumberBinaryTag) tag).shortValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int getInt(final @NotNull String key, final int defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.INT.test(tag.type())) {
+            return ((NumberBinaryTag) tag).intValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public long getLong(final @NotNull String key, final long defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.LONG.test(tag.type())) {
+            return ((NumberBinaryTag) tag).longValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public float getFloat(final @NotNull String key, final float defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.FLOAT.test(tag.type())) {
+            return ((NumberBinaryTag) tag).floatValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public double getDouble(final @NotNull String key, final double defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.DOUBLE.test(tag.type())) {
+            return ((NumberBinaryTag) tag).doubleValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public byte @NotNull [] getByteArray(final @NotNull String key) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.BYTE_ARRAY.test(tag.type())) {
+            return ((ByteArrayBinaryTag) tag).value();
+        }
+        return new byte[0];
+    }
+
+    @Override
+    public byte @NotNull [] getByteArray(final @NotNull String key, final byte @NotNull [] defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.BYTE_ARRAY.test(tag.type())) {
+            return ((ByteArrayBinaryTag) tag).value();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public @NotNull String getString(final @NotNull String key, final @NotNull String defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.STRING.test(tag.type())) {
+            return ((StringBinaryTag) tag).value();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public @NotNull ListBinaryTag getList(final @NotNull String key, final @NotNull ListBinaryTag defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.LIST.test(tag.type())) {
+            return (ListBinaryTag) tag;
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public @NotNull ListBinaryTag getList(final @NotNull String key, final @NotNull BinaryTagType<? extends BinaryTag> expectedType, final @NotNull ListBinaryTag defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.LIST.test(tag.type())) {
+            if (expectedType.test(((ListBinaryTag) tag).elementType())) {
+                return (ListBinaryTag) tag;
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public @NotNull CompoundBinaryTag getCompound(final @NotNull String key, final @NotNull CompoundBinaryTag defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.COMPOUND.test(tag.type())) {
+            return (CompoundBinaryTag) tag;
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public int @NotNull [] getIntArray(final @NotNull String key) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.INT_ARRAY.test(tag.type())) {
+            return ((IntArrayBinaryTag) tag).value();
+        }
+        return new int[0];
+    }
+
+    @Override
+    public int @NotNull [] getIntArray(final @NotNull String key, final int @NotNull [] defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.INT_ARRAY.test(tag.type())) {
+            return ((IntArrayBinaryTag) tag).value();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public long @NotNull [] getLongArray(final @NotNull String key) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.LONG_ARRAY.test(tag.type())) {
+            return ((LongArrayBinaryTag) tag).value();
+        }
+        return new long[0];
+    }
+
+    @Override
+    public long @NotNull [] getLongArray(final @NotNull String key, final long @NotNull [] defaultValue) {
+        final BinaryTag tag = this.get(key);
+        if (tag != null && BinaryTagTypes.LONG_ARRAY.test(tag.type())) {
+            return ((LongArrayBinaryTag) tag).value();
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Compounds are equal if they hold equal entries, as {@link Map}s are, whichever subclass
+     * they are. Adventure's own compounds are never equal to these, as they only accept their
+     * own class: see {@link ListBinaryTags#contentEquals(BinaryTag, BinaryTag)}.
+     */
+    @Override
+    public boolean equals(final Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (!(that instanceof AbstractCompoundBinaryTag)) {
+            return false;
+        }
+        final CompoundBinaryTag other = (CompoundBinaryTag) that;
+        int size = 0;
+        for (final Map.Entry<String, ? extends BinaryTag> entry : this) {
+            if (!entry.getValue().equals(other.get(entry.getKey()))) {
+                return false;
+            }
+            ++size;
+        }
+        return size == other.keySet().size();
+    }
+
+    @Override
+    public int hashCode() {
+        // same as a Map of the entries
+        int h = 0;
+        for (final Map.Entry<String, ? extends BinaryTag> entry : this) {
+            h += entry.getKey().hashCode() ^ entry.getValue().hashCode();
+        }
+        return h;
+    }
+}
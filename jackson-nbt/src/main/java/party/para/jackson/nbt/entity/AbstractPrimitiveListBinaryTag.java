@@ -0,0 +1,161 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.examination.ExaminableProperty;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Base of the mutable implementations of {@link ListBinaryTag} that keep their elements in a
+ * growable primitive array, instead of one tag object per element.
+ * <p>
+ * Tags are only created when elements are read as tags, e.g. with {@link #get(int)} or while
+ * iterating; the typed getter of the element type reads the array directly.
+ */
+public abstract class AbstractPrimitiveListBinaryTag implements ListBinaryTag {
+    protected int size;
+
+    /**
+     * @return a new tag holding the element at given index
+     */
+    protected abstract BinaryTag tagAt(int index);
+
+    /**
+     * Stores the value of given tag, which is of the element type, at given index.
+     */
+    protected abstract void storeAt(int index, BinaryTag tag);
+
+    /**
+     * Makes sure the array can hold at least given number of elements.
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Moves the elements after given index one position down.
+     */
+    protected abstract void removeAt(int index);
+
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * @return new capacity of an array of given length that has to hold at least given number of elements
+     */
+    static int grownCapacity(int length, int capacity) {
+        return Math.max(capacity, length + (length >> 1) + 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public @NotNull BinaryTag get(@Range(from = 0, to = Integer.MAX_VALUE) final int index) {
+        checkIndex(index);
+        return tagAt(index);
+    }
+
+    @Override
+    public @NotNull ListBinaryTag set(final int index, final @NotNull BinaryTag newTag, final @Nullable Consumer<? super BinaryTag> removed) {
+        checkIndex(index);
+        MutableListBinaryTagImpl.mustBeSameType(newTag, elementType());
+        final BinaryTag oldTag = (removed != null) ? tagAt(index) : null;
+        storeAt(index, newTag);
+        if (removed != null) {
+            removed.accept(oldTag);
+        }
+        return this;
+    }
+
+    @Override
+    public @NotNull ListBinaryTag remove(final int index, final @Nullable Consumer<? super BinaryTag> removed) {
+        checkIndex(index);
+        final BinaryTag oldTag = (removed != null) ? tagAt(index) : null;
+        removeAt(index);
+        --size;
+        if (removed != null) {
+            removed.accept(oldTag);
+        }
+        return this;
+    }
+
+    @Override
+    public @NotNull ListBinaryTag add(final BinaryTag tag) {
+        MutableListBinaryTagImpl.mustBeSameType(tag, elementType());
+        ensureCapacity(size + 1);
+        storeAt(size++, tag);
+        return this;
+    }
+
+    @Override
+    public @NotNull ListBinaryTag add(final Iterable<? extends BinaryTag> tagsToAdd) {
+        if (tagsToAdd instanceof Collection<?>) {
+            ensureCapacity(size + ((Collection<?>) tagsToAdd).size());
+        }
+        for (final BinaryTag tag : tagsToAdd) {
+            add(tag);
+        }
+        return this;
+    }
+
+    @Override
+    public @NotNull Stream<BinaryTag> stream() {
+        return IntStream.range(0, size).mapToObj(this::tagAt);
+    }
+
+    @Override
+    public Iterator<BinaryTag> iterator() {
+        return new Iterator<BinaryTag>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public BinaryTag next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return tagAt(index++);
+            }
+        };
+    }
+
+    @Override
+    public void forEach(final Consumer<? super BinaryTag> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(tagAt(i));
+        }
+    }
+
+    @Override
+    public Spliterator<BinaryTag> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.SIZED);
+    }
+
+    @Override
+    public @NotNull Stream<? extends ExaminableProperty> examinableProperties() {
+        return Stream.of(
+                ExaminableProperty.of("tags", stream().collect(Collectors.toList())),
+                ExaminableProperty.of("type", elementType())
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link BinaryTag} that is a view over the encoded bytes of its payload.
+ * <p>
+ * Views are read-only: their setters leave the view unchanged and return a mutable copy,
+ * so a view that is written back is always unchanged and its payload can be copied verbatim.
+ *
+ * @see LazyBinaryTags
+ */
+public interface LazyBinaryTag extends BinaryTag {
+    /**
+     * @return read-only buffer over the encoded payload of this tag (without type id and name)
+     */
+    @NotNull ByteBuffer payload();
+
+    /**
+     * Copies the encoded payload of this tag to given stream.
+     */
+    void writePayload(@NotNull OutputStream out) throws IOException;
+}
@@ -0,0 +1,276 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.*;
+import org.jetbrains.annotations.NotNull;
+import party.para.jackson.nbt.NbtConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lazy, byte-backed views of NBT documents.
+ * <p>
+ * Instead of decoding a whole document into a tree, {@link #view(byte[])} returns a
+ * {@link LazyCompoundBinaryTag} or {@link LazyListBinaryTag} over the encoded bytes: a
+ * compound indexes its keys on first access, and children are decoded when they are read.
+ * The document has to be uncompressed, and its bytes must not change while views are in use.
+ * Views cache what they decode, and are not thread-safe.
+ */
+public final class LazyBinaryTags {
+    private LazyBinaryTags() {
+    }
+
+    /**
+     * @param src encoded NBT document: root tag type, name and payload
+     * @return root tag of the document, a view if it is a compound or a list
+     */
+    public static @NotNull BinaryTag view(final byte @NotNull [] src) {
+        return view(ByteBuffer.wrap(src));
+    }
+
+    /**
+     * @param src buffer whose remaining bytes are an encoded NBT document
+     * @return root tag of the document, a view if it is a compound or a list
+     */
+    public static @NotNull BinaryTag view(final @NotNull ByteBuffer src) {
+        // absolute gets on a slice of our own: positions and byte order of src do not matter
+        final ByteBuffer buf = src.slice();
+        try {
+            final byte type = buf.get(0);
+            if (type == NbtConstants.TAG_END) {
+                throw new IllegalArgumentException("NBT document has no root tag");
+            }
+            return decode(buf, type, 3 + (buf.getShort(1) & 0xFFFF));
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    static IllegalArgumentException truncated(final RuntimeException cause) {
+        return new IllegalArgumentException("Truncated NBT data", cause);
+    }
+
+    /**
+     * @return a new tag holding the payload of given type at given offset; compounds and lists are views
+     */
+    static BinaryTag decode(final ByteBuffer buf, final byte type, final int offset) {
+        switch (type) {
+            case NbtConstants.TAG_BYTE:
+                return ByteBinaryTag.of(buf.get(offset));
+            case NbtConstants.TAG_SHORT:
+                return ShortBinaryTag.of(buf.getShort(offset));
+            case NbtConstants.TAG_INT:
+                return IntBinaryTag.of(buf.getInt(offset));
+            case NbtConstants.TAG_LONG:
+                return LongBinaryTag.of(buf.getLong(offset));
+            case NbtConstants.TAG_FLOAT:
+                return FloatBinaryTag.of(buf.getFloat(offset));
+            case NbtConstants.TAG_DOUBLE:
+                return DoubleBinaryTag.of(buf.getDouble(offset));
+            case NbtConstants.TAG_BYTE_ARRAY: {
+                final byte[] value = new byte[length(buf, offset, 1)];
+                final ByteBuffer data = buf.duplicate();
+                data.position(offset + 4);
+                data.get(value);
+                return ByteArrayBinaryTag.of(value);
+            }
+            case NbtConstants.TAG_STRING:
+                return StringBinaryTag.of(readUTF(buf, offset));
+            case NbtConstants.TAG_LIST:
+                return new LazyListBinaryTag(buf, offset);
+            case NbtConstants.TAG_COMPOUND:
+                return new LazyCompoundBinaryTag(buf, offset);
+            case NbtConstants.TAG_INT_ARRAY: {
+                final int[] value = new int[length(buf, offset, 4)];
+                for (int i = 0, p = offset + 4; i < value.length; i++, p += 4) {
+                    value[i] = buf.getInt(p);
+                }
+                return IntArrayBinaryTag.of(value);
+            }
+            case NbtConstants.TAG_LONG_ARRAY: {
+                final long[] value = new long[length(buf, offset, 8)];
+                for (int i = 0, p = offset + 4; i < value.length; i++, p += 8) {
+                    value[i] = buf.getLong(p);
+                }
+                return LongArrayBinaryTag.of(value);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown NBT tag type " + type);
+        }
+    }
+
+    /**
+     * @return offset right after the payload of given type at given offset
+     */
+    static int skip(final ByteBuffer buf, final byte type, int offset) {
+        switch (type) {
+            case NbtConstants.TAG_BYTE:
+            case NbtConstants.TAG_SHORT:
+            case NbtConstants.TAG_INT:
+            case NbtConstants.TAG_LONG:
+            case NbtConstants.TAG_FLOAT:
+            case NbtConstants.TAG_DOUBLE:
+                return offset + width(type);
+            case NbtConstants.TAG_BYTE_ARRAY:
+                return offset + 4 + length(buf, offset, 1);
+            case NbtConstants.TAG_STRING:
+                return offset + 2 + (buf.getShort(offset) & 0xFFFF);
+            case NbtConstants.TAG_INT_ARRAY:
+                return offset + 4 + length(buf, offset, 4) * 4;
+            case NbtConstants.TAG_LONG_ARRAY:
+                return offset + 4 + length(buf, offset, 8) * 8;
+            case NbtConstants.TAG_LIST: {
+                final byte elementType = buf.get(offset);
+                final int size = length(buf, offset + 1, 1);
+                offset += 5;
+                final int width = width(elementType);
+                if (width > 0) {
+                    return offset + checkedLength(buf, offset, size, width) * width;
+                }
+                for (int i = 0; i < size; i++) {
+                    offset = skip(buf, elementType, offset);
+                }
+                return offset;
+            }
+            case NbtConstants.TAG_COMPOUND:
+                for (byte entryType = buf.get(offset++); entryType != NbtConstants.TAG_END; entryType = buf.get(offset++)) {
+                    offset = skip(buf, entryType, offset + 2 + (buf.getShort(offset) & 0xFFFF));
+                }
+                return offset;
+            default:
+                throw new IllegalArgumentException("Unknown NBT tag type " + type);
+        }
+    }
+
+    /**
+     * @return length of the payload of fixed-width types, 0 for other types
+     */
+    static int width(final byte type) {
+        switch (type) {
+            case NbtConstants.TAG_BYTE:
+                return 1;
+            case NbtConstants.TAG_SHORT:
+                return 2;
+            case NbtConstants.TAG_INT:
+            case NbtConstants.TAG_FLOAT:
+                return 4;
+            case NbtConstants.TAG_LONG:
+            case NbtConstants.TAG_DOUBLE:
+                return 8;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Reads the length prefix at given offset of an array or list whose elements are at least
+     * {@code width} bytes long, and checks that the buffer can hold that many elements.
+     */
+    static int length(final ByteBuffer buf, final int offset, final int width) {
+        return checkedLength(buf, offset + 4, buf.getInt(offset), width);
+    }
+
+    private static int checkedLength(final ByteBuffer buf, final int offset, final int length, final int width) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative NBT array or list length " + length);
+        }
+        if ((long) length * width > buf.limit() - offset) {
+            throw truncated(new BufferUnderflowException());
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the modified UTF-8 string (the encoding of {@link java.io.DataInput#readUTF()})
+     * at given offset, prefixed with its length.
+     */
+    static String readUTF(final ByteBuffer buf, final int offset) {
+        final int len = buf.getShort(offset) & 0xFFFF;
+        int ptr = offset + 2;
+        final int end = ptr + len;
+        if (end > buf.limit()) {
+            throw truncated(new BufferUnderflowException());
+        }
+        final char[] out = new char[len];
+        int outPtr = 0;
+        while (ptr < end) {
+            final int c = buf.get(ptr++) & 0xFF;
+            if (c < 0x80) {
+                out[outPtr++] = (char) c;
+            } else if ((c & 0xE0) == 0xC0 && ptr < end) {
+                out[outPtr++] = (char) (((c & 0x1F) << 6) | (buf.get(ptr++) & 0x3F));
+            } else if ((c & 0xF0) == 0xE0 && ptr + 1 < end) {
+                out[outPtr++] = (char) (((c & 0x0F) << 12) | ((buf.get(ptr) & 0x3F) << 6) | (buf.get(ptr + 1) & 0x3F));
+                ptr += 2;
+            } else {
+                throw new IllegalArgumentException("Malformed modified UTF-8 string at offset " + (ptr - 1));
+            }
+        }
+        return new String(out, 0, outPtr);
+    }
+
+    /**
+     * @return the type with given id
+     */
+    static BinaryTagType<? extends BinaryTag> type(final byte id) {
+        switch (id) {
+            case NbtConstants.TAG_END:
+                return BinaryTagTypes.END;
+            case NbtConstants.TAG_BYTE:
+                return BinaryTagTypes.BYTE;
+            case NbtConstants.TAG_SHORT:
+                return BinaryTagTypes.SHORT;
+            case NbtConstants.TAG_INT:
+                return BinaryTagTypes.INT;
+            case NbtConstants.TAG_LONG:
+                return BinaryTagTypes.LONG;
+            case NbtConstants.TAG_FLOAT:
+                return BinaryTagTypes.FLOAT;
+            case NbtConstants.TAG_DOUBLE:
+                return BinaryTagTypes.DOUBLE;
+            case NbtConstants.TAG_BYTE_ARRAY:
+                return BinaryTagTypes.BYTE_ARRAY;
+            case NbtConstants.TAG_STRING:
+                return BinaryTagTypes.STRING;
+            case NbtConstants.TAG_LIST:
+                return BinaryTagTypes.LIST;
+            case NbtConstants.TAG_COMPOUND:
+                return BinaryTagTypes.COMPOUND;
+            case NbtConstants.TAG_INT_ARRAY:
+                return BinaryTagTypes.INT_ARRAY;
+            case NbtConstants.TAG_LONG_ARRAY:
+                return BinaryTagTypes.LONG_ARRAY;
+            default:
+                throw new IllegalArgumentException("Unknown NBT tag type " + id);
+        }
+    }
+
+    /**
+     * @return read-only buffer over {@code buf[from..to)}
+     */
+    static ByteBuffer slice(final ByteBuffer buf, final int from, final int to) {
+        final ByteBuffer slice = buf.duplicate();
+        slice.limit(to).position(from);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies {@code buf[from..to)} to given stream.
+     */
+    static void copy(final ByteBuffer buf, final int from, final int to, final OutputStream out) throws IOException {
+        if (buf.hasArray()) {
+            out.write(buf.array(), buf.arrayOffset() + from, to - from);
+            return;
+        }
+        final ByteBuffer src = buf.duplicate();
+        src.limit(to).position(from);
+        final byte[] chunk = new byte[Math.min(to - from, 8000)];
+        while (src.hasRemaining()) {
+            final int len = Math.min(chunk.length, src.remaining());
+            src.get(chunk, 0, len);
+            out.write(chunk, 0, len);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.examination.ExaminableProperty;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import party.para.jackson.nbt.NbtConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link CompoundBinaryTag} that is a view over the encoded bytes of a compound.
+ * <p>
+ * Nothing is read until the compound is first accessed; then the offsets of its entries are
+ * indexed by key, without decoding their values. Values are decoded when they are read, and
+ * kept for later reads.
+ * <p>
+ * The view is read-only: setters return a {@link MutableCompoundTagImpl} holding the entries
+ * of this compound with the change applied.
+ *
+ * @see LazyBinaryTags
+ */
+public class LazyCompoundBinaryTag extends AbstractCompoundBinaryTag implements LazyBinaryTag {
+    private final ByteBuffer buf;
+
+    /**
+     * Offset of the first entry.
+     */
+    private final int offset;
+
+    /**
+     * Offset right after the end tag; -1 until the entries have been indexed.
+     */
+    private int end = -1;
+
+    private int size;
+    private String[] keys;
+    private byte[] types;
+    private int[] offsets;
+
+    /**
+     * Values decoded so far.
+     */
+    private BinaryTag[] values;
+
+    /**
+     * Position of the entries by key; null while the compound is small.
+     */
+    private Map<String, Integer> index;
+
+    LazyCompoundBinaryTag(final ByteBuffer buf, final int offset) {
+        this.buf = buf;
+        this.offset = offset;
+    }
+
+    /**
+     * Reads the keys, types and offsets of the entries, on first access.
+     */
+    private void ensureIndexed() {
+        if (this.end >= 0) {
+            return;
+        }
+        String[] keys = new String[4];
+        byte[] types = new byte[4];
+        int[] offsets = new int[4];
+        int size = 0;
+        int p = this.offset;
+        try {
+            for (byte type = buf.get(p++); type != NbtConstants.TAG_END; type = buf.get(p++)) {
+                if (size == keys.length) {
+                    final int capacity = size + (size >> 1);
+                    keys = Arrays.copyOf(keys, capacity);
+                    types = Arrays.copyOf(types, capacity);
+                    offsets = Arrays.copyOf(offsets, capacity);
+                }
+                keys[size] = LazyBinaryTags.readUTF(buf, p);
+                p += 2 + (buf.getShort(p) & 0xFFFF);
+                types[size] = type;
+                offsets[size] = p;
+                ++size;
+                p = LazyBinaryTags.skip(buf, type, p);
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw LazyBinaryTags.truncated(e);
+        }
+        if (size > MutableCompoundTagImpl.MAX_LINEAR_SIZE) {
+            final Map<String, Integer> index = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                index.put(keys[i], i);
+            }
+            this.index = index;
+        }
+        this.keys = keys;
+        this.types = types;
+        this.offsets = offsets;
+        this.values = new BinaryTag[size];
+        this.size = size;
+        this.end = p;
+    }
+
+    private int indexOf(final Object key) {
+        ensureIndexed();
+        if (this.index != null) {
+            final Integer i = this.index.get(key);
+            return (i == null) ? -1 : i;
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (this.keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private BinaryTag valueAt(final int i) {
+        BinaryTag value = this.values[i];
+        if (value == null) {
+            try {
+                value = LazyBinaryTags.decode(this.buf, this.types[i], this.offsets[i]);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw LazyBinaryTags.truncated(e);
+            }
+            this.values[i] = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return a mutable compound holding the entries of this compound
+     */
+    public @NotNull MutableCompoundTagImpl toMutable() {
+        ensureIndexed();
+        final MutableCompoundTagImpl copy = new MutableCompoundTagImpl();
+        for (int i = 0; i < this.size; i++) {
+            copy.put(this.keys[i], valueAt(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public @NotNull ByteBuffer payload() {
+        ensureIndexed();
+        return LazyBinaryTags.slice(this.buf, this.offset, this.end);
+    }
+
+    @Override
+    public void writePayload(final @NotNull OutputStream out) throws IOException {
+        ensureIndexed();
+        LazyBinaryTags.copy(this.buf, this.offset, this.end, out);
+    }
+
+    @Override
+    public @NotNull Set<String> keySet() {
+        ensureIndexed();
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new EntryIterator<String>() {
+                    @Override
+                    String element(int i) {
+                        return LazyCompoundBinaryTag.this.keys[i];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return indexOf(o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return LazyCompoundBinaryTag.this.size;
+            }
+        };
+    }
+
+    @Override
+    public @Nullable BinaryTag get(final String key) {
+        final int i = indexOf(key);
+        return (i < 0) ? null : valueAt(i);
+    }
+
+    @Override
+    public @NotNull CompoundBinaryTag put(final @NotNull String key, final @NotNull BinaryTag tag) {
+        return toMutable().put(key, tag);
+    }
+
+    @Override
+    public @NotNull CompoundBinaryTag put(final @NotNull CompoundBinaryTag tag) {
+        return toMutable().put(tag);
+    }
+
+    @Override
+    public @NotNull CompoundBinaryTag put(final @NotNull Map<String, ? extends BinaryTag> tags) {
+        return toMutable().put(tags);
+    }
+
+    @Override
+    public @NotNull CompoundBinaryTag remove(final @NotNull String key, final @Nullable Consumer<? super BinaryTag> removed) {
+        if (indexOf(key) < 0) {
+            return this;
+        }
+        return toMutable().remove(key, removed);
+    }
+
+    @Override
+    public @NotNull Stream<? extends ExaminableProperty> examinableProperties() {
+        ensureIndexed();
+        final Map<String, BinaryTag> tags = new LinkedHashMap<>();
+        for (int i = 0; i < this.size; i++) {
+            tags.put(this.keys[i], valueAt(i));
+        }
+        return Stream.of(ExaminableProperty.of("tags", tags));
+    }
+
+    @Override
+    public @NotNull Iterator<Map.Entry<String, ? extends BinaryTag>> iterator() {
+        ensureIndexed();
+        return new EntryIterator<Map.Entry<String, ? extends BinaryTag>>() {
+            @Override
+            Map.Entry<String, ? extends BinaryTag> element(int i) {
+                return new AbstractMap.SimpleImmutableEntry<>(LazyCompoundBinaryTag.this.keys[i], valueAt(i));
+            }
+        };
+    }
+
+    @Override
+    public void forEach(final @NotNull Consumer<? super Map.Entry<String, ? extends BinaryTag>> action) {
+        Objects.requireNonNull(action, "action");
+        ensureIndexed();
+        for (int i = 0; i < this.size; i++) {
+            action.accept(new AbstractMap.SimpleImmutableEntry<>(this.keys[i], valueAt(i)));
+        }
+    }
+
+    /**
+     * Iterator over the entries in encoded order.
+     */
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        private int next;
+
+        abstract T element(int i);
+
+        @Override
+        public boolean hasNext() {
+            return this.next < LazyCompoundBinaryTag.this.size;
+        }
+
+        @Override
+        public T next() {
+            if (this.next >= LazyCompoundBinaryTag.this.size) {
+                throw new NoSuchElementException();
+            }
+            return element(this.next++);
+        }
+    }
+}
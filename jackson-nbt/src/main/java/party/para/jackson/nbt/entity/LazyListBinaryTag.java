@@ -0,0 +1,233 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagType;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.examination.ExaminableProperty;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Range;
+import party.para.jackson.nbt.NbtConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link ListBinaryTag} that is a view over the encoded bytes of a list.
+ * <p>
+ * Elements of fixed-width types (numbers) are read from the bytes each time they are accessed.
+ * For other types the offsets of the elements are found on first access, and elements are
+ * decoded when they are read and kept for later reads.
+ * <p>
+ * The view is read-only: setters return a {@link MutableListBinaryTagImpl} holding the
+ * elements of this list with the change applied.
+ *
+ * @see LazyBinaryTags
+ */
+public class LazyListBinaryTag implements ListBinaryTag, LazyBinaryTag {
+    private final ByteBuffer buf;
+
+    /**
+     * Offset of the list header: element type and length.
+     */
+    private final int offset;
+
+    private final byte elementType;
+    private final int size;
+
+    /**
+     * Length of elements of a fixed-width type, 0 for other types.
+     */
+    private final int width;
+
+    /**
+     * Offsets of the elements followed by the end offset of the list, for elements that are
+     * not of a fixed-width type; null until first access.
+     */
+    private int[] offsets;
+
+    /**
+     * Elements decoded so far, for elements that are not of a fixed-width type.
+     */
+    private BinaryTag[] values;
+
+    LazyListBinaryTag(final ByteBuffer buf, final int offset) {
+        this.buf = buf;
+        this.offset = offset;
+        this.elementType = buf.get(offset);
+        this.width = LazyBinaryTags.width(this.elementType);
+        this.size = LazyBinaryTags.length(buf, offset + 1, Math.max(this.width, 1));
+        if (this.size > 0) {
+            // fail early on unknown types
+            LazyBinaryTags.type(this.elementType);
+        }
+    }
+
+    /**
+     * Finds the offsets of variable-width elements, on first access.
+     */
+    private void ensureIndexed() {
+        if (this.width > 0 || this.offsets != null) {
+            return;
+        }
+        final int[] offsets = new int[this.size + 1];
+        int p = this.offset + 5;
+        try {
+            for (int i = 0; i < this.size; i++) {
+                offsets[i] = p;
+                p = LazyBinaryTags.skip(this.buf, this.elementType, p);
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw LazyBinaryTags.truncated(e);
+        }
+        offsets[this.size] = p;
+        this.values = new BinaryTag[this.size];
+        this.offsets = offsets;
+    }
+
+    private int end() {
+        if (this.width > 0) {
+            return this.offset + 5 + this.size * this.width;
+        }
+        ensureIndexed();
+        return this.offsets[this.size];
+    }
+
+    private BinaryTag valueAt(final int i) {
+        if (this.width > 0) {
+            return LazyBinaryTags.decode(this.buf, this.elementType, this.offset + 5 + i * this.width);
+        }
+        ensureIndexed();
+        BinaryTag value = this.values[i];
+        if (value == null) {
+            try {
+                value = LazyBinaryTags.decode(this.buf, this.elementType, this.offsets[i]);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw LazyBinaryTags.truncated(e);
+            }
+            this.values[i] = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return a mutable list holding the elements of this list
+     */
+    public @NotNull MutableListBinaryTagImpl toMutable() {
+        final List<BinaryTag> tags = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            tags.add(valueAt(i));
+        }
+        return new MutableListBinaryTagImpl(elementType(), tags);
+    }
+
+    @Override
+    public @NotNull ByteBuffer payload() {
+        return LazyBinaryTags.slice(this.buf, this.offset, end());
+    }
+
+    @Override
+    public void writePayload(final @NotNull OutputStream out) throws IOException {
+        LazyBinaryTags.copy(this.buf, this.offset, end(), out);
+    }
+
+    @Override
+    public @NotNull BinaryTagType<? extends BinaryTag> elementType() {
+        return LazyBinaryTags.type((this.size == 0) ? NbtConstants.TAG_END : this.elementType);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public @NotNull BinaryTag get(@Range(from = 0, to = Integer.MAX_VALUE) final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return valueAt(index);
+    }
+
+    @Override
+    public @NotNull ListBinaryTag set(final int index, final @NotNull BinaryTag newTag, final @Nullable Consumer<? super BinaryTag> removed) {
+        return toMutable().set(index, newTag, removed);
+    }
+
+    @Override
+    public @NotNull ListBinaryTag remove(final int index, final @Nullable Consumer<? super BinaryTag> removed) {
+        return toMutable().remove(index, removed);
+    }
+
+    @Override
+    public @NotNull ListBinaryTag add(final BinaryTag tag) {
+        return toMutable().add(tag);
+    }
+
+    @Override
+    public @NotNull ListBinaryTag add(final Iterable<? extends BinaryTag> tagsToAdd) {
+        return toMutable().add(tagsToAdd);
+    }
+
+    @Override
+    public @NotNull Stream<BinaryTag> stream() {
+        return IntStream.range(0, this.size).mapToObj(this::valueAt);
+    }
+
+    @Override
+    public Iterator<BinaryTag> iterator() {
+        return new Iterator<BinaryTag>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public BinaryTag next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return valueAt(index++);
+            }
+        };
+    }
+
+    @Override
+    public void forEach(final Consumer<? super BinaryTag> action) {
+        for (int i = 0; i < this.size; i++) {
+            action.accept(valueAt(i));
+        }
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        return ListBinaryTags.equals(this, that);
+    }
+
+    @Override
+    public int hashCode() {
+        // same as a List of the elements
+        int h = 1;
+        for (int i = 0; i < this.size; i++) {
+            h = 31 * h + valueAt(i).hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public @NotNull Stream<? extends ExaminableProperty> examinableProperties() {
+        return Stream.of(
+                ExaminableProperty.of("tags", stream().collect(Collectors.toList())),
+                ExaminableProperty.of("type", elementType())
+        );
+    }
+}
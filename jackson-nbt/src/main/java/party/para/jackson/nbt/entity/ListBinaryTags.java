@@ -0,0 +1,93 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * Equality of the implementations of {@link ListBinaryTag} in this package: like
+ * {@link java.util.List}s, lists are equal if they hold equal elements in the same order,
+ * whichever of these implementations they are, and their hash code is that of a {@code List} of
+ * the elements.
+ * <p>
+ * {@code equals} does not accept adventure's own implementations, which in turn only accept
+ * their own class: {@code equals} would not be symmetric. Use
+ * {@link #contentEquals(BinaryTag, BinaryTag)} to compare tags of any implementation.
+ */
+public final class ListBinaryTags {
+    private ListBinaryTags() {
+    }
+
+    static boolean equals(final ListBinaryTag list, final Object that) {
+        if (list == that) {
+            return true;
+        }
+        if (!(that instanceof MutableListBinaryTagImpl || that instanceof AbstractPrimitiveListBinaryTag
+                || that instanceof LazyListBinaryTag)) {
+            return false;
+        }
+        return elementsEqual(list, (ListBinaryTag) that);
+    }
+
+    private static boolean elementsEqual(final ListBinaryTag list, final ListBinaryTag other) {
+        final int size = list.size();
+        if (other.size() != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!list.get(i).equals(other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares tags by content, whatever their implementation: compounds hold the same keys
+     * with equal values, lists hold equal elements in the same order, and other tags are
+     * {@code equals}. Use this e.g. to compare a lazy view with the tree adventure read from the
+     * same bytes, which {@code equals} never reports as equal.
+     *
+     * @return whether both tags hold the same content
+     */
+    public static boolean contentEquals(final @NotNull BinaryTag tag, final @NotNull BinaryTag other) {
+        if (tag == other) {
+            return true;
+        }
+        if (tag instanceof CompoundBinaryTag) {
+            if (!(other instanceof CompoundBinaryTag)) {
+                return false;
+            }
+            final CompoundBinaryTag compound = (CompoundBinaryTag) other;
+            int size = 0;
+            for (final Map.Entry<String, ? extends BinaryTag> entry : (CompoundBinaryTag) tag) {
+                final BinaryTag value = compound.get(entry.getKey());
+                if (value == null || !contentEquals(entry.getValue(), value)) {
+                    return false;
+                }
+                ++size;
+            }
+            return size == compound.keySet().size();
+        }
+        if (tag instanceof ListBinaryTag) {
+            if (!(other instanceof ListBinaryTag)) {
+                return false;
+            }
+            final ListBinaryTag list = (ListBinaryTag) tag;
+            final int size = list.size();
+            if (((ListBinaryTag) other).size() != size) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!contentEquals(list.get(i), ((ListBinaryTag) other).get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return tag.equals(other);
+    }
+}
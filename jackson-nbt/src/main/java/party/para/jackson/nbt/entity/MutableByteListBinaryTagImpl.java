@@ -0,0 +1,105 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagType;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.ByteBinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Mutable implementation of {@link net.kyori.adventure.nbt.ListBinaryTag} of {@link ByteBinaryTag}s,
+ * backed by a {@code byte[]}.
+ */
+public class MutableByteListBinaryTagImpl extends AbstractPrimitiveListBinaryTag {
+    private byte[] values;
+
+    public MutableByteListBinaryTagImpl() {
+        this(10);
+    }
+
+    public MutableByteListBinaryTagImpl(int initialCapacity) {
+        this.values = new byte[initialCapacity];
+    }
+
+    @Override
+    public @NotNull BinaryTagType<? extends BinaryTag> elementType() {
+        return BinaryTagTypes.BYTE;
+    }
+
+    @Override
+    public byte getByte(final int index, final byte defaultValue) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Appends a value without creating a tag for it.
+     */
+    public MutableByteListBinaryTagImpl addByte(final byte value) {
+        if (size == values.length) {
+            ensureCapacity(size + 1);
+        }
+        values[size++] = value;
+        return this;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    protected BinaryTag tagAt(int index) {
+        return ByteBinaryTag.of(values[index]);
+    }
+
+    @Override
+    protected void storeAt(int index, BinaryTag tag) {
+        values[index] = ((ByteBinaryTag) tag).value();
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, grownCapacity(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (!(that instanceof MutableByteListBinaryTagImpl)) {
+            return ListBinaryTags.equals(this, that);
+        }
+        if (((MutableByteListBinaryTagImpl) that).size != size) {
+            return false;
+        }
+        final byte[] other = ((MutableByteListBinaryTagImpl) that).values;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Byte.hashCode(values[i]);
+        }
+        return result;
+    }
+}
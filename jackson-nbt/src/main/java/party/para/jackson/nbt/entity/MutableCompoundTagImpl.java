@@ -13,59 +13,185 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * Mutable implementation of {@link CompoundBinaryTag}.
+ * <p>
+ * Entries are kept in insertion order in flat arrays of keys and values, which small
+ * compounds (most item and entity data has a handful of keys) look up by scanning.
+ * Compounds of more than {@link #MAX_LINEAR_SIZE} entries also build an open-addressing
+ * hash index over the arrays.
  */
-public class MutableCompoundTagImpl implements CompoundBinaryTag {
-    private final HashMap<String, BinaryTag> tags;
+public class MutableCompoundTagImpl extends AbstractCompoundBinaryTag {
+    /**
+     * Largest number of entries that are looked up without a hash index.
+     */
+    static final int MAX_LINEAR_SIZE = 8;
+
+    private static final String[] NO_KEYS = new String[0];
+    private static final BinaryTag[] NO_VALUES = new BinaryTag[0];
+
+    private String[] keys;
+    private BinaryTag[] values;
+    private int size;
+
+    /**
+     * Open-addressing table of entry index + 1 (0 for a free slot), with a power-of-two length;
+     * null while the compound is small.
+     */
+    private int[] index;
 
     public MutableCompoundTagImpl() {
-        this.tags = new HashMap<>();
+        this.keys = NO_KEYS;
+        this.values = NO_VALUES;
     }
 
     public MutableCompoundTagImpl(final Map<String, BinaryTag> tags) {
-        this.tags = new HashMap<>(tags);
+        this();
+        put(tags);
+    }
+
+    /**
+     * @return the position of given key in the entry arrays, or -1
+     */
+    private int indexOf(final String key) {
+        final int[] table = this.index;
+        if (table == null) {
+            final String[] keys = this.keys;
+            for (int i = 0, end = this.size; i < end; i++) {
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        final int mask = table.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (key.equals(this.keys[entry - 1])) {
+                return entry - 1;
+            }
+        }
     }
 
-    public boolean contains(final @NotNull String key, final @NotNull BinaryTagType<?> type) {
-        final @Nullable BinaryTag tag = this.tags.get(key);
-        return tag != null && type.test(tag.type());
+    private static int hash(final String key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Builds the hash index over the entries, or drops it if the compound became small.
+     */
+    private void rebuildIndex() {
+        if (this.size <= MAX_LINEAR_SIZE) {
+            this.index = null;
+            return;
+        }
+        // keep the table at most half full
+        final int[] table = new int[Integer.highestOneBit(this.size * 4 - 1)];
+        final int mask = table.length - 1;
+        for (int i = 0; i < this.size; i++) {
+            int slot = hash(this.keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        this.index = table;
     }
 
     @Override
     public @NotNull Set<String> keySet() {
-        return Collections.unmodifiableSet(this.tags.keySet());
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new EntryIterator<String>() {
+                    @Override
+                    String element(int i) {
+                        return MutableCompoundTagImpl.this.keys[i];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o instanceof String && indexOf((String) o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return MutableCompoundTagImpl.this.size;
+            }
+        };
     }
 
     @Override
     public @Nullable BinaryTag get(final String key) {
-        return this.tags.get(key);
+        final int i = indexOf(key);
+        return (i < 0) ? null : this.values[i];
     }
 
     @Override
     public @NotNull CompoundBinaryTag put(final @NotNull String key, final @NotNull BinaryTag tag) {
-        tags.put(key, tag);
+        final int i = indexOf(key);
+        if (i >= 0) {
+            this.values[i] = tag;
+            return this;
+        }
+        if (this.size == this.keys.length) {
+            final int capacity = Math.max(4, this.size + (this.size >> 1));
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        this.keys[this.size] = key;
+        this.values[this.size] = tag;
+        ++this.size;
+        final int[] table = this.index;
+        if (table != null && this.size * 2 <= table.length) {
+            final int mask = table.length - 1;
+            int slot = hash(key) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = this.size;
+        } else if (this.size > MAX_LINEAR_SIZE) {
+            rebuildIndex();
+        }
         return this;
     }
 
     @Override
     public @NotNull CompoundBinaryTag put(final @NotNull CompoundBinaryTag tag) {
         for (final String key : tag.keySet()) {
-            tags.put(key, tag.get(key));
+            put(key, requireNonNull(tag.get(key)));
         }
         return this;
     }
 
     @Override
     public @NotNull CompoundBinaryTag put(final @NotNull Map<String, ? extends BinaryTag> tags) {
-        this.tags.putAll(tags);
+        for (final Map.Entry<String, ? extends BinaryTag> entry : tags.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
         return this;
     }
 
     @Override
     public @NotNull CompoundBinaryTag remove(final @NotNull String key, final @Nullable Consumer<? super BinaryTag> removed) {
-        if (!this.tags.containsKey(key)) {
+        final int i = indexOf(key);
+        if (i < 0) {
             return this;
         }
-        final BinaryTag tag = tags.remove(key);
+        final BinaryTag tag = this.values[i];
+        final int moved = this.size - i - 1;
+        System.arraycopy(this.keys, i + 1, this.keys, i, moved);
+        System.arraycopy(this.values, i + 1, this.values, i, moved);
+        --this.size;
+        this.keys[this.size] = null;
+        this.values[this.size] = null;
+        if (this.index != null) {
+            rebuildIndex();
+        }
         if (removed != null) {
             removed.accept(tag);
         }
@@ -73,159 +199,51 @@ public class MutableCompoundTagImpl implements CompoundBinaryTag {
     }
 
     @Override
-    public byte getByte(final @NotNull String key, final byte defaultValue) {
-        if (this.contains(key, BinaryTagTypes.BYTE)) {
-            return ((NumberBinaryTag) this.tags.get(key)).byteValue();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public short getShort(final @NotNull String key, final short defaultValue) {
-        if (this.contains(key, BinaryTagTypes.SHORT)) {
-            return ((NumberBinaryTag) this.tags.get(key)).shortValue();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public int getInt(final @NotNull String key, final int defaultValue) {
-        if (this.contains(key, BinaryTagTypes.INT)) {
-            return ((NumberBinaryTag) this.tags.get(key)).intValue();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public long getLong(final @NotNull String key, final long defaultValue) {
-        if (this.contains(key, BinaryTagTypes.LONG)) {
-            return ((NumberBinaryTag) this.tags.get(key)).longValue();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public float getFloat(final @NotNull String key, final float defaultValue) {
-        if (this.contains(key, BinaryTagTypes.FLOAT)) {
-            return ((NumberBinaryTag) this.tags.get(key)).floatValue();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public double getDouble(final @NotNull String key, final double defaultValue) {
-        if (this.contains(key, BinaryTagTypes.DOUBLE)) {
-            return ((NumberBinaryTag) this.tags.get(key)).doubleValue();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public byte @NotNull [] getByteArray(final @NotNull String key) {
-        if (this.contains(key, BinaryTagTypes.BYTE_ARRAY)) {
-            return ((ByteArrayBinaryTag) this.tags.get(key)).value();
-        }
-        return new byte[0];
-    }
-
-    @Override
-    public byte @NotNull [] getByteArray(final @NotNull String key, final byte @NotNull [] defaultValue) {
-        if (this.contains(key, BinaryTagTypes.BYTE_ARRAY)) {
-            return ((ByteArrayBinaryTag) this.tags.get(key)).value();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public @NotNull String getString(final @NotNull String key, final @NotNull String defaultValue) {
-        if (this.contains(key, BinaryTagTypes.STRING)) {
-            return ((StringBinaryTag) this.tags.get(key)).value();
-        }
-        return defaultValue;
-    }
-
-    @Override
-    public @NotNull ListBinaryTag getList(final @NotNull String key, final @NotNull ListBinaryTag defaultValue) {
-        if (this.contains(key, BinaryTagTypes.LIST)) {
-            return (ListBinaryTag) this.tags.get(key);
+    public @NotNull Stream<? extends ExaminableProperty> examinableProperties() {
+        final Map<String, BinaryTag> tags = new LinkedHashMap<>();
+        for (int i = 0; i < this.size; i++) {
+            tags.put(this.keys[i], this.values[i]);
         }
-        return defaultValue;
+        return Stream.of(ExaminableProperty.of("tags", tags));
     }
 
     @Override
-    public @NotNull ListBinaryTag getList(final @NotNull String key, final @NotNull BinaryTagType<? extends BinaryTag> expectedType, final @NotNull ListBinaryTag defaultValue) {
-        if (this.contains(key, BinaryTagTypes.LIST)) {
-            final ListBinaryTag tag = (ListBinaryTag) this.tags.get(key);
-            if (expectedType.test(tag.elementType())) {
-                return tag;
+    public @NotNull Iterator<Map.Entry<String, ? extends BinaryTag>> iterator() {
+        return new EntryIterator<Map.Entry<String, ? extends BinaryTag>>() {
+            @Override
+            Map.Entry<String, ? extends BinaryTag> element(int i) {
+                return new AbstractMap.SimpleImmutableEntry<>(MutableCompoundTagImpl.this.keys[i], MutableCompoundTagImpl.this.values[i]);
             }
-        }
-        return defaultValue;
+        };
     }
 
     @Override
-    public @NotNull CompoundBinaryTag getCompound(final @NotNull String key, final @NotNull CompoundBinaryTag defaultValue) {
-        if (this.contains(key, BinaryTagTypes.COMPOUND)) {
-            return (CompoundBinaryTag) this.tags.get(key);
+    public void forEach(final @NotNull Consumer<? super Map.Entry<String, ? extends BinaryTag>> action) {
+        requireNonNull(action, "action");
+        for (int i = 0; i < this.size; i++) {
+            action.accept(new AbstractMap.SimpleImmutableEntry<>(this.keys[i], this.values[i]));
         }
-        return defaultValue;
     }
 
-    @Override
-    public int @NotNull [] getIntArray(final @NotNull String key) {
-        if (this.contains(key, BinaryTagTypes.INT_ARRAY)) {
-            return ((IntArrayBinaryTag) this.tags.get(key)).value();
-        }
-        return new int[0];
-    }
+    /**
+     * Iterator over the entries in insertion order.
+     */
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        private int next;
 
-    @Override
-    public int @NotNull [] getIntArray(final @NotNull String key, final int @NotNull [] defaultValue) {
-        if (this.contains(key, BinaryTagTypes.INT_ARRAY)) {
-            return ((IntArrayBinaryTag) this.tags.get(key)).value();
-        }
-        return defaultValue;
-    }
+        abstract T element(int i);
 
-    @Override
-    public long @NotNull [] getLongArray(final @NotNull String key) {
-        if (this.contains(key, BinaryTagTypes.LONG_ARRAY)) {
-            return ((LongArrayBinaryTag) this.tags.get(key)).value();
+        @Override
+        public boolean hasNext() {
+            return this.next < MutableCompoundTagImpl.this.size;
         }
-        return new long[0];
-    }
 
-    @Override
-    public long @NotNull [] getLongArray(final @NotNull String key, final long @NotNull [] defaultValue) {
-        if (this.contains(key, BinaryTagTypes.LONG_ARRAY)) {
-            return ((LongArrayBinaryTag) this.tags.get(key)).value();
+        @Override
+        public T next() {
+            if (this.next >= MutableCompoundTagImpl.this.size) {
+                throw new NoSuchElementException();
+            }
+            return element(this.next++);
         }
-        return defaultValue;
-    }
-
-    @Override
-    public boolean equals(final Object that) {
-        return this == that || (that instanceof MutableCompoundTagImpl && this.tags.equals(((MutableCompoundTagImpl) that).tags));
-    }
-
-    @Override
-    public int hashCode() {
-        return tags.hashCode();
-    }
-
-    @Override
-    public @NotNull Stream<? extends ExaminableProperty> examinableProperties() {
-        return Stream.of(ExaminableProperty.of("tags", this.tags));
-    }
-
-    @Override
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    public @NotNull Iterator<Map.Entry<String, ? extends BinaryTag>> iterator() {
-        return (Iterator) this.tags.entrySet().iterator();
-    }
-
-    @Override
-    public void forEach(final @NotNull Consumer<? super Map.Entry<String, ? extends BinaryTag>> action) {
-        this.tags.entrySet().forEach(requireNonNull(action, "action"));
     }
 }
@@ -0,0 +1,105 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagType;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.DoubleBinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Mutable implementation of {@link net.kyori.adventure.nbt.ListBinaryTag} of {@link DoubleBinaryTag}s,
+ * backed by a {@code double[]}.
+ */
+public class MutableDoubleListBinaryTagImpl extends AbstractPrimitiveListBinaryTag {
+    private double[] values;
+
+    public MutableDoubleListBinaryTagImpl() {
+        this(10);
+    }
+
+    public MutableDoubleListBinaryTagImpl(int initialCapacity) {
+        this.values = new double[initialCapacity];
+    }
+
+    @Override
+    public @NotNull BinaryTagType<? extends BinaryTag> elementType() {
+        return BinaryTagTypes.DOUBLE;
+    }
+
+    @Override
+    public double getDouble(final int index, final double defaultValue) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Appends a value without creating a tag for it.
+     */
+    public MutableDoubleListBinaryTagImpl addDouble(final double value) {
+        if (size == values.length) {
+            ensureCapacity(size + 1);
+        }
+        values[size++] = value;
+        return this;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    protected BinaryTag tagAt(int index) {
+        return DoubleBinaryTag.of(values[index]);
+    }
+
+    @Override
+    protected void storeAt(int index, BinaryTag tag) {
+        values[index] = ((DoubleBinaryTag) tag).value();
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, grownCapacity(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (!(that instanceof MutableDoubleListBinaryTagImpl)) {
+            return ListBinaryTags.equals(this, that);
+        }
+        if (((MutableDoubleListBinaryTagImpl) that).size != size) {
+            return false;
+        }
+        final double[] other = ((MutableDoubleListBinaryTagImpl) that).values;
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(values[i]) != Double.doubleToLongBits(other[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Double.hashCode(values[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagType;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.FloatBinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Mutable implementation of {@link net.kyori.adventure.nbt.ListBinaryTag} of {@link FloatBinaryTag}s,
+ * backed by a {@code float[]}.
+ */
+public class MutableFloatListBinaryTagImpl extends AbstractPrimitiveListBinaryTag {
+    private float[] values;
+
+    public MutableFloatListBinaryTagImpl() {
+        this(10);
+    }
+
+    public MutableFloatListBinaryTagImpl(int initialCapacity) {
+        this.values = new float[initialCapacity];
+    }
+
+    @Override
+    public @NotNull BinaryTagType<? extends BinaryTag> elementType() {
+        return BinaryTagTypes.FLOAT;
+    }
+
+    @Override
+    public float getFloat(final int index, final float defaultValue) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Appends a value without creating a tag for it.
+     */
+    public MutableFloatListBinaryTagImpl addFloat(final float value) {
+        if (size == values.length) {
+            ensureCapacity(size + 1);
+        }
+        values[size++] = value;
+        return this;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    public float[] toFloatArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    protected BinaryTag tagAt(int index) {
+        return FloatBinaryTag.of(values[index]);
+    }
+
+    @Override
+    protected void storeAt(int index, BinaryTag tag) {
+        values[index] = ((FloatBinaryTag) tag).value();
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, grownCapacity(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (!(that instanceof MutableFloatListBinaryTagImpl)) {
+            return ListBinaryTags.equals(this, that);
+        }
+        if (((MutableFloatListBinaryTagImpl) that).size != size) {
+            return false;
+        }
+        final float[] other = ((MutableFloatListBinaryTagImpl) that).values;
+        for (int i = 0; i < size; i++) {
+            if (Float.floatToIntBits(values[i]) != Float.floatToIntBits(other[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Float.hashCode(values[i]);
+        }
+        return result;
+    }
+}
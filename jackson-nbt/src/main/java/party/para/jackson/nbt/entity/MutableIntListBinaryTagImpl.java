@@ -0,0 +1,105 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagType;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Mutable implementation of {@link net.kyori.adventure.nbt.ListBinaryTag} of {@link IntBinaryTag}s,
+ * backed by a {@code int[]}.
+ */
+public class MutableIntListBinaryTagImpl extends AbstractPrimitiveListBinaryTag {
+    private int[] values;
+
+    public MutableIntListBinaryTagImpl() {
+        this(10);
+    }
+
+    public MutableIntListBinaryTagImpl(int initialCapacity) {
+        this.values = new int[initialCapacity];
+    }
+
+    @Override
+    public @NotNull BinaryTagType<? extends BinaryTag> elementType() {
+        return BinaryTagTypes.INT;
+    }
+
+    @Override
+    public int getInt(final int index, final int defaultValue) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Appends a value without creating a tag for it.
+     */
+    public MutableIntListBinaryTagImpl addInt(final int value) {
+        if (size == values.length) {
+            ensureCapacity(size + 1);
+        }
+        values[size++] = value;
+        return this;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    protected BinaryTag tagAt(int index) {
+        return IntBinaryTag.of(values[index]);
+    }
+
+    @Override
+    protected void storeAt(int index, BinaryTag tag) {
+        values[index] = ((IntBinaryTag) tag).value();
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, grownCapacity(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (!(that instanceof MutableIntListBinaryTagImpl)) {
+            return ListBinaryTags.equals(this, that);
+        }
+        if (((MutableIntListBinaryTagImpl) that).size != size) {
+            return false;
+        }
+        final int[] other = ((MutableIntListBinaryTagImpl) that).values;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Integer.hashCode(values[i]);
+        }
+        return result;
+    }
+}
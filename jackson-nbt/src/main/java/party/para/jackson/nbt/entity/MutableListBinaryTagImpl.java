@@ -157,7 +157,10 @@ public class MutableListBinaryTagImpl implements ListBinaryTag {
 
     @Override
     public boolean equals(final Object that) {
-        return this == that || (that instanceof MutableListBinaryTagImpl && this.tags.equals(((MutableListBinaryTagImpl) that).tags));
+        if (that instanceof MutableListBinaryTagImpl) {
+            return this == that || this.tags.equals(((MutableListBinaryTagImpl) that).tags);
+        }
+        return ListBinaryTags.equals(this, that);
     }
 
     @Override
@@ -0,0 +1,105 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagType;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.LongBinaryTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Mutable implementation of {@link net.kyori.adventure.nbt.ListBinaryTag} of {@link LongBinaryTag}s,
+ * backed by a {@code long[]}.
+ */
+public class MutableLongListBinaryTagImpl extends AbstractPrimitiveListBinaryTag {
+    private long[] values;
+
+    public MutableLongListBinaryTagImpl() {
+        this(10);
+    }
+
+    public MutableLongListBinaryTagImpl(int initialCapacity) {
+        this.values = new long[initialCapacity];
+    }
+
+    @Override
+    public @NotNull BinaryTagType<? extends BinaryTag> elementType() {
+        return BinaryTagTypes.LONG;
+    }
+
+    @Override
+    public long getLong(final int index, final long defaultValue) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Appends a value without creating a tag for it.
+     */
+    public MutableLongListBinaryTagImpl addLong(final long value) {
+        if (size == values.length) {
+            ensureCapacity(size + 1);
+        }
+        values[size++] = value;
+        return this;
+    }
+
+    /**
+     * @return a copy of the elements
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    protected BinaryTag tagAt(int index) {
+        return LongBinaryTag.of(values[index]);
+    }
+
+    @Override
+    protected void storeAt(int index, BinaryTag tag) {
+        values[index] = ((LongBinaryTag) tag).value();
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, grownCapacity(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+        if (this == that) {
+            return true;
+        }
+        if (!(that instanceof MutableLongListBinaryTagImpl)) {
+            return ListBinaryTags.equals(this, that);
+        }
+        if (((MutableLongListBinaryTagImpl) that).size != size) {
+            return false;
+        }
+        final long[] other = ((MutableLongListBinaryTagImpl) that).values;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Long.hashCode(values[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package party.para.jackson.nbt.ser;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import net.kyori.adventure.nbt.*;
+import party.para.jackson.nbt.NbtGenerator;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Serializer for adventure {@link BinaryTag}s.
+ * <p>
+ * NBT generators are handed the whole tag (see {@link NbtGenerator#writeTag(BinaryTag)}), so
+ * that it is written without one event per token and with its exact tag types. Other
+ * generators get the usual events: compounds as objects, lists and arrays as arrays
+ * ({@code byte} arrays as binary), and numbers as numbers. A {@link TokenBuffer}, such as the
+ * ones databind uses for {@code @JsonUnwrapped} and polymorphic types, keeps the tag as an
+ * embedded object so that it is replayed with its exact tag types.
+ */
+public class BinaryTagSerializer extends StdSerializer<BinaryTag> {
+    private static final long serialVersionUID = 1L;
+
+    public BinaryTagSerializer() {
+        super(BinaryTag.class);
+    }
+
+    @Override
+    public void serialize(BinaryTag value, JsonGenerator g, SerializerProvider provider) throws IOException {
+        if (g instanceof NbtGenerator) {
+            ((NbtGenerator) g).writeTag(value);
+        } else if (g instanceof TokenBuffer) {
+            // kept as is, so that the tag types survive buffering
+            g.writeEmbeddedObject(value);
+        } else {
+            _serializeTokens(value, g);
+        }
+    }
+
+    private void _serializeTokens(BinaryTag value, JsonGenerator g) throws IOException {
+        if (value instanceof CompoundBinaryTag) {
+            g.writeStartObject(value);
+            for (Map.Entry<String, ? extends BinaryTag> entry : (CompoundBinaryTag) value) {
+                g.writeFieldName(entry.getKey());
+                _serializeTokens(entry.getValue(), g);
+            }
+            g.writeEndObject();
+        } else if (value instanceof ListBinaryTag) {
+            final ListBinaryTag list = (ListBinaryTag) value;
+            g.writeStartArray(value, list.size());
+            for (BinaryTag element : list) {
+                _serializeTokens(element, g);
+            }
+            g.writeEndArray();
+        } else if (value instanceof StringBinaryTag) {
+            g.writeString(((StringBinaryTag) value).value());
+        } else if (value instanceof ByteBinaryTag) {
+            g.writeNumber(((ByteBinaryTag) value).value());
+        } else if (value instanceof ShortBinaryTag) {
+            g.writeNumber(((ShortBinaryTag) value).value());
+        } else if (value instanceof IntBinaryTag) {
+            g.writeNumber(((IntBinaryTag) value).value());
+        } else if (value instanceof LongBinaryTag) {
+            g.writeNumber(((LongBinaryTag) value).value());
+        } else if (value instanceof FloatBinaryTag) {
+            g.writeNumber(((FloatBinaryTag) value).value());
+        } else if (value instanceof DoubleBinaryTag) {
+            g.writeNumber(((DoubleBinaryTag) value).value());
+        } else if (value instanceof ByteArrayBinaryTag) {
+            g.writeBinary(((ByteArrayBinaryTag) value).value());
+        } else if (value instanceof IntArrayBinaryTag) {
+            final int[] array = ((IntArrayBinaryTag) value).value();
+            g.writeArray(array, 0, array.length);
+        } else if (value instanceof LongArrayBinaryTag) {
+            final long[] array = ((LongArrayBinaryTag) value).value();
+            g.writeArray(array, 0, array.length);
+        } else {
+            g.writeNull();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package party.para.jackson.nbt.writer;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.ByteBinaryTag;
+import net.kyori.adventure.nbt.DoubleBinaryTag;
+import net.kyori.adventure.nbt.FloatBinaryTag;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.LongBinaryTag;
+import net.kyori.adventure.nbt.ShortBinaryTag;
+import party.para.jackson.nbt.entity.MutableByteListBinaryTagImpl;
+import party.para.jackson.nbt.entity.MutableDoubleListBinaryTagImpl;
+import party.para.jackson.nbt.entity.MutableFloatListBinaryTagImpl;
+import party.para.jackson.nbt.entity.MutableIntListBinaryTagImpl;
+import party.para.jackson.nbt.entity.MutableListBinaryTagImpl;
+import party.para.jackson.nbt.entity.MutableLongListBinaryTagImpl;
+import party.para.jackson.nbt.entity.MutableShortListBinaryTagImpl;
+
+/**
+ * This class is used to write a ListTag from JSON token sequence.
+ * <p>
+ * The implementation of the list is picked by its first element: lists of numbers are kept
+ * in primitive arrays (see {@link party.para.jackson.nbt.entity.AbstractPrimitiveListBinaryTag}),
+ * other lists hold their tags.
+ */
+public class ListTagWriter {
+    /**
+     * Result; null until the first element has been added.
+     */
+    private ListBinaryTag tag = null;
+
+    public ListBinaryTag getTag() {
+        return (tag != null) ? tag : new MutableListBinaryTagImpl();
+    }
+
+    public void add(BinaryTag value) {
+        if (tag == null) {
+            tag = new MutableListBinaryTagImpl();
+        }
+        tag = tag.add(value);
+    }
+
+    public void addByte(byte value) {
+        if (tag == null) {
+            tag = new MutableByteListBinaryTagImpl();
+        }
+        if (tag instanceof MutableByteListBinaryTagImpl) {
+            ((MutableByteListBinaryTagImpl) tag).addByte(value);
+        } else {
+            add(ByteBinaryTag.of(value));
+        }
+    }
+
+    public void addShort(short value) {
+        if (tag == null) {
+            tag = new MutableShortListBinaryTagImpl();
+        }
+        if (tag instanceof MutableShortListBinaryTagImpl) {
+            ((MutableShortListBinaryTagImpl) tag).addShort(value);
+        } else {
+            add(ShortBinaryTag.of(value));
+        }
+    }
+
+    public void addInt(int value) {
+        if (tag == null) {
+            tag = new MutableIntListBinaryTagImpl();
+        }
+        if (tag instanceof MutableIntListBinaryTagImpl) {
+            ((MutableIntListBinaryTagImpl) tag).addInt(value);
+        } else {
+            add(IntBinaryTag.of(value));
+        }
+    }
+
+    public void addLong(long value) {
+        if (tag == null) {
+            tag = new MutableLongListBinaryTagImpl();
+        }
+        if (tag instanceof MutableLongListBinaryTagImpl) {
+            ((MutableLongListBinaryTagImpl) tag).addLong(value);
+        } else {
+            add(LongBinaryTag.of(value));
+        }
+    }
+
+    public void addFloat(float value) {
+        if (tag == null) {
+            tag = new MutableFloatListBinaryTagImpl();
+        }
+        if (tag instanceof MutableFloatListBinaryTagImpl) {
+            ((MutableFloatListBinaryTagImpl) tag).addFloat(value);
+        } else {
+            add(FloatBinaryTag.of(value));
+        }
+    }
+
+    public void addDouble(double value) {
+        if (tag == null) {
+            tag = new MutableDoubleListBinaryTagImpl();
+        }
+        if (tag instanceof MutableDoubleListBinaryTagImpl) {
+            ((MutableDoubleListBinaryTagImpl) tag).addDouble(value);
+        } else {
+            add(DoubleBinaryTag.of(value));
+        }
+    }
+}
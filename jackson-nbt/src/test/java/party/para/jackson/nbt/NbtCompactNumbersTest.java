@@ -0,0 +1,121 @@
+package party.para.jackson.nbt;
+
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link NbtGenerator.Feature#WRITE_COMPACT_NUMBERS} writes numbers as the smallest type that
+ * holds them, and widens list elements written so far when a wider one follows, including in
+ * lists much larger than the output buffer.
+ */
+public class NbtCompactNumbersTest {
+    private static final int COUNT = 100_000;
+
+    static CompoundBinaryTag read(byte[] bytes) throws IOException {
+        return BinaryTagIO.unlimitedReader().read(new ByteArrayInputStream(bytes));
+    }
+
+    static NbtMapper compactMapper() {
+        return NbtMapper.builder().enable(NbtGenerator.Feature.WRITE_COMPACT_NUMBERS).build();
+    }
+
+    @Test
+    public void smallestTypeThatHoldsValue() throws IOException {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("byte", 100L);
+        values.put("short", -300);
+        values.put("int", 70000L);
+        values.put("long", 1L << 40);
+        values.put("float", 0.25);
+        values.put("double", 0.1);
+
+        CompoundBinaryTag tag = read(compactMapper().writeValueAsBytes(values));
+        assertEquals(BinaryTagTypes.BYTE, tag.get("byte").type());
+        assertEquals(BinaryTagTypes.SHORT, tag.get("short").type());
+        assertEquals(BinaryTagTypes.INT, tag.get("int").type());
+        assertEquals(BinaryTagTypes.LONG, tag.get("long").type());
+        assertEquals(BinaryTagTypes.FLOAT, tag.get("float").type());
+        assertEquals(BinaryTagTypes.DOUBLE, tag.get("double").type());
+        assertEquals(100, tag.getByte("byte"));
+        assertEquals(-300, tag.getShort("short"));
+        assertEquals(70000, tag.getInt("int"));
+        assertEquals(1L << 40, tag.getLong("long"));
+        assertEquals(0.25f, tag.getFloat("float"));
+        assertEquals(0.1, tag.getDouble("double"));
+
+        // without the feature, values keep their type
+        tag = read(new NbtMapper().writeValueAsBytes(values));
+        assertEquals(BinaryTagTypes.LONG, tag.get("byte").type());
+        assertEquals(BinaryTagTypes.DOUBLE, tag.get("float").type());
+    }
+
+    @Test
+    public void listElementsAreWidened() throws IOException {
+        NbtMapper mapper = compactMapper();
+        ListBinaryTag list = read(mapper.writeValueAsBytes(
+                Collections.singletonMap("list", Arrays.asList(1, 200, 1 << 20, 3)))).getList("list");
+        assertEquals(BinaryTagTypes.INT, list.elementType());
+        assertEquals(Arrays.asList(1, 200, 1 << 20, 3), Arrays.asList(
+                list.getInt(0), list.getInt(1), list.getInt(2), list.getInt(3)));
+
+        list = read(mapper.writeValueAsBytes(
+                Collections.singletonMap("list", Arrays.asList(0.5, 0.1)))).getList("list");
+        assertEquals(BinaryTagTypes.DOUBLE, list.elementType());
+        assertEquals(0.5, list.getDouble(0));
+        assertEquals(0.1, list.getDouble(1));
+    }
+
+    @Test
+    public void compactNumbersWidenedAfterFlush() throws IOException {
+        NbtMapper mapper = compactMapper();
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            values.add((long) (i % 100));
+        }
+        values.add(1L << 40);
+
+        ListBinaryTag list = read(mapper.writeValueAsBytes(Collections.singletonMap("list", values))).getList("list");
+        assertEquals(BinaryTagTypes.LONG, list.elementType());
+        assertEquals(values.size(), list.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals((long) values.get(i), list.getLong(i));
+        }
+
+        values.remove(values.size() - 1);
+        list = read(mapper.writeValueAsBytes(Collections.singletonMap("list", values))).getList("list");
+        assertEquals(BinaryTagTypes.BYTE, list.elementType());
+        assertEquals(COUNT, list.size());
+    }
+
+    @Test
+    public void compactTypedArraysWidenedAfterFlush() throws IOException {
+        NbtMapper mapper = NbtMapper.builder().enable(NbtGenerator.Feature.WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS,
+                NbtGenerator.Feature.WRITE_COMPACT_NUMBERS).build();
+        List<Long> values = new ArrayList<>();
+        long[] expected = new long[COUNT + 1];
+        for (int i = 0; i < COUNT; i++) {
+            values.add((long) i);
+            expected[i] = i;
+        }
+        values.add(Long.MAX_VALUE);
+        expected[COUNT] = Long.MAX_VALUE;
+
+        CompoundBinaryTag tag = read(mapper.writeValueAsBytes(Collections.singletonMap("longs", values)));
+        assertArrayEquals(expected, tag.getLongArray("longs"));
+    }
+}
@@ -0,0 +1,135 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.databind.SequenceWriter;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * GZIP and zlib compressed input and output, checked against adventure's {@link BinaryTagIO}.
+ */
+public class NbtCompressionTest {
+    private static final NbtCompression[] COMPRESSIONS = {NbtCompression.GZIP, NbtCompression.ZLIB};
+
+    static BinaryTagIO.Compression adventure(NbtCompression compression) {
+        return (compression == NbtCompression.GZIP) ? BinaryTagIO.Compression.GZIP : BinaryTagIO.Compression.ZLIB;
+    }
+
+    static CompoundBinaryTag reference() {
+        ListBinaryTag.Builder<BinaryTag> list = ListBinaryTag.builder();
+        for (int i = 0; i < 20_000; i++) {
+            list.add(CompoundBinaryTag.builder().putInt("i", i).putString("s", "value " + i).build());
+        }
+        return CompoundBinaryTag.builder()
+                .putString("name", "compressed")
+                .putLongArray("longs", new long[]{1, 2, 3})
+                .put("list", list.build())
+                .build();
+    }
+
+    static byte[] write(CompoundBinaryTag tag, BinaryTagIO.Compression compression) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTagIO.writer().write(tag, out, compression);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void outputIsReadableByAdventure() throws IOException {
+        CompoundBinaryTag reference = reference();
+        for (NbtCompression compression : COMPRESSIONS) {
+            NbtMapper mapper = new NbtMapper();
+            mapper.getFactory().setOutputCompression(compression);
+            byte[] bytes = mapper.writeTag(reference);
+            assertEquals(compression, NbtCompression.detect(bytes, 0, bytes.length));
+            assertEquals(reference, BinaryTagIO.unlimitedReader()
+                    .read(new ByteArrayInputStream(bytes), adventure(compression)));
+
+            byte[] schemaBytes = new NbtMapper().writer(NbtSchema.compressed(compression)
+                    .withCompressionLevel(Deflater.BEST_COMPRESSION)).writeValueAsBytes(reference);
+            assertEquals(reference, BinaryTagIO.unlimitedReader()
+                    .read(new ByteArrayInputStream(schemaBytes), adventure(compression)));
+        }
+    }
+
+    @Test
+    public void compressedInputIsDetected() throws IOException {
+        CompoundBinaryTag reference = reference();
+        NbtMapper mapper = new NbtMapper();
+        byte[] plain = mapper.writeTag(reference);
+        for (NbtCompression compression : COMPRESSIONS) {
+            byte[] bytes = write(reference, adventure(compression));
+            assertArrayEquals(plain, mapper.writeTag(mapper.readTag(bytes)));
+            assertArrayEquals(plain, mapper.writeTag(mapper.readTag(new ByteArrayInputStream(bytes))));
+            assertEquals(mapper.readValue(plain, Map.class), mapper.readValue(bytes, Map.class));
+        }
+    }
+
+    @Test
+    public void flushWritesOutCompressedContent() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        mapper.getFactory().setOutputCompression(NbtCompression.GZIP);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Map<String, Object>> written = new ArrayList<>();
+        try (SequenceWriter writer = mapper.writer().writeValues(out)) {
+            for (int i = 0; i < 3; i++) {
+                Map<String, Object> value = new LinkedHashMap<>();
+                value.put("i", i);
+                value.put("s", "value " + i);
+                writer.write(value);
+                writer.flush();
+                written.add(value);
+
+                // everything written so far can be decompressed before the stream is finished
+                byte[] plain = new NbtMapper().writeValueAsBytes(value);
+                byte[] inflated = _inflateAvailable(out.toByteArray());
+                assertEquals(plain.length * (i + 1), inflated.length);
+            }
+        }
+        List<Map<String, Object>> read = new ArrayList<>();
+        for (Object value : mapper.readerFor(Map.class).readValues(out.toByteArray()).readAll()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) value;
+            read.add(map);
+        }
+        assertEquals(written, read);
+    }
+
+    @Test
+    public void uncompressedOutputByDefault() throws IOException {
+        byte[] bytes = new NbtMapper().writeValueAsBytes(Collections.singletonMap("a", 1));
+        assertEquals(NbtCompression.NONE, NbtCompression.detect(bytes, 0, bytes.length));
+        assertEquals(NbtConstants.TAG_COMPOUND, bytes[0]);
+    }
+
+    private static byte[] _inflateAvailable(byte[] gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            byte[] buf = new byte[256];
+            int count;
+            while ((count = in.read(buf)) > 0) {
+                out.write(buf, 0, count);
+            }
+        } catch (EOFException e) {
+            // no trailer yet
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,143 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.io.InputDecorator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parsing from heap and direct {@link ByteBuffer}s and from memory-mapped files gives the same
+ * tokens as parsing the same content from a byte array.
+ */
+public class NbtFactoryByteBufferTest {
+    static byte[] document() throws IOException {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("i", i);
+            map.put("s", "value " + i);
+            map.put("d", i / 7.0);
+            list.add(map);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("name", "buffers");
+        root.put("list", list);
+        return new NbtMapper().writeValueAsBytes(root);
+    }
+
+    static List<String> tokens(JsonParser p) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try {
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                tokens.add(t.isScalarValue() || t == JsonToken.FIELD_NAME ? t + " " + p.getText() : t.toString());
+            }
+        } finally {
+            p.close();
+        }
+        return tokens;
+    }
+
+    static ByteBuffer direct(byte[] content) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void heapBuffers() throws IOException {
+        NbtFactory factory = new NbtFactory();
+        byte[] content = document();
+        List<String> expected = tokens(factory.createParser(content));
+
+        byte[] padded = new byte[content.length + 10];
+        System.arraycopy(content, 0, padded, 7, content.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded, 7, content.length);
+        assertEquals(expected, tokens(factory.createParser(buffer)));
+        assertEquals(7, buffer.position());
+        assertEquals(expected, tokens(factory.createParser(buffer.slice())));
+    }
+
+    @Test
+    public void directBuffers() throws IOException {
+        NbtFactory factory = new NbtFactory();
+        byte[] content = document();
+        List<String> expected = tokens(factory.createParser(content));
+
+        ByteBuffer buffer = direct(content);
+        assertEquals(expected, tokens(factory.createParser(buffer)));
+        assertEquals(0, buffer.position());
+
+        NbtMapper gzip = new NbtMapper();
+        gzip.getFactory().setOutputCompression(NbtCompression.GZIP);
+        byte[] compressed = gzip.writeValueAsBytes(new NbtMapper().readValue(content, Map.class));
+        assertEquals(expected, tokens(factory.createParser(direct(compressed))));
+    }
+
+    @Test
+    public void memoryMappedFiles() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] content = document();
+        List<String> expected = tokens(mapper.getFactory().createParser(content));
+        File file = File.createTempFile("nbt-test", ".nbt");
+        try {
+            Files.write(file.toPath(), content);
+            assertEquals(expected, tokens(mapper.getFactory().createParser(file)));
+            assertEquals(expected, tokens(mapper.getFactory().createParser(file.toPath())));
+            assertEquals(mapper.readValue(content, Map.class), mapper.readValue(file, Map.class));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void decoratedBuffers() throws IOException {
+        final int[] calls = {0};
+        InputDecorator decorator = new InputDecorator() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public InputStream decorate(IOContext ctxt, InputStream in) {
+                ++calls[0];
+                return in;
+            }
+
+            @Override
+            public InputStream decorate(IOContext ctxt, byte[] src, int offset, int length) {
+                ++calls[0];
+                return new ByteArrayInputStream(src, offset, length);
+            }
+
+            @Override
+            public Reader decorate(IOContext ctxt, Reader r) {
+                return r;
+            }
+        };
+        NbtFactory factory = NbtFactory.builder().inputDecorator(decorator).build();
+        byte[] content = document();
+        List<String> expected = tokens(new NbtFactory().createParser(content));
+
+        byte[] padded = new byte[content.length + 3];
+        System.arraycopy(content, 0, padded, 3, content.length);
+        assertEquals(expected, tokens(factory.createParser(ByteBuffer.wrap(padded, 3, content.length).slice())));
+        assertEquals(1, calls[0]);
+        assertEquals(expected, tokens(factory.createParser(direct(content))));
+        assertEquals(2, calls[0]);
+    }
+}
@@ -0,0 +1,148 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.StringBinaryTag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Output of {@link NbtGenerator}, checked with adventure's {@link BinaryTagIO}, including
+ * documents much larger than the output buffer so that list headers are backpatched while
+ * earlier content has been flushed.
+ */
+public class NbtGeneratorTest {
+    private static final int COUNT = 100_000;
+
+    public static class Item {
+        public byte b;
+        public short s;
+        public int i;
+        public long l;
+        public float f;
+        public double d;
+        public String str;
+        public byte[] bytes;
+        public int[] ints;
+        public List<String> names = new ArrayList<>();
+        public Item child;
+    }
+
+    static CompoundBinaryTag read(byte[] bytes) throws IOException {
+        return BinaryTagIO.unlimitedReader().read(new ByteArrayInputStream(bytes));
+    }
+
+    static List<Map<String, Object>> compounds() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("i", i);
+            map.put("s", "value " + i);
+            list.add(map);
+        }
+        return list;
+    }
+
+    static void assertCompounds(ListBinaryTag list) {
+        assertEquals(BinaryTagTypes.COMPOUND, list.elementType());
+        assertEquals(COUNT, list.size());
+        for (int i = 0; i < COUNT; i += 997) {
+            assertEquals(i, list.getCompound(i).getInt("i"));
+            assertEquals("value " + i, list.getCompound(i).getString("s"));
+        }
+    }
+
+    @Test
+    public void valuesAreReadableByAdventure() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        Item item = new Item();
+        item.b = -2;
+        item.s = 300;
+        item.i = 70000;
+        item.l = -(1L << 50);
+        item.f = 0.25f;
+        item.d = Math.PI;
+        item.str = "héllo \u0000 😀";
+        item.bytes = new byte[]{-1, 0, 1};
+        item.ints = new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE};
+        item.names.addAll(Arrays.asList("a", "b"));
+        item.child = new Item();
+        item.child.str = "child";
+
+        CompoundBinaryTag tag = read(mapper.writeValueAsBytes(item));
+        assertEquals(item.b, tag.getByte("b"));
+        assertEquals(item.s, tag.getShort("s"));
+        assertEquals(item.i, tag.getInt("i"));
+        assertEquals(item.l, tag.getLong("l"));
+        assertEquals(item.f, tag.getFloat("f"));
+        assertEquals(item.d, tag.getDouble("d"));
+        assertEquals(item.str, tag.getString("str"));
+        assertArrayEquals(item.bytes, tag.getByteArray("bytes"));
+        assertEquals(BinaryTagTypes.INT, tag.getList("ints").elementType());
+        assertEquals(item.ints[0], tag.getList("ints").getInt(0));
+        assertEquals(ListBinaryTag.of(BinaryTagTypes.STRING,
+                Arrays.asList(StringBinaryTag.of("a"), StringBinaryTag.of("b"))), tag.getList("names"));
+        assertEquals("child", tag.getCompound("child").getString("str"));
+        // null fields are left out
+        assertFalse(tag.getCompound("child").keySet().contains("bytes"));
+
+        Item back = mapper.readValue(mapper.writeValueAsBytes(item), Item.class);
+        assertEquals(item.l, back.l);
+        assertEquals(item.str, back.str);
+        assertArrayEquals(item.ints, back.ints);
+        assertEquals(item.names, back.names);
+        assertEquals("child", back.child.str);
+    }
+
+    @Test
+    public void rootValuesHaveAnEmptyName() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        assertArrayEquals(new byte[]{NbtConstants.TAG_INT, 0, 0, 0, 0, 0, 5}, mapper.writeValueAsBytes(5));
+        assertArrayEquals(new byte[]{NbtConstants.TAG_LIST, 0, 0, NbtConstants.TAG_END, 0, 0, 0, 0},
+                mapper.writeValueAsBytes(Collections.emptyList()));
+    }
+
+    @Test
+    public void mixedListsAreRejected() {
+        NbtMapper mapper = new NbtMapper();
+        assertThrows(JsonProcessingException.class, () -> mapper.writeValueAsBytes(Arrays.asList(1, "a")));
+        assertThrows(JsonProcessingException.class, () -> mapper.writeValueAsBytes(Arrays.asList("a", null)));
+    }
+
+    @Test
+    public void listOfKnownLength() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] bytes = mapper.writeValueAsBytes(Collections.singletonMap("list", compounds()));
+        assertCompounds(read(bytes).getList("list"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mapper.writeValue(out, Collections.singletonMap("list", compounds()));
+        assertArrayEquals(bytes, out.toByteArray());
+    }
+
+    @Test
+    public void listOfUnknownLength() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        // iterators are written without a length, which is patched in once the list ends
+        byte[] bytes = mapper.writeValueAsBytes(Collections.singletonMap("list", compounds().iterator()));
+        assertCompounds(read(bytes).getList("list"));
+        assertArrayEquals(mapper.writeValueAsBytes(Collections.singletonMap("list", compounds())), bytes);
+    }
+}
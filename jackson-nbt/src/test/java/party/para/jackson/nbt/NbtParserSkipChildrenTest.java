@@ -0,0 +1,143 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.DoubleBinaryTag;
+import net.kyori.adventure.nbt.IntArrayBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.StringBinaryTag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link NbtParser#skipChildren()} skips at byte level to the same place as reading every
+ * token of the skipped value would.
+ */
+public class NbtParserSkipChildrenTest {
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Summary {
+        public String name;
+        public int version;
+    }
+
+    static byte[] document() throws IOException {
+        ListBinaryTag.Builder<BinaryTag> nested = ListBinaryTag.builder();
+        ListBinaryTag.Builder<BinaryTag> doubles = ListBinaryTag.builder();
+        ListBinaryTag.Builder<BinaryTag> strings = ListBinaryTag.builder();
+        ListBinaryTag.Builder<BinaryTag> compounds = ListBinaryTag.builder();
+        for (int i = 0; i < 5; i++) {
+            doubles.add(DoubleBinaryTag.of(i / 3.0));
+            strings.add(StringBinaryTag.of("string " + i));
+            compounds.add(CompoundBinaryTag.builder().putInt("i", i).putString("é", "x")
+                    .put("inner", CompoundBinaryTag.builder().putByteArray("ba", new byte[i]).build()).build());
+            nested.add((BinaryTag) ListBinaryTag.builder().add(IntArrayBinaryTag.of(i, i + 1)).build());
+        }
+        CompoundBinaryTag tag = CompoundBinaryTag.builder()
+                .putString("name", "level")
+                .put("data", CompoundBinaryTag.builder()
+                        .put("doubles", doubles.build())
+                        .put("strings", strings.build())
+                        .put("compounds", compounds.build())
+                        .put("nested", nested.build())
+                        .put("empty", ListBinaryTag.empty())
+                        .put("emptyCompound", CompoundBinaryTag.empty())
+                        .putIntArray("ia", new int[]{1, 2, 3})
+                        .putLongArray("la", new long[]{4, 5})
+                        .putByteArray("ba", new byte[]{6})
+                        .build())
+                .putInt("version", 19133)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTagIO.writer().write(tag, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Input stream that returns one byte per read, so that skipped values span buffer refills.
+     */
+    static InputStream trickle(byte[] content) {
+        return new FilterInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    static String describe(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        return t.isScalarValue() || t == JsonToken.FIELD_NAME ? t + " " + p.getText() : t.toString();
+    }
+
+    static List<String> remainingTokens(JsonParser p) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        while (p.nextToken() != null) {
+            tokens.add(describe(p));
+        }
+        return tokens;
+    }
+
+    @Test
+    public void skipsToEndOfEachContainer() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] content = document();
+        List<String> all;
+        try (JsonParser p = mapper.getFactory().createParser(content)) {
+            all = remainingTokens(p);
+        }
+
+        for (int start = 0; start < all.size(); start++) {
+            if (!all.get(start).startsWith("START_")) {
+                continue;
+            }
+            int end = start;
+            for (int depth = 0; ; ) {
+                String token = all.get(end);
+                depth += token.startsWith("START_") ? 1 : token.startsWith("END_") ? -1 : 0;
+                if (depth == 0) {
+                    break;
+                }
+                ++end;
+            }
+            List<String> expected = all.subList(end + 1, all.size());
+            for (JsonParser p : new JsonParser[]{mapper.getFactory().createParser(content),
+                    mapper.getFactory().createParser(trickle(content))}) {
+                try {
+                    for (int i = 0; i <= start; i++) {
+                        p.nextToken();
+                    }
+                    p.skipChildren();
+                    assertEquals(all.get(end), describe(p), "token " + start);
+                    assertEquals(expected, remainingTokens(p), "token " + start);
+                } finally {
+                    p.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unknownPropertiesAreSkipped() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] content = document();
+        Summary summary = mapper.readValue(content, Summary.class);
+        assertEquals("level", summary.name);
+        assertEquals(19133, summary.version);
+        summary = mapper.readValue(trickle(content), Summary.class);
+        assertEquals("level", summary.name);
+        assertEquals(19133, summary.version);
+    }
+}
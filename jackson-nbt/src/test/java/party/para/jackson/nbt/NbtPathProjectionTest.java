@@ -0,0 +1,87 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * {@link NbtMapper#readPaths(byte[], JsonPointer...)} finds the same values as reading the
+ * whole tree.
+ */
+public class NbtPathProjectionTest {
+    static byte[] levelDocument(int padding) throws IOException {
+        List<Map<String, Object>> inventory = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", "item" + i);
+            item.put("Count", (byte) i);
+            inventory.add(item);
+        }
+        Map<String, Object> player = new LinkedHashMap<>();
+        player.put("Rotation", new int[]{90, 0});
+        player.put("Pos", Arrays.asList(1.5, 64.0, -3.0));
+        player.put("Inventory", inventory);
+        // in this order, so that the padding comes after everything the tests look for
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("Time", 123456789L);
+        data.put("Player", player);
+        data.put("Padding", new byte[padding]);
+        return new NbtMapper().writeValueAsBytes(Collections.singletonMap("Data", data));
+    }
+
+    @Test
+    public void pathsMatchTree() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] content = levelDocument(100_000);
+        JsonNode tree = mapper.readTree(content);
+        List<JsonPointer> paths = Arrays.asList(
+                JsonPointer.compile("/Data/Player/Pos"),
+                JsonPointer.compile("/Data/Time"),
+                JsonPointer.compile("/Data/Player/Inventory/1/id"),
+                JsonPointer.compile("/Data/Player/Rotation/1"));
+
+        Map<JsonPointer, JsonNode> found = mapper.readPaths(content, paths);
+        assertEquals(paths.size(), found.size());
+        for (JsonPointer path : paths) {
+            assertEquals(tree.at(path), found.get(path), path.toString());
+        }
+        assertEquals(found, mapper.readPaths(new ByteArrayInputStream(content), paths));
+    }
+
+    @Test
+    public void missingPathsAreLeftOut() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        JsonPointer missing = JsonPointer.compile("/Data/Player/Spawn");
+        JsonPointer outOfRange = JsonPointer.compile("/Data/Player/Inventory/7");
+        JsonPointer time = JsonPointer.compile("/Data/Time");
+
+        Map<JsonPointer, JsonNode> found = mapper.readPaths(levelDocument(10), missing, outOfRange, time);
+        assertFalse(found.containsKey(missing));
+        assertFalse(found.containsKey(outOfRange));
+        assertEquals(123456789L, found.get(time).longValue());
+    }
+
+    @Test
+    public void readingStopsOnceAllPathsAreFound() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] content = levelDocument(100_000);
+        // cut in the middle of the padding that follows the requested values
+        byte[] truncated = Arrays.copyOf(content, content.length - 50_000);
+        JsonPointer pos = JsonPointer.compile("/Data/Player/Pos/2");
+
+        Map<JsonPointer, JsonNode> found = mapper.readPaths(truncated, pos);
+        assertEquals(-3.0, found.get(pos).doubleValue());
+    }
+}
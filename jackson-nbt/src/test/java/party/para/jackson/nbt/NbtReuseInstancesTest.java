@@ -0,0 +1,147 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * With {@link NbtParser.Feature#REUSE_INSTANCES} and {@link NbtGenerator.Feature#REUSE_INSTANCES},
+ * closed parsers and generators are handed out again on the same thread, and read and write
+ * exactly what new ones would.
+ */
+public class NbtReuseInstancesTest {
+    static Map<String, Object> document(int i) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("i", i);
+        map.put("name", "document " + i);
+        map.put("list", Arrays.asList("a" + i, "b" + i));
+        map.put("bytes", new byte[i % 5]);
+        return map;
+    }
+
+    static NbtFactory reusingFactory() {
+        return NbtFactory.builder()
+                .enable(NbtParser.Feature.REUSE_INSTANCES)
+                .enable(NbtGenerator.Feature.REUSE_INSTANCES)
+                .build();
+    }
+
+    static List<String> tokens(JsonParser p) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try {
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                tokens.add(t.isScalarValue() || t == JsonToken.FIELD_NAME ? t + " " + p.getText() : t.toString());
+            }
+        } finally {
+            p.close();
+        }
+        return tokens;
+    }
+
+    @Test
+    public void parsersAreReused() throws IOException {
+        NbtFactory factory = reusingFactory();
+        NbtMapper plain = new NbtMapper();
+        byte[] first = plain.writeValueAsBytes(document(1));
+        byte[] second = plain.writeValueAsBytes(document(2));
+
+        JsonParser p = factory.createParser(first);
+        List<String> expected = tokens(new NbtFactory().createParser(first));
+        assertEquals(expected, tokens(p));
+        JsonParser again = factory.createParser(new ByteArrayInputStream(second));
+        assertSame(p, again);
+        assertEquals(tokens(new NbtFactory().createParser(second)), tokens(again));
+
+        // a parser closed in the middle of a document starts over
+        p = factory.createParser(first);
+        p.nextToken();
+        p.nextToken();
+        p.close();
+        assertEquals(expected, tokens(factory.createParser(first)));
+
+        assertNotSame(new NbtFactory().createParser(first), new NbtFactory().createParser(first));
+    }
+
+    @Test
+    public void generatorsAreReused() throws IOException {
+        NbtMapper plain = new NbtMapper();
+        NbtMapper reusing = new NbtMapper(reusingFactory());
+        for (int i = 0; i < 20; i++) {
+            byte[] bytes = reusing.writeValueAsBytes(document(i));
+            assertArrayEquals(plain.writeValueAsBytes(document(i)), bytes);
+            assertEquals(plain.readValue(bytes, Map.class), reusing.readValue(bytes, Map.class));
+        }
+
+        NbtFactory factory = reusing.getFactory();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NbtGenerator g = factory.createGenerator(out);
+        g.writeStartObject();
+        g.writeNumberField("unfinished", 1);
+        g.close();
+        ByteArrayOutputStream next = new ByteArrayOutputStream();
+        NbtGenerator again = factory.createGenerator(next);
+        assertSame(g, again);
+        reusing.writeValue(again, document(3));
+        again.close();
+        assertArrayEquals(plain.writeValueAsBytes(document(3)), next.toByteArray());
+    }
+
+    @Test
+    public void otherThreadsGetTheirOwn() throws Exception {
+        NbtFactory factory = reusingFactory();
+        byte[] bytes = new NbtMapper().writeValueAsBytes(document(1));
+        JsonParser p = factory.createParser(bytes);
+        p.close();
+        JsonParser[] other = new JsonParser[1];
+        Thread thread = new Thread(() -> {
+            try {
+                other[0] = factory.createParser(bytes);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(p, other[0]);
+        assertSame(p, factory.createParser(bytes));
+    }
+
+    @Test
+    public void explicitReset() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] first = mapper.writeValueAsBytes(document(1));
+        byte[] second = mapper.writeValueAsBytes(document(2));
+        NbtParser p = mapper.getFactory().createParser(first);
+        p.nextToken();
+        p.reset(second, 0, second.length);
+        assertEquals(document(2).get("name"), mapper.readValue(p, Map.class).get("name"));
+        p.reset(new ByteArrayInputStream(first));
+        assertEquals(document(1).get("name"), mapper.readValue(p, Map.class).get("name"));
+        p.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NbtGenerator g = mapper.getFactory().createGenerator(out);
+        mapper.writeValue(g, document(1));
+        ByteArrayOutputStream next = new ByteArrayOutputStream();
+        g.reset(next);
+        mapper.writeValue(g, document(2));
+        g.close();
+        assertArrayEquals(first, out.toByteArray());
+        assertArrayEquals(second, next.toByteArray());
+    }
+}
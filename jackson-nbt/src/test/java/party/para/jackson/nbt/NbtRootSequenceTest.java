@@ -0,0 +1,123 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Concatenated documents, as written by a {@link SequenceWriter}, are read back as a sequence of
+ * root values.
+ */
+public class NbtRootSequenceTest {
+    private static final int COUNT = 10_000;
+
+    static Map<String, Object> record(int i) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("i", i);
+        value.put("list", Collections.nCopies(i % 7, "x" + i));
+        return value;
+    }
+
+    static byte[] records(NbtMapper mapper, int count) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SequenceWriter writer = mapper.writer().writeValues(out)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(record(i));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static List<Object> readAll(MappingIterator<Object> it) throws IOException {
+        List<Object> values = new ArrayList<>();
+        try {
+            while (it.hasNextValue()) {
+                values.add(it.nextValue());
+            }
+        } finally {
+            it.close();
+        }
+        return values;
+    }
+
+    static List<Object> expected(int count) {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(record(i));
+        }
+        return values;
+    }
+
+    /**
+     * Input stream that returns at most 3 bytes per read, so that documents span buffer refills.
+     */
+    static InputStream trickle(byte[] content) {
+        return new FilterInputStream(new ByteArrayInputStream(content)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+    }
+
+    @Test
+    public void recordsAreReadAsSequence() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] bytes = records(mapper, COUNT);
+        assertEquals(expected(COUNT), readAll(mapper.readerFor(Map.class).readValues(bytes)));
+        assertEquals(expected(COUNT), readAll(mapper.readerFor(Map.class).readValues(new ByteArrayInputStream(bytes))));
+        assertEquals(expected(100), readAll(mapper.readerFor(Map.class).readValues(trickle(records(mapper, 100)))));
+    }
+
+    @Test
+    public void zeroPaddingEndsContent() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] bytes = records(mapper, 3);
+        byte[] padded = new byte[bytes.length + 100];
+        System.arraycopy(bytes, 0, padded, 0, bytes.length);
+        assertEquals(expected(3), readAll(mapper.readerFor(Map.class).readValues(padded)));
+    }
+
+    @Test
+    public void readValueBindsFirstValue() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] bytes = records(mapper, 3);
+        assertEquals(record(0), mapper.readValue(bytes, Map.class));
+        assertThrows(JsonMappingException.class, () -> mapper.readerFor(Map.class)
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS).readValue(bytes));
+    }
+
+    @Test
+    public void compressedRecords() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        mapper.getFactory().setOutputCompression(NbtCompression.GZIP);
+        // one stream for all records
+        byte[] single = records(mapper, COUNT);
+        assertEquals(expected(COUNT), readAll(new NbtMapper().readerFor(Map.class).readValues(single)));
+
+        // records appended as separately compressed members
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            members.write(mapper.writeValueAsBytes(record(i)));
+        }
+        assertEquals(expected(50), readAll(new NbtMapper().readerFor(Map.class).readValues(members.toByteArray())));
+        assertEquals(expected(50), readAll(new NbtMapper().readerFor(Map.class)
+                .readValues(trickle(members.toByteArray()))));
+    }
+}
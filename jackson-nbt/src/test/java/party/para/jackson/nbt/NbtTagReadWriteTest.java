@@ -0,0 +1,127 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.ShortBinaryTag;
+import org.junit.jupiter.api.Test;
+import party.para.jackson.nbt.entity.ListBinaryTags;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link NbtMapper#readTag(byte[])} and {@link NbtMapper#writeTag(BinaryTag)} round trip with
+ * adventure's {@link BinaryTagIO}, which serves as the reference implementation of the format.
+ */
+public class NbtTagReadWriteTest {
+    public static class Holder {
+        public String name;
+        public CompoundBinaryTag data;
+        public ListBinaryTag list;
+    }
+
+    static CompoundBinaryTag referenceCompound() {
+        return CompoundBinaryTag.builder()
+                .putByte("b", (byte) -1)
+                .putShort("s", (short) 3)
+                .putInt("i", 7)
+                .putLong("l", 1L << 40)
+                .putFloat("f", 1.5f)
+                .putDouble("d", 2.25)
+                .putString("str", "héllo \u0000 😀")
+                .putByteArray("ba", new byte[]{1, 2})
+                .putIntArray("ia", new int[]{3, 4, 5})
+                .putLongArray("la", new long[]{6})
+                .put("shorts", ListBinaryTag.builder().add(ShortBinaryTag.of((short) 1)).add(ShortBinaryTag.of((short) 2)).build())
+                .put("compounds", ListBinaryTag.builder().add(CompoundBinaryTag.builder().putString("x", "y").build()).build())
+                .put("empty", ListBinaryTag.empty())
+                .put("nested", CompoundBinaryTag.builder().put("deep", CompoundBinaryTag.empty()).build())
+                .build();
+    }
+
+    static byte[] write(CompoundBinaryTag tag) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTagIO.writer().write(tag, out);
+        return out.toByteArray();
+    }
+
+    static CompoundBinaryTag read(byte[] bytes) throws IOException {
+        return BinaryTagIO.unlimitedReader().read(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void tagsMatchAdventure() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        CompoundBinaryTag reference = referenceCompound();
+        byte[] bytes = write(reference);
+
+        assertArrayEquals(bytes, mapper.writeTag(reference));
+        BinaryTag tag = mapper.readTag(bytes);
+        assertTrue(ListBinaryTags.contentEquals(reference, tag));
+        assertEquals(BinaryTagTypes.BYTE_ARRAY, ((CompoundBinaryTag) tag).get("ba").type());
+        assertEquals(BinaryTagTypes.SHORT, ((CompoundBinaryTag) tag).getList("shorts").elementType());
+        assertArrayEquals(bytes, mapper.writeTag(tag));
+        assertEquals(reference, read(mapper.writeTag(tag)));
+    }
+
+    @Test
+    public void streamsAndFiles() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] bytes = write(referenceCompound());
+        BinaryTag tag = mapper.readTag(bytes);
+        assertEquals(tag, mapper.readTag(new ByteArrayInputStream(bytes)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mapper.writeTag(out, tag);
+        assertArrayEquals(bytes, out.toByteArray());
+
+        File file = File.createTempFile("nbt-test", ".nbt");
+        try {
+            mapper.writeTag(file, tag);
+            assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+            assertEquals(tag, mapper.readTag(file));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void tagsAsProperties() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        Holder holder = new Holder();
+        holder.name = "holder";
+        holder.data = referenceCompound();
+        holder.list = ListBinaryTag.builder().add(IntBinaryTag.of(1)).add(IntBinaryTag.of(2)).build();
+
+        byte[] bytes = mapper.writeValueAsBytes(holder);
+        CompoundBinaryTag tag = read(bytes);
+        assertEquals(holder.data, tag.getCompound("data"));
+        assertEquals(holder.list, tag.getList("list"));
+
+        Holder back = mapper.readValue(bytes, Holder.class);
+        assertEquals("holder", back.name);
+        assertTrue(ListBinaryTags.contentEquals(holder.data, back.data));
+        assertTrue(ListBinaryTags.contentEquals(holder.list, back.list));
+    }
+
+    @Test
+    public void mismatchedTagTypesAreReported() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] bytes = write(referenceCompound());
+        assertThrows(JsonMappingException.class, () -> mapper.readValue(bytes, ListBinaryTag.class));
+        assertEquals(7, mapper.readValue(bytes, CompoundBinaryTag.class).getInt("i"));
+    }
+}
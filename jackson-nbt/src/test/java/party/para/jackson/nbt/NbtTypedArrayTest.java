@@ -0,0 +1,94 @@
+package party.para.jackson.nbt;
+
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link NbtGenerator.Feature#WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS} writes lists of ints and longs
+ * as {@code INT_ARRAY} and {@code LONG_ARRAY} tags, including lists much larger than the output
+ * buffer.
+ */
+public class NbtTypedArrayTest {
+    private static final int COUNT = 100_000;
+
+    public static class Numbers {
+        public int[] ints;
+        public long[] longs;
+        public byte[] bytes;
+        public List<Double> doubles;
+    }
+
+    static CompoundBinaryTag read(byte[] bytes) throws IOException {
+        return BinaryTagIO.unlimitedReader().read(new ByteArrayInputStream(bytes));
+    }
+
+    static NbtMapper typedMapper() {
+        return NbtMapper.builder().enable(NbtGenerator.Feature.WRITE_NUMBER_LISTS_AS_TYPED_ARRAYS).build();
+    }
+
+    @Test
+    public void numberArraysAsTypedArrays() throws IOException {
+        Numbers value = new Numbers();
+        value.ints = new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE};
+        value.longs = new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+        value.bytes = new byte[]{-1, 0, 1};
+        value.doubles = Arrays.asList(0.5, 1.5);
+
+        NbtMapper mapper = typedMapper();
+        CompoundBinaryTag tag = read(mapper.writeValueAsBytes(value));
+        assertArrayEquals(value.ints, tag.getIntArray("ints"));
+        assertArrayEquals(value.longs, tag.getLongArray("longs"));
+        assertArrayEquals(value.bytes, tag.getByteArray("bytes"));
+        // there is no typed array of doubles
+        assertEquals(BinaryTagTypes.DOUBLE, tag.getList("doubles").elementType());
+
+        Numbers back = mapper.readValue(mapper.writeValueAsBytes(value), Numbers.class);
+        assertArrayEquals(value.ints, back.ints);
+        assertArrayEquals(value.longs, back.longs);
+        assertArrayEquals(value.bytes, back.bytes);
+        assertEquals(value.doubles, back.doubles);
+
+        // without the feature, they are lists
+        tag = read(new NbtMapper().writeValueAsBytes(value));
+        assertEquals(BinaryTagTypes.INT, tag.getList("ints").elementType());
+        assertEquals(BinaryTagTypes.LONG, tag.getList("longs").elementType());
+    }
+
+    @Test
+    public void typedArraysAfterFlush() throws IOException {
+        NbtMapper mapper = typedMapper();
+        List<Integer> ints = new ArrayList<>();
+        int[] expected = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            ints.add(i * 31);
+            expected[i] = i * 31;
+        }
+
+        CompoundBinaryTag tag = read(mapper.writeValueAsBytes(Collections.singletonMap("ints", ints)));
+        assertArrayEquals(expected, tag.getIntArray("ints"));
+        // iterators are written without a length, which is patched in once the array ends
+        tag = read(mapper.writeValueAsBytes(Collections.singletonMap("ints", ints.iterator())));
+        assertArrayEquals(expected, tag.getIntArray("ints"));
+    }
+
+    @Test
+    public void rootTypedArrays() throws IOException {
+        NbtMapper mapper = typedMapper();
+        byte[] bytes = mapper.writeValueAsBytes(new long[]{1, 2});
+        assertArrayEquals(new byte[]{NbtConstants.TAG_LONG_ARRAY, 0, 0, 0, 0, 0, 2,
+                0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 2}, bytes);
+        assertArrayEquals(new long[]{1, 2}, mapper.readValue(bytes, long[].class));
+    }
+}
@@ -0,0 +1,122 @@
+package party.para.jackson.nbt;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import org.junit.jupiter.api.Test;
+import party.para.jackson.nbt.entity.ListBinaryTags;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link RawNbtValue}s are copied into NBT output verbatim, and replayed as tokens elsewhere.
+ */
+public class RawNbtValueTest {
+    static CompoundBinaryTag fragment() {
+        return CompoundBinaryTag.builder()
+                .putString("id", "minecraft:stone")
+                .putByte("Count", (byte) 64)
+                .putIntArray("ia", new int[]{1, 2})
+                .put("tag", CompoundBinaryTag.builder().putLong("seed", 1L << 40).build())
+                .build();
+    }
+
+    static byte[] write(CompoundBinaryTag tag) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTagIO.writer().write(tag, out);
+        return out.toByteArray();
+    }
+
+    static CompoundBinaryTag read(byte[] bytes) throws IOException {
+        return BinaryTagIO.unlimitedReader().read(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void embeddedVerbatim() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        RawNbtValue raw = RawNbtValue.ofDocument(write(fragment()));
+        assertEquals(NbtConstants.TAG_COMPOUND, raw.getType());
+
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("before", 1);
+        value.put("item", raw);
+        value.put("items", Arrays.asList(raw, raw));
+        value.put("after", "end");
+        CompoundBinaryTag tag = read(mapper.writeValueAsBytes(value));
+        assertEquals(fragment(), tag.getCompound("item"));
+        assertEquals(BinaryTagTypes.COMPOUND, tag.getList("items").elementType());
+        assertEquals(fragment(), tag.getList("items").getCompound(1));
+        assertEquals("end", tag.getString("after"));
+
+        // as root value, the document is written again
+        assertArrayEquals(raw.toDocument(), mapper.writeValueAsBytes(raw));
+        assertArrayEquals(write(fragment()), mapper.writeValueAsBytes(raw));
+    }
+
+    @Test
+    public void payloadRanges() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] document = write(fragment());
+        byte[] padded = new byte[document.length + 4];
+        System.arraycopy(document, 3, padded, 2, document.length - 3);
+        RawNbtValue raw = RawNbtValue.of(NbtConstants.TAG_COMPOUND, padded, 2, document.length - 3);
+        assertArrayEquals(document, raw.toDocument());
+        assertEquals(fragment(), read(mapper.writeValueAsBytes(Collections.singletonMap("item", raw))).getCompound("item"));
+
+        RawNbtValue number = RawNbtValue.of(NbtConstants.TAG_INT, new byte[]{0, 0, 1, 0});
+        assertEquals(256, read(mapper.writeValueAsBytes(Collections.singletonMap("n", number))).getInt("n"));
+
+        assertThrows(IllegalArgumentException.class, () -> RawNbtValue.of(NbtConstants.TAG_END, new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> RawNbtValue.of((byte) 13, new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> RawNbtValue.of(NbtConstants.TAG_INT, new byte[4], 2, 4));
+        assertThrows(IllegalArgumentException.class, () -> RawNbtValue.ofDocument(new byte[]{NbtConstants.TAG_INT, 0}));
+    }
+
+    @Test
+    public void listElementsMustHaveTheSameType() {
+        NbtMapper mapper = new NbtMapper();
+        RawNbtValue number = RawNbtValue.of(NbtConstants.TAG_INT, new byte[]{0, 0, 0, 1});
+        assertThrows(JsonMappingException.class,
+                () -> mapper.writeValueAsBytes(Collections.singletonMap("list", Arrays.asList(number, "a"))));
+    }
+
+    @Test
+    public void replayedAsTokens() throws IOException {
+        RawNbtValue raw = RawNbtValue.ofDocument(write(fragment()));
+        assertTrue(ListBinaryTags.contentEquals(fragment(), raw.toTag()));
+
+        // through a TokenBuffer, the value stays embedded and keeps its tag types
+        NbtMapper mapper = new NbtMapper();
+        CompoundBinaryTag converted = mapper.convertValue(Collections.singletonMap("item", raw), CompoundBinaryTag.class);
+        assertTrue(ListBinaryTags.contentEquals(fragment(), converted.getCompound("item")));
+        assertEquals(BinaryTagTypes.INT_ARRAY, converted.getCompound("item").get("ia").type());
+
+        // other formats get the tokens of the fragment
+        JsonNode json = new ObjectMapper().readTree(
+                new ObjectMapper().writeValueAsString(Collections.singletonMap("item", raw)));
+        assertEquals("minecraft:stone", json.at("/item/id").asText());
+        assertEquals(64, json.at("/item/Count").intValue());
+        assertEquals(1L << 40, json.at("/item/tag/seed").longValue());
+
+        ListBinaryTag list = (ListBinaryTag) RawNbtValue.ofDocument(mapper.writeValueAsBytes(Arrays.asList("a", "b"))).toTag();
+        assertEquals("b", list.getString(1));
+        BinaryTag number = RawNbtValue.of(NbtConstants.TAG_INT, new byte[]{0, 0, 0, 7}).toTag();
+        assertEquals(BinaryTagTypes.INT, number.type());
+    }
+}
@@ -0,0 +1,159 @@
+package party.para.jackson.nbt.async;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.LongBinaryTag;
+import org.junit.jupiter.api.Test;
+import party.para.jackson.nbt.NbtMapper;
+import party.para.jackson.nbt.NbtParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Content fed to {@link NonBlockingNbtParser} in chunks of various sizes gives the same tokens
+ * as the blocking parser reading it at once.
+ */
+public class NonBlockingNbtParserTest {
+    private static final int[] CHUNK_SIZES = {1, 2, 3, 7, 64, 1000, 65536};
+
+    static byte[] document() throws IOException {
+        CompoundBinaryTag.Builder builder = CompoundBinaryTag.builder()
+                .putByte("b", (byte) -1)
+                .putShort("s", (short) 3)
+                .putInt("i", 7)
+                .putLong("l", 1L << 40)
+                .putFloat("f", 1.5f)
+                .putDouble("d", 2.25)
+                .putString("str", "héllo \u0000 😀")
+                .putByteArray("ba", new byte[]{1, 2})
+                .putIntArray("ia", new int[]{3, 4, 5})
+                .putLongArray("la", new long[]{6})
+                .put("empty", ListBinaryTag.empty());
+        ListBinaryTag.Builder<BinaryTag> compounds = ListBinaryTag.builder();
+        ListBinaryTag.Builder<BinaryTag> longs = ListBinaryTag.builder();
+        for (int i = 0; i < 2000; i++) {
+            compounds.add(CompoundBinaryTag.builder().putInt("i", i).putString("s", "value " + i).build());
+            longs.add(LongBinaryTag.of(i * 1000003L));
+        }
+        builder.put("compounds", compounds.build()).put("longs", longs.build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTagIO.writer().write(builder.build(), out);
+        return out.toByteArray();
+    }
+
+    static String describe(JsonParser p, JsonToken t) throws IOException {
+        switch (t) {
+            case FIELD_NAME:
+            case VALUE_STRING:
+                return t + " " + p.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return t + " " + p.getNumberType() + " " + p.getNumberValue();
+            case VALUE_EMBEDDED_OBJECT:
+                Object value = p.getEmbeddedObject();
+                if (value instanceof byte[]) {
+                    return t + " " + Arrays.toString((byte[]) value);
+                } else if (value instanceof int[]) {
+                    return t + " " + Arrays.toString((int[]) value);
+                } else if (value instanceof long[]) {
+                    return t + " " + Arrays.toString((long[]) value);
+                }
+                return t + " " + value;
+            default:
+                return t.toString();
+        }
+    }
+
+    static List<String> blockingTokens(NbtMapper mapper, byte[] content) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (JsonParser p = mapper.getFactory().createParser(content)) {
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                tokens.add(describe(p, t));
+            }
+        }
+        return tokens;
+    }
+
+    static List<String> nonBlockingTokens(NbtMapper mapper, byte[] content, int chunkSize) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (NonBlockingNbtParser p = mapper.getFactory().createNonBlockingByteArrayParser()) {
+            int offset = 0;
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                if (t == JsonToken.NOT_AVAILABLE) {
+                    if (offset < content.length) {
+                        // a fresh copy each time, so that the parser can not rely on earlier chunks
+                        int end = Math.min(content.length, offset + chunkSize);
+                        byte[] chunk = Arrays.copyOfRange(content, offset, end);
+                        p.feedInput(chunk, 0, chunk.length);
+                        offset = end;
+                    } else {
+                        p.endOfInput();
+                    }
+                    continue;
+                }
+                tokens.add(describe(p, t));
+            }
+        }
+        return tokens;
+    }
+
+    static void assertSameTokens(NbtMapper mapper, byte[] content) throws IOException {
+        List<String> expected = blockingTokens(mapper, content);
+        for (int chunkSize : CHUNK_SIZES) {
+            assertEquals(expected, nonBlockingTokens(mapper, content, chunkSize), "chunks of " + chunkSize);
+        }
+    }
+
+    @Test
+    public void singleDocument() throws IOException {
+        assertSameTokens(new NbtMapper(), document());
+    }
+
+    @Test
+    public void typedArraysAsEmbeddedObjects() throws IOException {
+        NbtMapper mapper = NbtMapper.builder().enable(NbtParser.Feature.READ_TYPED_ARRAYS_AS_EMBEDDED_OBJECTS).build();
+        assertSameTokens(mapper, document());
+    }
+
+    @Test
+    public void sequenceOfDocuments() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SequenceWriter writer = mapper.writer().writeValues(out)) {
+            for (int i = 0; i < 100; i++) {
+                Map<String, Object> value = new LinkedHashMap<>();
+                value.put("i", i);
+                value.put("list", Collections.nCopies(i, "x" + i));
+                writer.write(value);
+            }
+        }
+        assertSameTokens(mapper, out.toByteArray());
+    }
+
+    @Test
+    public void valuesBoundFromChunks() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        byte[] content = document();
+        Map<?, ?> expected = mapper.readValue(content, Map.class);
+        NonBlockingNbtParser p = mapper.getFactory().createNonBlockingByteArrayParser();
+        p.feedInput(content, 0, content.length);
+        p.endOfInput();
+        assertEquals(expected, mapper.readValue(p, Map.class));
+    }
+}
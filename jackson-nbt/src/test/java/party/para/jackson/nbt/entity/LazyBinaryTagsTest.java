@@ -0,0 +1,147 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.DoubleBinaryTag;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.StringBinaryTag;
+import org.junit.jupiter.api.Test;
+import party.para.jackson.nbt.NbtMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lazy views hold the same content as the trees read from the same bytes, are written back
+ * unchanged, and copy themselves when changed.
+ */
+public class LazyBinaryTagsTest {
+    static CompoundBinaryTag reference() {
+        ListBinaryTag.Builder<BinaryTag> compounds = ListBinaryTag.builder();
+        ListBinaryTag.Builder<BinaryTag> doubles = ListBinaryTag.builder();
+        for (int i = 0; i < 50; i++) {
+            compounds.add(CompoundBinaryTag.builder().putInt("i", i).putString("s", "value " + i).build());
+            doubles.add(DoubleBinaryTag.of(i / 3.0));
+        }
+        return CompoundBinaryTag.builder()
+                .putString("name", "lazy")
+                .putByte("b", (byte) -1)
+                .putLong("l", 1L << 40)
+                .putByteArray("ba", new byte[]{1, 2})
+                .putIntArray("ia", new int[]{3, 4, 5})
+                .putLongArray("la", new long[]{6})
+                .put("compounds", compounds.build())
+                .put("doubles", doubles.build())
+                .put("nested", CompoundBinaryTag.builder()
+                        .put("inner", CompoundBinaryTag.builder().putString("é", "😀").build()).build())
+                .put("empty", ListBinaryTag.empty())
+                .build();
+    }
+
+    static byte[] write(CompoundBinaryTag tag) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryTagIO.writer().write(tag, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void viewsMatchTrees() throws IOException {
+        CompoundBinaryTag reference = reference();
+        byte[] bytes = write(reference);
+        BinaryTag view = LazyBinaryTags.view(bytes);
+        assertTrue(view instanceof LazyCompoundBinaryTag);
+        LazyCompoundBinaryTag compound = (LazyCompoundBinaryTag) view;
+
+        assertTrue(ListBinaryTags.contentEquals(view, reference));
+        assertTrue(ListBinaryTags.contentEquals(reference, view));
+        assertEquals("lazy", compound.getString("name"));
+        assertEquals(-1, compound.getByte("b"));
+        assertEquals(1L << 40, compound.getLong("l"));
+        assertArrayEquals(new byte[]{1, 2}, compound.getByteArray("ba"));
+        assertArrayEquals(new int[]{3, 4, 5}, compound.getIntArray("ia"));
+        assertArrayEquals(new long[]{6}, compound.getLongArray("la"));
+        assertEquals(49, compound.getList("compounds").getCompound(49).getInt("i"));
+        assertEquals(2.0, compound.getList("doubles").getDouble(6));
+        assertEquals("😀", compound.getCompound("nested").getCompound("inner").getString("é"));
+        assertTrue(compound.getList("compounds") instanceof LazyListBinaryTag);
+        assertNull(compound.get("missing"));
+        assertEquals(reference.keySet(), compound.keySet());
+
+        // a view equals the tree read by NbtMapper, both ways, but not adventure's tree
+        BinaryTag tree = new NbtMapper().readTag(bytes);
+        assertEquals(tree, view);
+        assertEquals(view, tree);
+        assertEquals(tree.hashCode(), view.hashCode());
+        assertFalse(view.equals(reference));
+        assertFalse(reference.equals(view));
+    }
+
+    @Test
+    public void viewsAreWrittenBackUnchanged() throws IOException {
+        byte[] bytes = write(reference());
+        LazyCompoundBinaryTag view = (LazyCompoundBinaryTag) LazyBinaryTags.view(bytes);
+        // reading a few entries first, so that some values are cached
+        view.getList("compounds").getCompound(3).getString("s");
+        view.getCompound("nested");
+        assertArrayEquals(bytes, new NbtMapper().writeTag(view));
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        view.writePayload(payload);
+        assertArrayEquals(Arrays.copyOfRange(bytes, 3, bytes.length), payload.toByteArray());
+        assertEquals(bytes.length - 3, view.payload().remaining());
+    }
+
+    @Test
+    public void changesReturnCopies() throws IOException {
+        byte[] bytes = write(reference());
+        LazyCompoundBinaryTag view = (LazyCompoundBinaryTag) LazyBinaryTags.view(bytes);
+        CompoundBinaryTag changed = view.putInt("added", 1).remove("name");
+        assertTrue(changed instanceof MutableCompoundTagImpl);
+        assertEquals(1, changed.getInt("added"));
+        assertFalse(changed.keySet().contains("name"));
+        assertEquals("lazy", view.getString("name"));
+        assertFalse(view.keySet().contains("added"));
+        assertNotEquals(view, changed);
+        assertEquals(view, changed.remove("added").putString("name", "lazy"));
+
+        ListBinaryTag list = view.getList("doubles");
+        ListBinaryTag added = list.add(DoubleBinaryTag.of(-1));
+        assertEquals(51, added.size());
+        assertEquals(50, list.size());
+        assertThrows(IllegalArgumentException.class, () -> list.add(IntBinaryTag.of(1)));
+        assertArrayEquals(bytes, new NbtMapper().writeTag(view));
+    }
+
+    @Test
+    public void rootListsAndBuffers() throws IOException {
+        byte[] list = new NbtMapper().writeValueAsBytes(Arrays.asList("a", "b", "c"));
+        BinaryTag view = LazyBinaryTags.view(list);
+        assertTrue(view instanceof LazyListBinaryTag);
+        assertEquals(StringBinaryTag.of("c"), ((ListBinaryTag) view).get(2));
+
+        // only the remaining bytes of a buffer are read, whatever its position
+        byte[] bytes = write(reference());
+        byte[] padded = new byte[bytes.length + 5];
+        System.arraycopy(bytes, 0, padded, 5, bytes.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded);
+        buffer.position(5);
+        assertEquals(LazyBinaryTags.view(bytes), LazyBinaryTags.view(buffer));
+        assertEquals(5, buffer.position());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ((CompoundBinaryTag) LazyBinaryTags.view(Arrays.copyOf(bytes, bytes.length / 2))).keySet());
+    }
+}
@@ -0,0 +1,152 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.StringBinaryTag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link MutableCompoundTagImpl} behaves like a {@link LinkedHashMap} of its entries, both while
+ * it is looked up by scanning and once it has grown into its hash index.
+ */
+public class MutableCompoundTagImplTest {
+    static void assertSameEntries(Map<String, BinaryTag> expected, MutableCompoundTagImpl compound) {
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(compound.keySet()));
+        assertEquals(expected.size(), compound.keySet().size());
+        List<String> iterated = new ArrayList<>();
+        for (Map.Entry<String, ? extends BinaryTag> entry : compound) {
+            iterated.add(entry.getKey());
+            assertEquals(expected.get(entry.getKey()), entry.getValue());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), iterated);
+        for (Map.Entry<String, BinaryTag> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), compound.get(entry.getKey()), entry.getKey());
+            assertTrue(compound.keySet().contains(entry.getKey()));
+        }
+        assertEquals(expected.hashCode(), compound.hashCode());
+    }
+
+    @Test
+    public void growsIntoHashIndex() {
+        MutableCompoundTagImpl compound = new MutableCompoundTagImpl();
+        Map<String, BinaryTag> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            compound.put("key" + i, IntBinaryTag.of(i));
+            expected.put("key" + i, IntBinaryTag.of(i));
+            if (i <= MutableCompoundTagImpl.MAX_LINEAR_SIZE + 1) {
+                assertSameEntries(expected, compound);
+            }
+        }
+        assertSameEntries(expected, compound);
+        assertNull(compound.get("key1000"));
+        assertFalse(compound.keySet().contains("missing"));
+
+        // replacing a value keeps the position of its key
+        compound.put("key5", StringBinaryTag.of("five"));
+        expected.put("key5", StringBinaryTag.of("five"));
+        assertSameEntries(expected, compound);
+    }
+
+    @Test
+    public void removesKeys() {
+        MutableCompoundTagImpl compound = new MutableCompoundTagImpl();
+        Map<String, BinaryTag> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            compound.put("key" + i, IntBinaryTag.of(i));
+            expected.put("key" + i, IntBinaryTag.of(i));
+        }
+        List<BinaryTag> removed = new ArrayList<>();
+        for (int i = 0; i < 100; i += 2) {
+            compound.remove("key" + i, removed::add);
+            expected.remove("key" + i);
+        }
+        assertEquals(50, removed.size());
+        assertEquals(IntBinaryTag.of(98), removed.get(49));
+        assertSameEntries(expected, compound);
+
+        // shrinks below the hash index, and grows into it again
+        for (int i = 1; i < 95; i += 2) {
+            compound.remove("key" + i);
+            expected.remove("key" + i);
+        }
+        assertSameEntries(expected, compound);
+        compound.remove("missing");
+        for (int i = 0; i < 20; i++) {
+            compound.put("again" + i, IntBinaryTag.of(-i));
+            expected.put("again" + i, IntBinaryTag.of(-i));
+        }
+        assertSameEntries(expected, compound);
+    }
+
+    @Test
+    public void matchesMapUnderRandomChanges() {
+        // "Aa" and "BB" have the same hash code, so keys built from them collide in the index
+        String[] parts = {"Aa", "BB"};
+        Random random = new Random(17);
+        MutableCompoundTagImpl compound = new MutableCompoundTagImpl();
+        Map<String, BinaryTag> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int j = 0; j < 6; j++) {
+                key.append(parts[random.nextInt(2)]);
+            }
+            if (random.nextInt(3) == 0) {
+                compound.remove(key.toString());
+                expected.remove(key.toString());
+            } else {
+                compound.put(key.toString(), IntBinaryTag.of(i));
+                expected.put(key.toString(), IntBinaryTag.of(i));
+            }
+            if (i % 1000 == 0) {
+                assertSameEntries(expected, compound);
+            }
+        }
+        assertSameEntries(expected, compound);
+    }
+
+    @Test
+    public void typedGetters() {
+        CompoundBinaryTag inner = new MutableCompoundTagImpl().putString("name", "inner");
+        ListBinaryTag list = new MutableIntListBinaryTagImpl().addInt(1).addInt(2);
+        MutableCompoundTagImpl compound = new MutableCompoundTagImpl();
+        compound.putByte("b", (byte) 1)
+                .putInt("i", 2)
+                .putDouble("d", 0.5)
+                .putString("s", "text")
+                .putIntArray("ia", new int[]{3, 4})
+                .put("compound", inner)
+                .put("list", list);
+
+        assertEquals(1, compound.getByte("b"));
+        assertEquals(2, compound.getInt("i"));
+        assertEquals(0.5, compound.getDouble("d"));
+        assertEquals("text", compound.getString("s"));
+        assertArrayEquals(new int[]{3, 4}, compound.getIntArray("ia"));
+        assertSame(inner, compound.getCompound("compound"));
+        assertSame(list, compound.getList("list"));
+
+        // numbers are read as any number type, other mismatches give the default
+        assertEquals(2L, compound.getLong("i"));
+        assertEquals(7, compound.getInt("s", 7));
+        assertEquals("default", compound.getString("i", "default"));
+        assertTrue(compound.getCompound("list").keySet().isEmpty());
+        assertEquals(Arrays.asList("b", "i", "d", "s", "ia", "compound", "list"),
+                new ArrayList<>(compound.keySet()));
+    }
+}
@@ -0,0 +1,176 @@
+package party.para.jackson.nbt.entity;
+
+import net.kyori.adventure.nbt.BinaryTag;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.ByteBinaryTag;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.DoubleBinaryTag;
+import net.kyori.adventure.nbt.FloatBinaryTag;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.LongBinaryTag;
+import net.kyori.adventure.nbt.ShortBinaryTag;
+import net.kyori.adventure.nbt.StringBinaryTag;
+import org.junit.jupiter.api.Test;
+import party.para.jackson.nbt.NbtMapper;
+import party.para.jackson.nbt.writer.ListTagWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The primitive-backed lists hold the same elements as lists of tags, and grow, change and
+ * compare like them.
+ */
+public class PrimitiveListBinaryTagTest {
+    private static final int COUNT = 1000;
+
+    /**
+     * @return list of tags holding the same elements as given list
+     */
+    static ListBinaryTag tags(ListBinaryTag list) {
+        List<BinaryTag> tags = new ArrayList<>();
+        list.forEach(tags::add);
+        return new MutableListBinaryTagImpl(list.elementType(), tags);
+    }
+
+    static void assertSameElements(ListBinaryTag expected, ListBinaryTag actual) {
+        assertEquals(expected.elementType(), actual.elementType());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+    @Test
+    public void elementsMatchListsOfTags() {
+        ListTagWriter bytes = new ListTagWriter();
+        ListTagWriter shorts = new ListTagWriter();
+        ListTagWriter ints = new ListTagWriter();
+        ListTagWriter longs = new ListTagWriter();
+        ListTagWriter floats = new ListTagWriter();
+        ListTagWriter doubles = new ListTagWriter();
+        List<BinaryTag> byteTags = new ArrayList<>();
+        List<BinaryTag> shortTags = new ArrayList<>();
+        List<BinaryTag> intTags = new ArrayList<>();
+        List<BinaryTag> longTags = new ArrayList<>();
+        List<BinaryTag> floatTags = new ArrayList<>();
+        List<BinaryTag> doubleTags = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            bytes.addByte((byte) i);
+            byteTags.add(ByteBinaryTag.of((byte) i));
+            shorts.addShort((short) (i * 31));
+            shortTags.add(ShortBinaryTag.of((short) (i * 31)));
+            ints.addInt(i * 1000003);
+            intTags.add(IntBinaryTag.of(i * 1000003));
+            longs.addLong(i * 10000000019L);
+            longTags.add(LongBinaryTag.of(i * 10000000019L));
+            floats.addFloat(i / 3f);
+            floatTags.add(FloatBinaryTag.of(i / 3f));
+            doubles.addDouble(i / 7.0);
+            doubleTags.add(DoubleBinaryTag.of(i / 7.0));
+        }
+
+        assertTrue(bytes.getTag() instanceof MutableByteListBinaryTagImpl);
+        assertTrue(shorts.getTag() instanceof MutableShortListBinaryTagImpl);
+        assertTrue(ints.getTag() instanceof MutableIntListBinaryTagImpl);
+        assertTrue(longs.getTag() instanceof MutableLongListBinaryTagImpl);
+        assertTrue(floats.getTag() instanceof MutableFloatListBinaryTagImpl);
+        assertTrue(doubles.getTag() instanceof MutableDoubleListBinaryTagImpl);
+        assertSameElements(new MutableListBinaryTagImpl(BinaryTagTypes.BYTE, byteTags), bytes.getTag());
+        assertSameElements(new MutableListBinaryTagImpl(BinaryTagTypes.SHORT, shortTags), shorts.getTag());
+        assertSameElements(new MutableListBinaryTagImpl(BinaryTagTypes.INT, intTags), ints.getTag());
+        assertSameElements(new MutableListBinaryTagImpl(BinaryTagTypes.LONG, longTags), longs.getTag());
+        assertSameElements(new MutableListBinaryTagImpl(BinaryTagTypes.FLOAT, floatTags), floats.getTag());
+        assertSameElements(new MutableListBinaryTagImpl(BinaryTagTypes.DOUBLE, doubleTags), doubles.getTag());
+
+        for (int i = 0; i < COUNT; i += 97) {
+            assertEquals((byte) i, bytes.getTag().getByte(i));
+            assertEquals((short) (i * 31), shorts.getTag().getShort(i));
+            assertEquals(i * 1000003, ints.getTag().getInt(i));
+            assertEquals(i * 10000000019L, longs.getTag().getLong(i));
+            assertEquals(i / 3f, floats.getTag().getFloat(i));
+            assertEquals(i / 7.0, doubles.getTag().getDouble(i));
+        }
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        MutableIntListBinaryTagImpl list = new MutableIntListBinaryTagImpl(0);
+        int[] expected = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            list.addInt(i);
+            expected[i] = i;
+        }
+        assertArrayEquals(expected, list.toIntArray());
+
+        MutableLongListBinaryTagImpl longs = new MutableLongListBinaryTagImpl(1);
+        longs.add(Arrays.asList(LongBinaryTag.of(1), LongBinaryTag.of(2), LongBinaryTag.of(3)));
+        assertArrayEquals(new long[]{1, 2, 3}, longs.toLongArray());
+    }
+
+    @Test
+    public void setAndRemove() {
+        MutableIntListBinaryTagImpl list = new MutableIntListBinaryTagImpl();
+        for (int i = 0; i < 5; i++) {
+            list.addInt(i);
+        }
+        List<BinaryTag> removed = new ArrayList<>();
+        list.set(1, IntBinaryTag.of(10), removed::add);
+        list.remove(3, removed::add);
+        list.remove(0, null);
+        assertEquals(Arrays.asList(IntBinaryTag.of(1), IntBinaryTag.of(3)), removed);
+        assertArrayEquals(new int[]{10, 2, 4}, list.toIntArray());
+
+        assertThrows(IllegalArgumentException.class, () -> list.add(StringBinaryTag.of("a")));
+        assertThrows(IllegalArgumentException.class, () -> list.set(0, LongBinaryTag.of(1), null));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.remove(-1, null));
+        assertArrayEquals(new int[]{10, 2, 4}, list.toIntArray());
+    }
+
+    @Test
+    public void iteration() {
+        MutableDoubleListBinaryTagImpl list = new MutableDoubleListBinaryTagImpl();
+        for (int i = 0; i < COUNT; i++) {
+            list.addDouble(i);
+        }
+        Spliterator<BinaryTag> spliterator = list.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.IMMUTABLE));
+        assertEquals(COUNT, spliterator.estimateSize());
+        assertEquals(COUNT * (COUNT - 1) / 2.0,
+                list.stream().mapToDouble(tag -> ((DoubleBinaryTag) tag).value()).sum());
+
+        List<BinaryTag> iterated = new ArrayList<>();
+        list.iterator().forEachRemaining(iterated::add);
+        assertEquals(tags(list), new MutableListBinaryTagImpl(BinaryTagTypes.DOUBLE, iterated));
+    }
+
+    @Test
+    public void numberListsAreReadIntoPrimitiveLists() throws IOException {
+        NbtMapper mapper = new NbtMapper();
+        CompoundBinaryTag tag = (CompoundBinaryTag) mapper.readTag(mapper.writeValueAsBytes(
+                new Object() {
+                    public List<Integer> ints = Arrays.asList(1, 2, 3);
+                    public List<Double> doubles = Arrays.asList(0.5, 1.5);
+                    public List<String> strings = Arrays.asList("a", "b");
+                }));
+        assertArrayEquals(new int[]{1, 2, 3}, ((MutableIntListBinaryTagImpl) tag.getList("ints")).toIntArray());
+        assertEquals(1.5, tag.getList("doubles").getDouble(1));
+        assertTrue(tag.getList("doubles") instanceof MutableDoubleListBinaryTagImpl);
+        assertTrue(tag.getList("strings") instanceof MutableListBinaryTagImpl);
+    }
+}
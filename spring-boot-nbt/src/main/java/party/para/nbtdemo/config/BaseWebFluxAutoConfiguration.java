@@ -0,0 +1,23 @@
+package party.para.nbtdemo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Spring Boot NBT support auto configuration for WebFlux, and for {@link WebClient}.
+ */
+@Configuration
+@ConditionalOnClass({CodecConfigurer.class, WebClient.class})
+public class BaseWebFluxAutoConfiguration {
+    @Bean
+    public CodecCustomizer nbtCodecCustomizer() {
+        return configurer -> {
+            configurer.customCodecs().registerWithDefaultConfig(new NbtDecoder());
+            configurer.customCodecs().registerWithDefaultConfig(new NbtEncoder());
+        };
+    }
+}
@@ -1,15 +1,66 @@
 package party.para.nbtdemo.config;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.std.IterableSerializer;
+import net.kyori.adventure.nbt.BinaryTag;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.TypeUtils;
+import party.para.jackson.nbt.NbtCompression;
+import party.para.jackson.nbt.NbtConstants;
+import party.para.jackson.nbt.NbtFactory;
+import party.para.jackson.nbt.NbtGenerator;
 import party.para.jackson.nbt.NbtMapper;
+import party.para.jackson.nbt.NbtSchema;
+import party.para.jackson.nbt.compress.DeflatingOutputStream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 /**
  * Add NBT support to Spring Boot.
+ * <p>
+ * Written as {@code application/nbt}, root lists are written to the response as a single NBT
+ * list. NBT lists are prefixed with their length, so the length is found before any element is
+ * written.
+ * <ul>
+ *     <li>{@link Collection}s and arrays know their length, and are written as they go.</li>
+ *     <li>Other {@link Iterable}s written as lists are iterated twice, once to count their
+ *     elements.</li>
+ *     <li>{@link Stream}s and {@link Iterator}s can only be iterated once; their elements are
+ *     spooled to a temporary file, which is copied to the response once it is complete.</li>
+ * </ul>
+ * Written as {@code application/stream+nbt}, {@link Stream}s, {@link Iterator}s and
+ * {@link Iterable}s are written as a stream of concatenated documents instead, one per element,
+ * each flushed as soon as it is written. Like with {@link NbtEncoder}, streamed documents are
+ * never compressed.
  */
 public class Nbt2HttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+    private static final MediaType STREAM_NBT = new MediaType("application", "stream+nbt");
+
     /**
      * Construct a new {@link Nbt2HttpMessageConverter} using default configuration
      * provided by {@link Jackson2ObjectMapperBuilder}.
@@ -26,7 +77,189 @@ public class Nbt2HttpMessageConverter extends AbstractJackson2HttpMessageConvert
      * @see Jackson2ObjectMapperBuilder#json()
      */
     public Nbt2HttpMessageConverter(ObjectMapper objectMapper) {
-        super(objectMapper, new MediaType("application", "nbt"));
+        super(objectMapper, new MediaType("application", "nbt"), STREAM_NBT);
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        if (!(getObjectMapper().getFactory() instanceof NbtFactory)) {
+            super.writeInternal(object, type, outputMessage);
+        } else if (STREAM_NBT.isCompatibleWith(outputMessage.getHeaders().getContentType())) {
+            writeStreamed(object, type, outputMessage);
+        } else if (object instanceof Stream) {
+            try (Stream<?> stream = (Stream<?>) object) {
+                writeSpooledList(stream.iterator(), elementWriter(object, type, Stream.class), outputMessage);
+            }
+        } else if (object instanceof Iterator) {
+            writeSpooledList((Iterator<?>) object, elementWriter(object, type, Iterator.class), outputMessage);
+        } else if (isSerializedAsIterable(object)) {
+            super.writeInternal(new CountedIterable<>((Iterable<?>) object), null, outputMessage);
+        } else {
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+
+    /**
+     * Whether given object is an {@link Iterable} other than a {@link Collection} that is written
+     * as a list of its elements. Trees such as {@code JsonNode}s and {@link BinaryTag}s are
+     * iterable too, but are written by serializers of their own.
+     */
+    private boolean isSerializedAsIterable(Object object) {
+        if (!(object instanceof Iterable) || object instanceof Collection
+                || object instanceof TreeNode || object instanceof BinaryTag) {
+            return false;
+        }
+        try {
+            JsonSerializer<?> serializer = getObjectMapper().getSerializerProviderInstance()
+                    .findValueSerializer(object.getClass());
+            return serializer instanceof IterableSerializer;
+        } catch (JsonMappingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the elements of a {@link Stream}, {@link Iterator} or {@link Iterable} as documents
+     * of their own, and any other object as a single document.
+     */
+    private void writeStreamed(Object object, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (object instanceof Stream) {
+            try (Stream<?> stream = (Stream<?>) object) {
+                writeDocuments(stream.iterator(), elementWriter(object, type, Stream.class), outputMessage);
+            }
+        } else if (object instanceof Iterator) {
+            writeDocuments((Iterator<?>) object, elementWriter(object, type, Iterator.class), outputMessage);
+        } else if (object instanceof Collection || isSerializedAsIterable(object)) {
+            writeDocuments(((Iterable<?>) object).iterator(), elementWriter(object, type, Iterable.class), outputMessage);
+        } else {
+            writeDocuments(Collections.singleton(object).iterator(), getObjectMapper().writer(), outputMessage);
+        }
+    }
+
+    /**
+     * Writes each element as a document of its own, flushing the response after each one.
+     */
+    private void writeDocuments(Iterator<?> elements, ObjectWriter writer, HttpOutputMessage outputMessage)
+            throws IOException {
+        if (((NbtFactory) writer.getFactory()).getOutputCompression() != NbtCompression.NONE) {
+            writer = writer.with(NbtSchema.DEFAULT);
+        }
+        try (SequenceWriter sequence = writer.with(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .writeValues(StreamUtils.nonClosing(outputMessage.getBody()))) {
+            while (elements.hasNext()) {
+                sequence.write(elements.next());
+            }
+        } catch (JsonProcessingException ex) {
+            throw new HttpMessageNotWritableException("Could not write NBT: " + ex.getOriginalMessage(), ex);
+        }
     }
 
+    /**
+     * Writer for the elements of given {@link Stream}, {@link Iterator} or {@link Iterable}. Like
+     * {@link AbstractJackson2HttpMessageConverter} does for the whole value, the element type is
+     * taken from the declared type, and used as root type when the serializer depends on it:
+     * generic containers, and polymorphic types written with a type id.
+     */
+    private ObjectWriter elementWriter(Object object, @Nullable Type type, Class<?> containerClass) {
+        ObjectWriter writer = getObjectMapper().writer();
+        if (type == null || !TypeUtils.isAssignable(type, object.getClass())) {
+            return writer;
+        }
+        JavaType[] parameters = getJavaType(type, null).findTypeParameters(containerClass);
+        if (parameters.length != 1 || parameters[0].hasRawClass(Object.class)) {
+            return writer;
+        }
+        JavaType elementType = parameters[0];
+        try {
+            if (elementType.isContainerType() || getObjectMapper().getSerializerProviderInstance()
+                    .findTypeSerializer(elementType) != null) {
+                return writer.forType(elementType);
+            }
+        } catch (JsonMappingException e) {
+            // serialized by its runtime type, as it would be without a declared type
+        }
+        return writer;
+    }
+
+    /**
+     * Writes elements that can only be iterated once as a root list. The list is written to a
+     * temporary file by a single generator, exactly as a {@link Collection} would be, but started
+     * with an upper bound of its length so that it is not held in memory; the actual length is
+     * then patched in the file, which is copied to the response.
+     */
+    private void writeSpooledList(Iterator<?> elements, ObjectWriter elementWriter, HttpOutputMessage outputMessage)
+            throws IOException {
+        final NbtFactory factory = (NbtFactory) getObjectMapper().getFactory();
+        final ObjectWriter writer = elementWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        final File spool = File.createTempFile("nbt-spool", ".tmp");
+        try {
+            int count;
+            try (NbtGenerator generator = factory.createGenerator(new FileOutputStream(spool))) {
+                // compressed once copied to the response
+                generator.setSchema(NbtSchema.DEFAULT);
+                generator.writeStartArray(elements, Integer.MAX_VALUE);
+                while (elements.hasNext()) {
+                    writer.writeValue(generator, elements.next());
+                }
+                count = generator.writeEndArrayUnchecked();
+            } catch (JsonProcessingException ex) {
+                throw new HttpMessageNotWritableException("Could not write NBT: " + ex.getOriginalMessage(), ex);
+            }
+            try (RandomAccessFile file = new RandomAccessFile(spool, "rw")) {
+                // root tag: type id and empty name, then the element type (unless turned into a
+                // typed array) and the length
+                file.seek(file.readByte() == NbtConstants.TAG_LIST ? 4 : 3);
+                file.writeInt(count);
+            }
+
+            OutputStream body = outputMessage.getBody();
+            DeflatingOutputStream deflating = null;
+            if (factory.getOutputCompression() != NbtCompression.NONE) {
+                body = deflating = new DeflatingOutputStream(factory.getOutputCompression(),
+                        factory.getCompressionLevel(), body);
+            }
+            try {
+                Files.copy(spool.toPath(), body);
+                if (deflating != null) {
+                    deflating.finish();
+                }
+            } finally {
+                if (deflating != null) {
+                    deflating.release();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(spool.toPath());
+        }
+    }
+
+    /**
+     * {@link Iterable} whose elements are counted up front, so that it is serialized like a
+     * {@link Collection} with a known length.
+     */
+    private static class CountedIterable<T> extends AbstractCollection<T> {
+        private final Iterable<T> iterable;
+
+        private final int size;
+
+        CountedIterable(Iterable<T> iterable) {
+            this.iterable = iterable;
+            int count = 0;
+            for (Iterator<T> it = iterable.iterator(); it.hasNext(); it.next()) {
+                ++count;
+            }
+            this.size = count;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return iterable.iterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package party.para.nbtdemo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.http.codec.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import party.para.jackson.nbt.NbtMapper;
+
+/**
+ * Decode a byte stream into NBT and convert to Objects, for Spring WebFlux.
+ * <p>
+ * {@code DataBuffer} chunks are fed to a non-blocking NBT parser as they arrive, so decoding
+ * to a {@code Flux} emits the elements of a root list (or the documents of an
+ * {@code application/stream+nbt} stream) one by one without blocking or buffering the whole
+ * body. Decoding to a {@code Mono} joins the body first, which also allows GZIP or zlib
+ * compressed documents to be detected; the non-blocking parser does not decompress, so a
+ * compressed body can only be decoded to a {@code Mono}. {@link NbtEncoder} never compresses
+ * {@code application/stream+nbt} output for that reason.
+ *
+ * @see NbtEncoder
+ */
+public class NbtDecoder extends AbstractJackson2Decoder {
+    private static final MimeType[] DEFAULT_NBT_MIME_TYPES = new MimeType[]{
+            new MimeType("application", "nbt"),
+            new MimeType("application", "*+nbt")};
+
+    /**
+     * Construct a new {@link NbtDecoder} using a default {@link NbtMapper}.
+     */
+    public NbtDecoder() {
+        this(new NbtMapper());
+    }
+
+    /**
+     * Construct a new {@link NbtDecoder} with a custom {@link ObjectMapper}.
+     * You can use {@link Jackson2ObjectMapperBuilder} to build it easily.
+     *
+     * @param objectMapper An object mapper for this Decoder.
+     */
+    public NbtDecoder(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_NBT_MIME_TYPES);
+    }
+
+    /**
+     * Construct a new {@link NbtDecoder} with a custom {@link ObjectMapper} and the mime types
+     * it decodes.
+     *
+     * @param objectMapper An object mapper for this Decoder.
+     * @param mimeTypes    Mime types this Decoder supports.
+     */
+    public NbtDecoder(ObjectMapper objectMapper, MimeType... mimeTypes) {
+        super(objectMapper, mimeTypes);
+    }
+}
@@ -0,0 +1,94 @@
+package party.para.nbtdemo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import party.para.jackson.nbt.NbtCompression;
+import party.para.jackson.nbt.NbtFactory;
+import party.para.jackson.nbt.NbtMapper;
+import party.para.jackson.nbt.NbtSchema;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Encode from an {@code Object} stream to a byte stream of NBT objects, for Spring WebFlux.
+ * <p>
+ * A {@code Flux} written as {@code application/nbt} is collected into a single root list,
+ * since NBT lists are prefixed with their length. Written as {@code application/stream+nbt}
+ * each element is encoded and flushed as a NBT document of its own as soon as it is emitted,
+ * so the response is a stream of concatenated documents. Streamed documents are never
+ * compressed, whatever the output compression of the mapper: a compressed stream could not be
+ * read before it is complete, and {@link NbtDecoder} reads streams without detecting compression.
+ *
+ * @see NbtDecoder
+ */
+public class NbtEncoder extends AbstractJackson2Encoder {
+    private static final MimeType[] DEFAULT_NBT_MIME_TYPES = new MimeType[]{
+            new MimeType("application", "nbt"),
+            new MimeType("application", "*+nbt")};
+
+    private static final byte[] STREAM_SEPARATOR = new byte[0];
+
+    /**
+     * Construct a new {@link NbtEncoder} using a default {@link NbtMapper}.
+     */
+    public NbtEncoder() {
+        this(new NbtMapper());
+    }
+
+    /**
+     * Construct a new {@link NbtEncoder} with a custom {@link ObjectMapper}.
+     * You can use {@link Jackson2ObjectMapperBuilder} to build it easily.
+     *
+     * @param objectMapper An object mapper for this Encoder.
+     */
+    public NbtEncoder(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_NBT_MIME_TYPES);
+    }
+
+    /**
+     * Construct a new {@link NbtEncoder} with a custom {@link ObjectMapper} and the mime types
+     * it encodes.
+     *
+     * @param objectMapper An object mapper for this Encoder.
+     * @param mimeTypes    Mime types this Encoder supports.
+     */
+    public NbtEncoder(ObjectMapper objectMapper, MimeType... mimeTypes) {
+        super(objectMapper, mimeTypes);
+        setStreamingMediaTypes(Collections.singletonList(new MediaType("application", "stream+nbt")));
+    }
+
+    /**
+     * NBT documents are self-delimiting, so streamed documents are simply concatenated.
+     */
+    @Nullable
+    @Override
+    protected byte[] getStreamingMediaTypeSeparator(@Nullable MimeType mimeType) {
+        return isStreamingMediaType(mimeType) ? STREAM_SEPARATOR : null;
+    }
+
+    @Override
+    protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType,
+                                           ResolvableType elementType, @Nullable Map<String, Object> hints) {
+        if (isStreamingMediaType(mimeType) && writer.getFactory() instanceof NbtFactory
+                && ((NbtFactory) writer.getFactory()).getOutputCompression() != NbtCompression.NONE) {
+            return writer.with(NbtSchema.DEFAULT);
+        }
+        return writer;
+    }
+
+    private boolean isStreamingMediaType(@Nullable MimeType mimeType) {
+        for (MediaType streamingMediaType : getStreamingMediaTypes()) {
+            if (streamingMediaType.isCompatibleWith(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}